@@ -0,0 +1,175 @@
+package gr.dmst.edu.redis.benchmark;
+
+import gr.dmst.edu.redis.RedisApplication;
+import gr.dmst.edu.redis.model.ChatMessage;
+import gr.dmst.edu.redis.model.Meeting;
+import gr.dmst.edu.redis.repository.MeetingRepository;
+import gr.dmst.edu.redis.service.ChatStore;
+import gr.dmst.edu.redis.service.MeetingService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+// The application on an embedded Redis server and an in-memory H2 database, so the benchmarks
+// run offline and every fork starts from an empty store. The web server is only started on request.
+public class BenchmarkApplication implements AutoCloseable {
+    // Meetings are spread over roughly 1km around this point
+    public static final double CENTER_LAT = 37.9838;
+    public static final double CENTER_LON = 23.7275;
+    public static final double SPREAD = 0.01;
+
+    private final RedisServer redis;
+    private final LatencyProxy proxy;
+    private final ConfigurableApplicationContext context;
+
+    private BenchmarkApplication(RedisServer redis, LatencyProxy proxy, ConfigurableApplicationContext context) {
+        this.redis = redis;
+        this.proxy = proxy;
+        this.context = context;
+    }
+
+    public static BenchmarkApplication start() {
+        return start(WebApplicationType.NONE, Duration.ZERO);
+    }
+
+    // With a redisLatency the application reaches Redis through a LatencyProxy.
+    // Extra arguments are --name=value properties on top of the benchmark defaults.
+    public static BenchmarkApplication start(WebApplicationType webApplicationType, Duration redisLatency,
+                                             String... extraArgs) {
+        int port = freePort();
+        RedisServer redis;
+        try {
+            redis = RedisServer.newRedisServer()
+                    .port(port)
+                    .bind("127.0.0.1")
+                    .setting("save \"\"")
+                    .setting("appendonly no")
+                    .setting("maxclients 10000")
+                    .build();
+            redis.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        LatencyProxy proxy = redisLatency.isZero() ? null : new LatencyProxy(port, redisLatency);
+
+        // Passed as arguments, they have to win over application.properties
+        String[] args = Stream.concat(Stream.of(
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN",
+                        "--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.hibernate.ddl-auto=create",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.data.redis.host=127.0.0.1",
+                        "--spring.data.redis.port=" + (proxy == null ? port : proxy.port()),
+                        // The benchmarks drive activation themselves
+                        "--meeting.scheduler.poll-interval=PT24H",
+                        "--meeting.scheduler.refill-interval=PT24H",
+                        "--meeting.scheduler.reconcile-interval=PT24H",
+                        // A few users post and join as fast as the benchmarks go, the limits would throttle them
+                        "--meeting.rate-limit.enabled=false"),
+                Stream.of(extraArgs)).toArray(String[]::new);
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(RedisApplication.class)
+                .web(webApplicationType)
+                .run(args);
+        return new BenchmarkApplication(redis, proxy, context);
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    // The port the web server listens on
+    public int port() {
+        return context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+
+    // Active meetings that invite the users user0..user{participantsPerMeeting-1}, all of them
+    // joined and every chat holding chatHistory messages. Returns the meeting ids. The application
+    // is closed if seeding fails, JMH does not tear down a failed setup and its threads keep the fork alive.
+    public List<String> seed(int activeMeetings, int participantsPerMeeting, int chatHistory) throws Exception {
+        try {
+            return doSeed(activeMeetings, participantsPerMeeting, chatHistory);
+        } catch (Exception e) {
+            close();
+            throw e;
+        }
+    }
+
+    private List<String> doSeed(int activeMeetings, int participantsPerMeeting, int chatHistory) throws Exception {
+        MeetingService meetingService = getBean(MeetingService.class);
+        MeetingRepository meetingRepository = getBean(MeetingRepository.class);
+        ChatStore chatStore = getBean(ChatStore.class);
+
+        List<String> participants = IntStream.range(0, participantsPerMeeting)
+                .mapToObj(BenchmarkApplication::user)
+                .collect(Collectors.toList());
+        LocalDateTime now = LocalDateTime.now();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        List<Meeting> meetings = new ArrayList<>();
+        for (int i = 0; i < activeMeetings; i++) {
+            meetings.add(new Meeting("bench-" + i, "Meeting " + i, "Benchmark meeting",
+                    now.minusHours(1), now.plusDays(1),
+                    CENTER_LAT + (random.nextDouble() - 0.5) * SPREAD,
+                    CENTER_LON + (random.nextDouble() - 0.5) * SPREAD,
+                    new LinkedHashSet<>(participants)));
+        }
+        meetingRepository.saveAll(meetings);
+
+        long timestamp = System.currentTimeMillis() - chatHistory;
+        for (Meeting meeting : meetings) {
+            meetingService.activateMeeting(meeting);
+            for (int p = 0; p < participantsPerMeeting; p++) {
+                meetingService.joinMeeting(user(p), meeting.getMeetingId());
+            }
+            for (int m = 0; m < chatHistory; m++) {
+                chatStore.append(meeting.getMeetingId(),
+                        new ChatMessage(user(m % participantsPerMeeting), "message " + m, timestamp + m));
+            }
+        }
+        return meetings.stream().map(Meeting::getMeetingId).collect(Collectors.toList());
+    }
+
+    public static String user(int index) {
+        return "user" + index + "@bench.gr";
+    }
+
+    @Override
+    public void close() {
+        context.close();
+        if (proxy != null) {
+            proxy.close();
+        }
+        try {
+            redis.stop();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package gr.dmst.edu.redis.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static gr.dmst.edu.redis.benchmark.BenchmarkApplication.*;
+
+// Items per second written over HTTP one per request (POST /users, /meetings, /meetings/{id}/join)
+// and through the bulk endpoints, BULK_SIZE items per ndjson request. Every user and meeting is a
+// new one; the joins are spread over seeded meetings, so most of them find the user already joined.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class BulkIngestionBenchmark {
+    private static final int BULK_SIZE = 10_000;
+    private static final int ACTIVE_MEETINGS = 100;
+    private static final int PARTICIPANTS_PER_MEETING = 100;
+
+    @Param({"users", "meetings", "joins"})
+    public String items;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private BenchmarkApplication application;
+    private HttpClient client;
+    private String baseUrl;
+    private List<String> meetingIds;
+    private String start;
+    private String end;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        application = BenchmarkApplication.start(WebApplicationType.SERVLET, Duration.ZERO);
+        meetingIds = application.seed(ACTIVE_MEETINGS, PARTICIPANTS_PER_MEETING, 0);
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        baseUrl = "http://127.0.0.1:" + application.port() + "/api";
+        // Far enough ahead for the scheduler not to activate them
+        LocalDateTime startTime = LocalDateTime.now().plusYears(1);
+        start = startTime.toString();
+        end = startTime.plusHours(1).toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        application.close();
+    }
+
+    @Benchmark
+    public String single() throws Exception {
+        return switch (items) {
+            case "users" -> send(HttpRequest.newBuilder(URI.create(baseUrl + "/users"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(user(sequence.incrementAndGet()))));
+            case "meetings" -> send(HttpRequest.newBuilder(URI.create(baseUrl + "/meetings"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(meeting(sequence.incrementAndGet()))));
+            default -> send(HttpRequest.newBuilder(URI.create(baseUrl + "/meetings/" + randomMeeting()
+                    + "/join?email=" + randomUser())).POST(HttpRequest.BodyPublishers.noBody()));
+        };
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BULK_SIZE)
+    public String bulk() throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < BULK_SIZE; i++) {
+            body.append(switch (items) {
+                case "users" -> user(sequence.incrementAndGet());
+                case "meetings" -> meeting(sequence.incrementAndGet());
+                default -> "{\"meetingId\":\"" + randomMeeting() + "\",\"email\":\"" + randomUser() + "\"}";
+            }).append('\n');
+        }
+        String path = switch (items) {
+            case "users" -> "/users/bulk";
+            case "meetings" -> "/meetings/bulk";
+            default -> "/meetings/joins/bulk";
+        };
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString())));
+    }
+
+    private static String user(long id) {
+        return "{\"email\":\"bulk" + id + "@bench.gr\",\"name\":\"User " + id + "\",\"age\":30,\"gender\":\"F\"}";
+    }
+
+    private String meeting(long id) {
+        return "{\"meetingId\":\"bulk-" + id + "\",\"title\":\"Meeting " + id + "\",\"startTime\":\"" + start
+                + "\",\"endTime\":\"" + end + "\",\"latitude\":" + CENTER_LAT + ",\"longitude\":" + CENTER_LON
+                + ",\"participants\":[\"" + BenchmarkApplication.user(0) + "\",\"" + BenchmarkApplication.user(1) + "\"]}";
+    }
+
+    private String send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(response.statusCode() + " " + response.body());
+        }
+        return response.body();
+    }
+
+    private String randomMeeting() {
+        return meetingIds.get(ThreadLocalRandom.current().nextInt(meetingIds.size()));
+    }
+
+    private static String randomUser() {
+        return BenchmarkApplication.user(ThreadLocalRandom.current().nextInt(PARTICIPANTS_PER_MEETING));
+    }
+}
@@ -0,0 +1,129 @@
+package gr.dmst.edu.redis.benchmark;
+
+import gr.dmst.edu.redis.model.ChatMessage;
+import gr.dmst.edu.redis.repository.RedisKeys;
+import gr.dmst.edu.redis.service.ChatCodec;
+import gr.dmst.edu.redis.service.ChatStore;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// The JSON and binary chat codecs: encode and decode throughput, reading a whole chat through
+// the ChatStore, and the Redis memory taken by MESSAGES messages stored as lists of CHAT_LENGTH.
+// The memory is reported as the redisMBPerMillionMessages secondary result of readChat.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class ChatCodecBenchmark {
+    private static final int MESSAGES = 1_000_000;
+    private static final int CHAT_LENGTH = 1000;
+    private static final int SENDERS = 50;
+    private static final String[] WORDS = {"meeting", "agenda", "ok", "thanks", "see", "you", "at", "the",
+            "room", "slides", "are", "ready", "running", "late", "minutes", "can", "we", "start", "now", "?"};
+
+    @Param({"json", "binary"})
+    public String codec;
+
+    private BenchmarkApplication application;
+    private ChatCodec chatCodec;
+    private ChatStore chatStore;
+    private ChatMessage[] samples;
+    private byte[][] encodedSamples;
+    private double megabytesPerMillion;
+
+    // JMH resets the counters before each iteration, the benchmark sets the value on every call
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class RedisMemory {
+        public double redisMBPerMillionMessages;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        application = BenchmarkApplication.start(WebApplicationType.NONE, Duration.ZERO, "--meeting.chat.codec=" + codec);
+        try {
+            chatCodec = application.getBean(ChatCodec.class);
+            chatStore = application.getBean(ChatStore.class);
+            samples = sampleMessages(CHAT_LENGTH);
+            encodedSamples = new byte[samples.length][];
+            for (int i = 0; i < samples.length; i++) {
+                encodedSamples[i] = chatCodec.encode(samples[i]);
+            }
+            megabytesPerMillion = fillChats() * (1_000_000.0 / MESSAGES) / (1024 * 1024);
+        } catch (Exception e) {
+            application.close();
+            throw e;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        application.close();
+    }
+
+    @Benchmark
+    public byte[] encode() throws Exception {
+        return chatCodec.encode(samples[ThreadLocalRandom.current().nextInt(samples.length)]);
+    }
+
+    @Benchmark
+    public ChatMessage decode() throws Exception {
+        return chatCodec.decode(encodedSamples[ThreadLocalRandom.current().nextInt(encodedSamples.length)]);
+    }
+
+    // One chat of CHAT_LENGTH messages, read and decoded
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public List<ChatMessage> readChat(RedisMemory memory) {
+        memory.redisMBPerMillionMessages = megabytesPerMillion;
+        return chatStore.readAll("codec-" + ThreadLocalRandom.current().nextInt(MESSAGES / CHAT_LENGTH));
+    }
+
+    // Writes the messages with the configured codec and returns the Redis memory they take, in bytes
+    private long fillChats() throws Exception {
+        RedisConnectionFactory connectionFactory = application.getBean(RedisConnectionFactory.class);
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            long before = usedMemory(connection);
+            for (int chat = 0; chat < MESSAGES / CHAT_LENGTH; chat++) {
+                byte[][] entries = new byte[CHAT_LENGTH][];
+                for (int i = 0; i < CHAT_LENGTH; i++) {
+                    entries[i] = encodedSamples[(chat + i) % encodedSamples.length];
+                }
+                connection.listCommands().rPush(RedisKeys.chat("codec-" + chat).getBytes(StandardCharsets.UTF_8), entries);
+            }
+            return usedMemory(connection) - before;
+        }
+    }
+
+    private static long usedMemory(RedisConnection connection) {
+        return Long.parseLong(connection.serverCommands().info("memory").getProperty("used_memory"));
+    }
+
+    // Chat-like messages of 1 to 15 words from a few senders, a second apart
+    private static ChatMessage[] sampleMessages(int count) {
+        Random random = new Random(42);
+        long timestamp = System.currentTimeMillis() - count * 1000L;
+        ChatMessage[] messages = new ChatMessage[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder text = new StringBuilder();
+            int words = 1 + random.nextInt(15);
+            for (int w = 0; w < words; w++) {
+                text.append(w == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            messages[i] = new ChatMessage(BenchmarkApplication.user(random.nextInt(SENDERS)), text.toString(),
+                    timestamp + i * 1000L);
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,110 @@
+package gr.dmst.edu.redis.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.LockSupport;
+
+// TCP proxy that delays every chunk by a fixed latency in both directions, to put a network
+// round trip between the application and the embedded Redis server. Chunks are queued with
+// their delivery time, so the latency adds to each round trip without limiting the throughput.
+class LatencyProxy implements AutoCloseable {
+    private final ServerSocket serverSocket;
+    private final int targetPort;
+    private final long latencyNanos;
+
+    LatencyProxy(int targetPort, Duration latency) {
+        this.targetPort = targetPort;
+        this.latencyNanos = latency.toNanos();
+        try {
+            this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        daemon("latency-proxy", this::acceptLoop).start();
+    }
+
+    int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket client = serverSocket.accept();
+                Socket server = new Socket(InetAddress.getLoopbackAddress(), targetPort);
+                client.setTcpNoDelay(true);
+                server.setTcpNoDelay(true);
+                pump(client, server);
+                pump(server, client);
+            } catch (IOException e) {
+                // Closed
+            }
+        }
+    }
+
+    private void pump(Socket from, Socket to) throws IOException {
+        InputStream in = from.getInputStream();
+        OutputStream out = to.getOutputStream();
+        BlockingQueue<Chunk> chunks = new LinkedBlockingQueue<>();
+        daemon("latency-proxy-read", () -> {
+            byte[] buffer = new byte[64 * 1024];
+            try {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    chunks.add(new Chunk(System.nanoTime() + latencyNanos, Arrays.copyOf(buffer, read)));
+                }
+            } catch (IOException e) {
+                // Closed
+            }
+            chunks.add(Chunk.END);
+        }).start();
+        daemon("latency-proxy-write", () -> {
+            try {
+                for (Chunk chunk = chunks.take(); chunk != Chunk.END; chunk = chunks.take()) {
+                    long wait;
+                    while ((wait = chunk.deliverAt - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    out.write(chunk.data);
+                    out.flush();
+                }
+            } catch (IOException | InterruptedException e) {
+                // Closed
+            }
+            close(from);
+            close(to);
+        }).start();
+    }
+
+    @Override
+    public void close() {
+        close(serverSocket);
+    }
+
+    private static void close(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            // Already closed
+        }
+    }
+
+    private static Thread daemon(String name, Runnable runnable) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private record Chunk(long deliverAt, byte[] data) {
+        private static final Chunk END = new Chunk(0, new byte[0]);
+    }
+}
@@ -0,0 +1,346 @@
+package gr.dmst.edu.redis.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.dmst.edu.redis.model.Meeting;
+import gr.dmst.edu.redis.repository.MeetingRepository;
+import gr.dmst.edu.redis.service.MeetingService;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.WebApplicationType;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static gr.dmst.edu.redis.benchmark.BenchmarkApplication.*;
+
+// Synthetic workload against the MeetingController endpoints, on the embedded Redis and H2 of
+// BenchmarkApplication. Simulated users move around the meetings and search nearby, join, chat,
+// poll the chat for new messages and leave, in the configured mix.
+//
+// The load is an open model: requests are due at a fixed rate whatever the response times, and
+// each latency is measured from the time its request was due, not from when a connection was
+// free to send it. A stall therefore shows in the latencies of every request that queued behind
+// it, instead of holding back the requests and hiding it (coordinated omission).
+//
+// mvn -Pbenchmark,load -DskipTests verify -Dload.args="users=2000 rate=1000 duration=PT60S"
+public class LoadGenerator {
+    enum Operation { NEARBY, JOIN, CHAT, POLL, LEAVE }
+
+    // A user steps up to this far (in degrees, about 20m) before each request
+    private static final double STEP = 0.0002;
+
+    private final Options options;
+    private final BenchmarkApplication application;
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String baseUrl;
+    private final List<SimulatedUser> users = new ArrayList<>();
+    private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+    // How late requests were sent after they were due, because every connection was busy
+    private final Histogram sendLag = new ConcurrentHistogram(3);
+
+    LoadGenerator(Options options, BenchmarkApplication application) {
+        this.options = options;
+        this.application = application;
+        this.baseUrl = "http://127.0.0.1:" + application.port() + "/api";
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new Stats());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        try (BenchmarkApplication application = BenchmarkApplication.start(WebApplicationType.SERVLET, Duration.ZERO)) {
+            LoadGenerator generator = new LoadGenerator(options, application);
+            generator.seed();
+            generator.run();
+            generator.report(System.out);
+        }
+    }
+
+    // Active meetings spread around the center, each inviting meetingSize consecutive users
+    // (wrapping around), so every user is invited to some meetings
+    void seed() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int u = 0; u < options.users(); u++) {
+            users.add(new SimulatedUser("load" + u + "@bench.gr",
+                    CENTER_LAT + (random.nextDouble() - 0.5) * SPREAD,
+                    CENTER_LON + (random.nextDouble() - 0.5) * SPREAD));
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Meeting> meetings = new ArrayList<>();
+        for (int m = 0; m < options.meetings(); m++) {
+            String meetingId = "load-" + m;
+            Set<String> participants = new LinkedHashSet<>();
+            for (int k = 0; k < options.meetingSize(); k++) {
+                SimulatedUser user = users.get((m * options.meetingSize() + k) % users.size());
+                participants.add(user.email);
+                user.invited.add(meetingId);
+            }
+            meetings.add(new Meeting(meetingId, "Meeting " + m, "Load meeting", now.minusHours(1), now.plusDays(1),
+                    CENTER_LAT + (random.nextDouble() - 0.5) * SPREAD,
+                    CENTER_LON + (random.nextDouble() - 0.5) * SPREAD, participants));
+        }
+        application.getBean(MeetingRepository.class).saveAll(meetings);
+        MeetingService meetingService = application.getBean(MeetingService.class);
+        meetings.forEach(meetingService::activateMeeting);
+    }
+
+    void run() throws InterruptedException {
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / options.rate());
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        long measureFrom = start + options.warmup().toNanos();
+        long end = measureFrom + options.duration().toNanos();
+        AtomicLong sequence = new AtomicLong();
+
+        ExecutorService connections = Executors.newFixedThreadPool(options.concurrency());
+        for (int c = 0; c < options.concurrency(); c++) {
+            connections.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (true) {
+                    long due = start + sequence.getAndIncrement() * interval;
+                    if (due >= end) {
+                        return;
+                    }
+                    for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    boolean measured = due >= measureFrom;
+                    if (measured) {
+                        sendLag.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - due));
+                    }
+                    execute(users.get(random.nextInt(users.size())), options.pick(random), due, measured);
+                }
+            });
+        }
+        connections.shutdown();
+        connections.awaitTermination(options.warmup().plus(options.duration()).toSeconds() + 60, TimeUnit.SECONDS);
+    }
+
+    // Sends the request of one operation for the user. Chatting, polling and leaving need a joined
+    // meeting, a user without one joins a meeting instead.
+    private void execute(SimulatedUser user, Operation operation, long due, boolean measured) {
+        // Requests of the same user are sent one at a time, like one client would
+        synchronized (user) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            user.move(random);
+            if (operation != Operation.NEARBY && operation != Operation.JOIN && user.joined.isEmpty()) {
+                operation = Operation.JOIN;
+            }
+            boolean ok;
+            try {
+                ok = switch (operation) {
+                    case NEARBY -> send(get("/meetings/nearby?email=" + user.email + "&x=" + user.lat + "&y=" + user.lon)) != null;
+                    case JOIN -> join(user, random);
+                    case CHAT -> send(HttpRequest.newBuilder(uri("/meetings/" + user.someJoined(random) + "/chat/post"))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString("{\"email\":\"" + user.email
+                                    + "\",\"message\":\"load message\"}"))) != null;
+                    case POLL -> poll(user, random);
+                    case LEAVE -> leave(user, random);
+                };
+            } catch (IOException e) {
+                ok = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (measured) {
+                stats.get(operation).record(due, ok);
+            }
+        }
+    }
+
+    private boolean join(SimulatedUser user, ThreadLocalRandom random) throws IOException, InterruptedException {
+        String meetingId = user.invited.get(random.nextInt(user.invited.size()));
+        if (send(post("/meetings/" + meetingId + "/join?email=" + user.email)) == null) {
+            return false;
+        }
+        user.joined.add(meetingId);
+        return true;
+    }
+
+    // Reads the messages posted since the user's last poll of the meeting
+    private boolean poll(SimulatedUser user, ThreadLocalRandom random) throws IOException, InterruptedException {
+        String meetingId = user.someJoined(random);
+        String cursor = user.cursors.get(meetingId);
+        String body = send(get("/meetings/" + meetingId + "/chat/page?limit=50" + (cursor == null ? "" : "&after=" + cursor)));
+        if (body == null) {
+            return false;
+        }
+        JsonNode next = objectMapper.readTree(body).get("nextCursor");
+        if (next != null && !next.isNull()) {
+            user.cursors.put(meetingId, next.asText());
+        }
+        return true;
+    }
+
+    private boolean leave(SimulatedUser user, ThreadLocalRandom random) throws IOException, InterruptedException {
+        String meetingId = user.someJoined(random);
+        if (send(post("/meetings/" + meetingId + "/leave?email=" + user.email)) == null) {
+            return false;
+        }
+        user.joined.remove(meetingId);
+        user.cursors.remove(meetingId);
+        return true;
+    }
+
+    private HttpRequest.Builder get(String path) {
+        return HttpRequest.newBuilder(uri(path)).GET();
+    }
+
+    private HttpRequest.Builder post(String path) {
+        return HttpRequest.newBuilder(uri(path)).POST(HttpRequest.BodyPublishers.noBody());
+    }
+
+    private URI uri(String path) {
+        return URI.create(baseUrl + path);
+    }
+
+    // The response body, null when the request failed
+    private String send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        return response.statusCode() == 200 ? response.body() : null;
+    }
+
+    void report(PrintStream out) {
+        double seconds = options.duration().toNanos() / 1e9;
+        out.printf("%n%d users, %d meetings of %d, %.0f requests/s due for %s after a %s warmup, %d connections%n",
+                options.users(), options.meetings(), options.meetingSize(), options.rate(),
+                options.duration(), options.warmup(), options.concurrency());
+        out.printf("%-8s %10s %8s %10s %10s %10s %10s %10s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        Histogram total = new Histogram(3);
+        long errors = 0;
+        for (Map.Entry<Operation, Stats> entry : stats.entrySet()) {
+            Stats operation = entry.getValue();
+            total.add(operation.latencies);
+            errors += operation.errors.sum();
+            printRow(out, entry.getKey().name().toLowerCase(), operation.latencies, operation.errors.sum(), seconds);
+        }
+        printRow(out, "total", total, errors, seconds);
+        out.printf("Requests sent late for want of a free connection: p99 %.2f ms, max %.2f ms%n",
+                sendLag.getValueAtPercentile(99) / 1000.0, sendLag.getMaxValue() / 1000.0);
+    }
+
+    private static void printRow(PrintStream out, String name, Histogram latencies, long errors, double seconds) {
+        out.printf("%-8s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n", name, latencies.getTotalCount(), errors,
+                latencies.getTotalCount() / seconds,
+                latencies.getValueAtPercentile(50) / 1000.0, latencies.getValueAtPercentile(99) / 1000.0,
+                latencies.getValueAtPercentile(99.9) / 1000.0, latencies.getMaxValue() / 1000.0);
+    }
+
+    // Latencies in micros from the time each request was due
+    private static final class Stats {
+        final Histogram latencies = new ConcurrentHistogram(3);
+        final LongAdder errors = new LongAdder();
+
+        void record(long due, boolean ok) {
+            latencies.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - due));
+            if (!ok) {
+                errors.increment();
+            }
+        }
+    }
+
+    private static final class SimulatedUser {
+        final String email;
+        final List<String> invited = new ArrayList<>();
+        final Set<String> joined = new LinkedHashSet<>();
+        // Cursor of the last chat message read per joined meeting
+        final Map<String, String> cursors = new HashMap<>();
+        double lat;
+        double lon;
+
+        SimulatedUser(String email, double lat, double lon) {
+            this.email = email;
+            this.lat = lat;
+            this.lon = lon;
+        }
+
+        // A random step, kept within the area of the meetings
+        void move(ThreadLocalRandom random) {
+            lat = clamp(lat + (random.nextDouble() - 0.5) * 2 * STEP, CENTER_LAT);
+            lon = clamp(lon + (random.nextDouble() - 0.5) * 2 * STEP, CENTER_LON);
+        }
+
+        String someJoined(ThreadLocalRandom random) {
+            int skip = random.nextInt(joined.size());
+            Iterator<String> meetings = joined.iterator();
+            for (int i = 0; i < skip; i++) {
+                meetings.next();
+            }
+            return meetings.next();
+        }
+
+        private static double clamp(double value, double center) {
+            return Math.max(center - SPREAD / 2, Math.min(center + SPREAD / 2, value));
+        }
+    }
+
+    // name=value arguments, e.g. users=2000 rate=1000 mix=nearby:50,join:10,chat:10,poll:25,leave:5
+    record Options(int users, int meetings, int meetingSize, double rate, Duration warmup, Duration duration,
+                   int concurrency, Map<Operation, Integer> mix) {
+        static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>(Map.of(
+                    "users", "1000",
+                    "meetings", "100",
+                    "meeting-size", "50",
+                    "rate", "500",
+                    "warmup", "PT10S",
+                    "duration", "PT30S",
+                    "concurrency", "64",
+                    "mix", "nearby:30,join:10,chat:20,poll:30,leave:10"));
+            for (String arg : args) {
+                int equals = arg.indexOf('=');
+                if (equals < 0 || !values.containsKey(arg.substring(0, equals))) {
+                    throw new IllegalArgumentException("Unknown argument " + arg + ", expected one of " + values.keySet());
+                }
+                values.put(arg.substring(0, equals), arg.substring(equals + 1));
+            }
+            Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+            for (String weight : values.get("mix").split(",")) {
+                String[] parts = weight.split(":");
+                mix.put(Operation.valueOf(parts[0].trim().toUpperCase()), Integer.parseInt(parts[1].trim()));
+            }
+            Options options = new Options(Integer.parseInt(values.get("users")), Integer.parseInt(values.get("meetings")),
+                    Integer.parseInt(values.get("meeting-size")), Double.parseDouble(values.get("rate")),
+                    Duration.parse(values.get("warmup")), Duration.parse(values.get("duration")),
+                    Integer.parseInt(values.get("concurrency")), mix);
+            if ((long) options.meetings() * options.meetingSize() < options.users()) {
+                throw new IllegalArgumentException("meetings * meeting-size must be at least users, for every user to be invited somewhere");
+            }
+            if (options.meetingSize() > options.users()) {
+                throw new IllegalArgumentException("meeting-size cannot be larger than users");
+            }
+            return options;
+        }
+
+        Operation pick(ThreadLocalRandom random) {
+            int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+            int value = random.nextInt(total);
+            for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+                value -= entry.getValue();
+                if (value < 0) {
+                    return entry.getKey();
+                }
+            }
+            throw new IllegalStateException();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package gr.dmst.edu.redis.benchmark;
+
+import gr.dmst.edu.redis.model.ChatMessage;
+import gr.dmst.edu.redis.service.MeetingService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static gr.dmst.edu.redis.benchmark.BenchmarkApplication.*;
+
+// Hot paths of MeetingService against the full application on an embedded Redis and H2,
+// seeded by BenchmarkApplication.seed. Each benchmark and parameter set runs
+// in its own fork, so the state one benchmark leaves behind never reaches another.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class MeetingServiceBenchmark {
+    @Param({"100", "1000"})
+    public int activeMeetings;
+
+    @Param({"10", "100"})
+    public int participantsPerMeeting;
+
+    @Param({"10", "100"})
+    public int chatHistory;
+
+    private BenchmarkApplication application;
+    private MeetingService meetingService;
+    private List<String> meetingIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        application = BenchmarkApplication.start();
+        meetingService = application.getBean(MeetingService.class);
+        meetingIds = application.seed(activeMeetings, participantsPerMeeting, chatHistory);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        application.close();
+    }
+
+    @Benchmark
+    public List<String> findNearbyMeetings() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return meetingService.findNearbyMeetings(randomUser(),
+                CENTER_LAT + (random.nextDouble() - 0.5) * SPREAD,
+                CENTER_LON + (random.nextDouble() - 0.5) * SPREAD);
+    }
+
+    // Leave first so the join is a real one and the state is the same after every call
+    @Benchmark
+    public boolean leaveAndJoinMeeting() {
+        String email = randomUser();
+        String meetingId = randomMeeting();
+        return meetingService.leaveMeeting(email, meetingId) & meetingService.joinMeeting(email, meetingId);
+    }
+
+    @Benchmark
+    public boolean postMessageToMeeting() {
+        return meetingService.postMessageToMeeting(randomMeeting(), randomUser(), "benchmark message");
+    }
+
+    @Benchmark
+    public List<ChatMessage> getMeetingChatMessages() {
+        return meetingService.getMeetingChatMessages(randomMeeting());
+    }
+
+    @Benchmark
+    public List<ChatMessage> getUserMessages() {
+        return meetingService.getUserMessages(randomUser());
+    }
+
+    // Steady state reconciliation: every meeting is already active
+    @Benchmark
+    public void updateActiveMeetings() {
+        meetingService.updateActiveMeetings(() -> true);
+    }
+
+    private String randomMeeting() {
+        return meetingIds.get(ThreadLocalRandom.current().nextInt(meetingIds.size()));
+    }
+
+    private String randomUser() {
+        return user(ThreadLocalRandom.current().nextInt(participantsPerMeeting));
+    }
+}
@@ -0,0 +1,104 @@
+package gr.dmst.edu.redis.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static gr.dmst.edu.redis.benchmark.BenchmarkApplication.*;
+
+// Load comparison of the platform thread mode (the Tomcat pool of 200 threads) and the virtual
+// thread mode (the virtual profile) over HTTP. More clients than Tomcat threads send requests
+// back to back; with a Redis round trip latency the platform threads spend their time blocked,
+// which caps the throughput at threads / request time. The virtual mode needs a Java 21 runtime.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Threads(400)
+@Fork(1)
+public class ThreadModeBenchmark {
+    private static final int ACTIVE_MEETINGS = 100;
+    private static final int PARTICIPANTS_PER_MEETING = 15;
+    private static final int CHAT_HISTORY = 10;
+
+    @Param({"platform", "virtual"})
+    public String threadMode;
+
+    @Param({"0", "20"})
+    public int redisLatencyMillis;
+
+    private BenchmarkApplication application;
+    private HttpClient client;
+    private String baseUrl;
+    private List<String> meetingIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        boolean virtual = threadMode.equals("virtual");
+        if (virtual && Runtime.version().feature() < 21) {
+            throw new IllegalStateException("The virtual thread mode needs Java 21, running on " + Runtime.version());
+        }
+        String[] args = virtual ? new String[]{"--spring.profiles.active=virtual"} : new String[0];
+        application = BenchmarkApplication.start(WebApplicationType.SERVLET,
+                Duration.ofMillis(redisLatencyMillis), args);
+        meetingIds = application.seed(ACTIVE_MEETINGS, PARTICIPANTS_PER_MEETING, CHAT_HISTORY);
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        baseUrl = "http://127.0.0.1:" + application.port() + "/api";
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        application.close();
+    }
+
+    @Benchmark
+    public String getJoinedParticipants() throws Exception {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/meetings/" + randomMeeting() + "/joined")).GET());
+    }
+
+    @Benchmark
+    public String findNearbyMeetings() throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double x = CENTER_LAT + (random.nextDouble() - 0.5) * SPREAD;
+        double y = CENTER_LON + (random.nextDouble() - 0.5) * SPREAD;
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/meetings/nearby?email=" + randomUser()
+                + "&x=" + x + "&y=" + y)).GET());
+    }
+
+    // Leave first so the join is a real one and the state is the same after every call.
+    // The leave is rejected when another client left the same meeting in between.
+    @Benchmark
+    public String leaveAndJoinMeeting() throws Exception {
+        String query = "?email=" + randomUser();
+        String meeting = baseUrl + "/meetings/" + randomMeeting();
+        client.send(HttpRequest.newBuilder(URI.create(meeting + "/leave" + query))
+                .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.discarding());
+        return send(HttpRequest.newBuilder(URI.create(meeting + "/join" + query)).POST(HttpRequest.BodyPublishers.noBody()));
+    }
+
+    private String send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(response.statusCode() + " " + response.body());
+        }
+        return response.body();
+    }
+
+    private String randomMeeting() {
+        return meetingIds.get(ThreadLocalRandom.current().nextInt(meetingIds.size()));
+    }
+
+    private static String randomUser() {
+        return user(ThreadLocalRandom.current().nextInt(PARTICIPANTS_PER_MEETING));
+    }
+}
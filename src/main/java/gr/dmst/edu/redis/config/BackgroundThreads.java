@@ -0,0 +1,49 @@
+package gr.dmst.edu.redis.config;
+
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Threads for the background work of the services (log writer, event senders, pub/sub listeners).
+// They are virtual threads when spring.threads.virtual.enabled is set and the JVM is Java 21+,
+// the same switch Spring Boot uses for Tomcat and the @Scheduled tasks, and daemon platform
+// threads otherwise.
+@Component
+public class BackgroundThreads {
+    private final boolean virtual;
+
+    public BackgroundThreads(Environment environment) {
+        this.virtual = Threading.VIRTUAL.isActive(environment);
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    // Thread names are the prefix followed by a counter
+    public ThreadFactory factory(String prefix) {
+        if (virtual) {
+            return new VirtualThreadTaskExecutor(prefix).getVirtualThreadFactory();
+        }
+        AtomicInteger threads = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // A virtual thread per task, or a fixed pool of platformThreads that the caller has to shut down
+    public Executor executor(String prefix, int platformThreads) {
+        if (virtual) {
+            return new VirtualThreadTaskExecutor(prefix);
+        }
+        return Executors.newFixedThreadPool(platformThreads, factory(prefix));
+    }
+}
@@ -0,0 +1,14 @@
+package gr.dmst.edu.redis.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+// Settings of the bulk ingestion endpoints (meeting.bulk.*)
+@Component
+@ConfigurationProperties(prefix = "meeting.bulk")
+@Data
+public class BulkProperties {
+    // Items written per transaction, JDBC batch and Redis pipeline
+    private int batchSize = 1000;
+}
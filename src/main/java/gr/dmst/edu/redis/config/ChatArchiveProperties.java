@@ -0,0 +1,23 @@
+package gr.dmst.edu.redis.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Settings of the archival of ended meeting chats to Postgres (meeting.chat.archive.*).
+// The interval is also read by @Scheduled, so it is written as an ISO-8601 duration.
+@Component
+@ConfigurationProperties(prefix = "meeting.chat.archive")
+@Data
+public class ChatArchiveProperties {
+    // How often the chats waiting for archival are picked up
+    private Duration interval = Duration.ofSeconds(5);
+    // Messages read from Redis and inserted per JDBC batch (and transaction)
+    private int batchSize = 1000;
+    // Chats claimed per run
+    private int chatsPerRun = 100;
+    // How long a chat is reserved for the instance archiving it, longer than archiving a chat takes
+    private Duration lockTimeout = Duration.ofMinutes(5);
+}
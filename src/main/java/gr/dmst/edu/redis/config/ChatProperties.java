@@ -0,0 +1,32 @@
+package gr.dmst.edu.redis.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Chat storage settings (meeting.chat.*)
+@Component
+@ConfigurationProperties(prefix = "meeting.chat")
+@Data
+public class ChatProperties {
+    // Redis structure holding each meeting chat
+    private Store store = Store.LIST;
+    // Maximum number of messages kept per chat, applied on append, approximately for streams
+    private long maxLength = 10_000;
+    // Messages older than this are trimmed from the active streams, unset keeps them until the meeting ends
+    private Duration maxAge;
+    // Encoding of the messages written from now on, both are always readable
+    private Codec codec = Codec.JSON;
+
+    public enum Store {
+        LIST,  // list of encoded messages, cursors are list positions
+        STREAM // Redis stream, cursors are the stream entry ids
+    }
+
+    public enum Codec {
+        JSON,  // Jackson JSON of the ChatMessage, readable by every version
+        BINARY // versioned length-prefixed fields, see ChatCodec
+    }
+}
@@ -0,0 +1,20 @@
+package gr.dmst.edu.redis.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Settings of the real-time meeting event subscriptions (meeting.events.*)
+@Component
+@ConfigurationProperties(prefix = "meeting.events")
+@Data
+public class EventProperties {
+    // Events buffered per subscriber, a subscriber falling further behind is disconnected
+    private int bufferSize = 256;
+    // Lifetime of a subscription before the client has to reconnect
+    private Duration subscriptionTimeout = Duration.ofMinutes(30);
+    // Threads writing events to the subscribers, with virtual threads each write gets its own
+    private int senderThreads = 4;
+}
@@ -0,0 +1,35 @@
+package gr.dmst.edu.redis.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Settings of the asynchronous activity log writer (meeting.log-writer.*)
+@Component
+@ConfigurationProperties(prefix = "meeting.log-writer")
+@Data
+public class LogWriterProperties {
+    // Maximum number of logs waiting to be written
+    private int capacity = 10_000;
+    // Maximum number of logs per JDBC batch insert
+    private int batchSize = 500;
+    // Maximum time a log waits before its batch is written
+    private Duration flushInterval = Duration.ofMillis(200);
+    // What to do when the buffer is full
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+    // How long BLOCK waits for space before writing the log on the caller thread
+    private Duration offerTimeout = Duration.ofSeconds(1);
+    // Attempts to write a batch while the database cannot be reached, before its logs are dropped
+    private int retryAttempts = 5;
+    // Wait before the first retry, doubled after each one up to maxRetryBackoff
+    private Duration retryBackoff = Duration.ofMillis(100);
+    private Duration maxRetryBackoff = Duration.ofSeconds(2);
+
+    public enum OverflowPolicy {
+        BLOCK,       // wait for space, then fall back to a synchronous write
+        CALLER_RUNS, // write the log synchronously on the caller thread
+        DROP         // discard the log and count it
+    }
+}
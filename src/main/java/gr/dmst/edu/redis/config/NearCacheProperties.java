@@ -0,0 +1,18 @@
+package gr.dmst.edu.redis.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Settings of the local active meeting cache (meeting.cache.*)
+@Component
+@ConfigurationProperties(prefix = "meeting.cache")
+@Data
+public class NearCacheProperties {
+    // Meetings kept per instance, the least used ones are evicted beyond it
+    private long maxSize = 10000;
+    // Upper bound on the staleness of an entry if an invalidation message is lost
+    private Duration expireAfterWrite = Duration.ofMinutes(10);
+}
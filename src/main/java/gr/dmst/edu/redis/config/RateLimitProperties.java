@@ -0,0 +1,42 @@
+package gr.dmst.edu.redis.config;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+// Token bucket limits of chat posting and joins (meeting.rate-limit.*). Checked on startup, as the
+// limiter lets requests through when Redis rejects a bucket and would hide a bad value.
+@Component
+@ConfigurationProperties(prefix = "meeting.rate-limit")
+@Validated
+@Data
+public class RateLimitProperties {
+    private boolean enabled = true;
+    // Messages a user posts, to any meeting
+    @Valid
+    private Bucket chatPerUser = new Bucket(10, 2);
+    // Messages posted to a meeting by all its participants
+    @Valid
+    private Bucket chatPerMeeting = new Bucket(200, 50);
+    // Joins of a user, to any meeting
+    @Valid
+    private Bucket joinPerUser = new Bucket(20, 5);
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Bucket {
+        // Requests allowed in a burst
+        @Min(1)
+        private int capacity;
+        // Requests allowed per second once the burst is spent
+        @Positive
+        private double refillPerSecond;
+    }
+}
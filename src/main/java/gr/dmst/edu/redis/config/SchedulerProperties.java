@@ -0,0 +1,29 @@
+package gr.dmst.edu.redis.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Settings of the meeting activation scheduler (meeting.scheduler.*). The intervals are
+// also read by @Scheduled, so they are written as ISO-8601 durations (PT1S).
+@Component
+@ConfigurationProperties(prefix = "meeting.scheduler")
+@Data
+public class SchedulerProperties {
+    // How often the start / end schedules are checked for due meetings
+    private Duration pollInterval = Duration.ofSeconds(1);
+    // How often upcoming meetings are loaded from Postgres into the schedule
+    private Duration refillInterval = Duration.ofMinutes(5);
+    // How far ahead each refill looks
+    private Duration lookahead = Duration.ofHours(1);
+    // How often the full Postgres / Redis reconciliation runs as a safety net
+    private Duration reconcileInterval = Duration.ofHours(1);
+    // Maximum number of meetings taken from a schedule per round trip
+    private int batchSize = 500;
+    // Only the instance holding the scheduler lease runs the jobs. Another one takes over at
+    // most lease-ttl after the holder stopped renewing it.
+    private Duration leaseTtl = Duration.ofSeconds(15);
+    private Duration leaseRenewInterval = Duration.ofSeconds(5);
+}
@@ -1,22 +1,42 @@
 package gr.dmst.edu.redis.controller;
 
-import gr.dmst.edu.redis.model.ActiveMeeting;
+import gr.dmst.edu.redis.model.AttendanceReport;
+import gr.dmst.edu.redis.model.BulkResult;
 import gr.dmst.edu.redis.model.ChatMessage;
+import gr.dmst.edu.redis.model.LocationUpdate;
 import gr.dmst.edu.redis.model.Meeting;
 import gr.dmst.edu.redis.model.User;
-import gr.dmst.edu.redis.repository.ActiveMeetingRepository;
+import gr.dmst.edu.redis.model.UserAttendance;
+import gr.dmst.edu.redis.model.UserPage;
 import gr.dmst.edu.redis.repository.MeetingRepository;
 import gr.dmst.edu.redis.repository.UserRepository;
+import gr.dmst.edu.redis.service.ActiveMeetingIndex;
+import gr.dmst.edu.redis.service.AttendanceRollup;
+import gr.dmst.edu.redis.service.BulkIngestion;
+import gr.dmst.edu.redis.service.ChatArchiver;
+import gr.dmst.edu.redis.service.MeetingEventHub;
+import gr.dmst.edu.redis.service.MeetingListing;
+import gr.dmst.edu.redis.service.MeetingSchedule;
 import gr.dmst.edu.redis.service.MeetingService;
+import gr.dmst.edu.redis.service.ProximityTracker;
+import gr.dmst.edu.redis.service.RateLimiter;
+import gr.dmst.edu.redis.service.RedisIntrospection;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.domain.Limit;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.time.ZoneOffset;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
 @RestController
 @RequestMapping("/api")
@@ -25,14 +45,36 @@ public class MeetingController {
     private final MeetingService meetingService;
     private final UserRepository userRepository;
     private final MeetingRepository meetingRepository;
-    private final ActiveMeetingRepository activeMeetingRepository;
-    private final RedisTemplate<String, String> redisTemplate;
+    private final ActiveMeetingIndex activeMeetingIndex;
+    private final MeetingSchedule meetingSchedule;
+    private final MeetingEventHub meetingEventHub;
+    private final ChatArchiver chatArchiver;
+    private final AttendanceRollup attendanceRollup;
+    private final MeetingListing meetingListing;
+    private final RedisIntrospection redisIntrospection;
+    private final BulkIngestion bulkIngestion;
+    private final ProximityTracker proximityTracker;
+    private final RateLimiter rateLimiter;
+
+    private static final int MAX_CHAT_PAGE_SIZE = 500;
+    private static final int MAX_LISTING_PAGE_SIZE = 500;
+    private static final int MAX_SCAN_COUNT = 1000;
+    private static final int MAX_KEY_SAMPLES = 10_000;
+    private static final int MAX_LOCATION_UPDATES = 10_000;
+
     // User and meeting management
     @PostMapping("/users")
     public User createUser(@RequestBody User user) {
         return userRepository.save(user);
     }
 
+    // Creates or replaces many users, sent as a JSON array or one user per line (ndjson).
+    // Returns the result of each user in input order.
+    @PostMapping(value = "/users/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public BulkResult createUsers(InputStream body) throws IOException {
+        return bulkIngestion.users(body);
+    }
+
     @DeleteMapping("/users/{email}")
     public ResponseEntity<?> deleteUser(@PathVariable String email) {
         if (!userRepository.existsById(email)) {
@@ -41,16 +83,78 @@ public class MeetingController {
         userRepository.deleteById(email);
         return ResponseEntity.ok().build();
     }
+    // A page of users in e-mail order, following the cursor of a previous page
+    @GetMapping("/users/page")
+    public ResponseEntity<?> getUsersPage(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") int limit) {
+        if (limit < 1 || limit > MAX_LISTING_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("limit must be between 1 and " + MAX_LISTING_PAGE_SIZE);
+        }
+        // One more than asked tells whether there is a next page
+        List<User> users = after == null
+                ? userRepository.findAllByOrderByEmail(Limit.of(limit + 1))
+                : userRepository.findByEmailGreaterThanOrderByEmail(after, Limit.of(limit + 1));
+        if (users.size() <= limit) {
+            return ResponseEntity.ok(new UserPage(users, null));
+        }
+        users = users.subList(0, limit);
+        return ResponseEntity.ok(new UserPage(users, users.get(limit - 1).getEmail()));
+    }
+
     // Bonus function to create a meeting in postgres
     @PostMapping("/meetings")
     public Meeting createMeeting(@RequestBody Meeting meeting) {
-        return meetingRepository.save(meeting);
+        Meeting saved = meetingRepository.save(meeting);
+        // Activated and ended by MeetingScheduler at its start and end times
+        meetingSchedule.schedule(saved);
+        return saved;
     }
 
-    // Bonus function to get all meetings from postgres
+    // Bonus function to create or replace many meetings in postgres and schedule them, sent as a
+    // JSON array or one meeting per line (ndjson). Returns the result of each meeting in input order.
+    @PostMapping(value = "/meetings/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public BulkResult createMeetings(InputStream body) throws IOException {
+        return bulkIngestion.meetings(body);
+    }
+
+    // Bonus function to get all meetings from postgres, optionally those starting in [from, to)
+    // or with an invited participant. Streamed from a database cursor as a JSON array, or one
+    // meeting per line with Accept: application/x-ndjson
     @GetMapping("/meetings")
-    public List<Meeting> getAllMeetings() {
-        return meetingRepository.findAll();
+    public ResponseEntity<StreamingResponseBody> getAllMeetings(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String participant) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON)
+                .body(out -> meetingListing.export(from, to, participant, false, out));
+    }
+
+    @GetMapping(value = "/meetings", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportMeetings(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String participant) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON)
+                .body(out -> meetingListing.export(from, to, participant, true, out));
+    }
+
+    // A page of meetings in start time order, with the same filters, following the cursor of a previous page
+    @GetMapping("/meetings/page")
+    public ResponseEntity<?> getMeetingsPage(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String participant,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") int limit) {
+        if (limit < 1 || limit > MAX_LISTING_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("limit must be between 1 and " + MAX_LISTING_PAGE_SIZE);
+        }
+        try {
+            return ResponseEntity.ok(meetingListing.page(from, to, participant, after, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
     // Bonus function to delete a meeting from postgres
     @DeleteMapping("/meetings/{id}")
@@ -59,6 +163,7 @@ public class MeetingController {
             return ResponseEntity.notFound().build();
         }
         meetingRepository.deleteById(id);
+        meetingSchedule.unschedule(id);
         return ResponseEntity.ok().build();
     }
 
@@ -71,11 +176,38 @@ public class MeetingController {
         return meetingService.findNearbyMeetings(email, x, y);
     }
 
+    // Function 1b: Track the positions of moving users, sent as a JSON array of {"email", "x", "y"}.
+    // Returns only the users whose nearby meetings changed, with the meetings entered and left.
+    @PostMapping("/locations")
+    public ResponseEntity<?> updateLocations(@RequestBody List<LocationUpdate> updates) {
+        if (updates.size() > MAX_LOCATION_UPDATES) {
+            return ResponseEntity.badRequest().body("At most " + MAX_LOCATION_UPDATES + " updates per request");
+        }
+        if (updates.stream().anyMatch(update -> update == null || update.getEmail() == null)) {
+            return ResponseEntity.badRequest().body("email is required");
+        }
+        try {
+            return ResponseEntity.ok(proximityTracker.update(updates));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // The active meetings near the user's last tracked position
+    @GetMapping("/users/{email}/nearby")
+    public Set<String> getTrackedNearbyMeetings(@PathVariable String email) {
+        return proximityTracker.nearby(email);
+    }
+
     // Function 2: Join a meeting
     @PostMapping("/meetings/{meetingId}/join")
     public ResponseEntity<?> joinMeeting(
             @PathVariable String meetingId,
             @RequestParam String email) {
+        Duration retryAfter = rateLimiter.acquireJoin(email);
+        if (!retryAfter.isZero()) {
+            return tooManyRequests(retryAfter);
+        }
         boolean success = meetingService.joinMeeting(email, meetingId);
         if (success) {
             return ResponseEntity.ok().build();
@@ -83,6 +215,13 @@ public class MeetingController {
         return ResponseEntity.badRequest().body("Unable to join meeting");
     }
 
+    // Function 2b: Many joins at once, sent as a JSON array or one {"meetingId", "email"} per line (ndjson).
+    // Returns the result of each join in input order.
+    @PostMapping(value = "/meetings/joins/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public BulkResult joinMeetings(InputStream body) throws IOException {
+        return bulkIngestion.joins(body);
+    }
+
     // Function 3: Leave a meeting
     @PostMapping("/meetings/{meetingId}/leave")
     public ResponseEntity<?> leaveMeeting(
@@ -117,6 +256,12 @@ public class MeetingController {
         return ResponseEntity.badRequest().body("Unable to end meeting");
     }
 
+    // Function 6b: End many meetings at once, returns the ids of the meetings that were active and are now ended
+    @PostMapping("/meetings/end")
+    public List<String> endMeetings(@RequestBody List<String> meetingIds) {
+        return meetingService.endMeetings(meetingIds);
+    }
+
     // Function 7: Post message
     @PostMapping("/meetings/{meetingId}/chat/post")
     public ResponseEntity<?> postMessageToMeeting(
@@ -127,11 +272,16 @@ public class MeetingController {
         String message = payload.get("message");
 
         // Check if user is joined to this specific meeting
-        List<String> joinedUsers = meetingService.getJoinedParticipants(meetingId);
-        if (!joinedUsers.contains(email)) {
+        if (!meetingService.isJoined(email, meetingId)) {
             return ResponseEntity.status(403).body("User must join the meeting first");
         }
 
+        // Checked after the membership, so outsiders cannot use up the meeting's limit
+        Duration retryAfter = rateLimiter.acquireChat(email, meetingId);
+        if (!retryAfter.isZero()) {
+            return tooManyRequests(retryAfter);
+        }
+
         // Store message directly to the specified meeting
         boolean success = meetingService.postMessageToMeeting(meetingId, email, message);
         if (success) {
@@ -146,6 +296,69 @@ public class MeetingController {
         return meetingService.getMeetingChatMessages(meetingId);
     }
 
+    // Function 8b: Get a page of meeting messages, see MeetingService.getMeetingChatPage
+    @GetMapping("/meetings/{meetingId}/chat/page")
+    public ResponseEntity<?> getMeetingMessagesPage(
+            @PathVariable String meetingId,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) String before,
+            @RequestParam(required = false) Long since,
+            @RequestParam(defaultValue = "50") int limit) {
+        if (limit < 1 || limit > MAX_CHAT_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("limit must be between 1 and " + MAX_CHAT_PAGE_SIZE);
+        }
+        try {
+            return ResponseEntity.ok(meetingService.getMeetingChatPage(meetingId, after, before, since, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Chat of the meeting's past activations, moved to Postgres when they ended
+    @GetMapping("/meetings/{meetingId}/chat/archive")
+    public ResponseEntity<?> getArchivedMessages(
+            @PathVariable String meetingId,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") int limit) {
+        if (limit < 1 || limit > MAX_CHAT_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("limit must be between 1 and " + MAX_CHAT_PAGE_SIZE);
+        }
+        try {
+            return ResponseEntity.ok(chatArchiver.page(meetingId, after, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Attendance rollup of the meeting: peak concurrent attendance, time spent per attendee
+    // and how many of the invited users joined
+    @GetMapping("/meetings/{meetingId}/attendance")
+    public ResponseEntity<AttendanceReport> getMeetingAttendance(@PathVariable String meetingId) {
+        return ResponseEntity.of(attendanceRollup.report(meetingId));
+    }
+
+    // Function 8c: Subscribe to the meeting's chat messages and join / leave / timeout events
+    // as server-sent events, instead of polling the chat and joined participants
+    @GetMapping(value = "/meetings/{meetingId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> subscribeToMeeting(@PathVariable String meetingId) {
+        if (!meetingService.isActive(meetingId)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(meetingEventHub.subscribe(meetingId));
+    }
+
+    // The user's scheduled and active meetings, in start order
+    @GetMapping("/users/{email}/meetings")
+    public List<Meeting> getUserMeetings(@PathVariable String email) {
+        return meetingRepository.findUpcomingAndActiveFor(email, LocalDateTime.now());
+    }
+
+    // The user's time in each meeting they joined, most recent first
+    @GetMapping("/users/{email}/attendance")
+    public List<UserAttendance> getUserAttendance(@PathVariable String email) {
+        return attendanceRollup.forUser(email);
+    }
+
     // Function 9: Get user messages
     @GetMapping("/users/{email}/messages")
     public List<ChatMessage> getUserMessages(@PathVariable String email) {
@@ -162,48 +375,59 @@ public class MeetingController {
     //Bonus function to activate if bored waiting a minute a meeting
     @PostMapping("/meetings/{meetingId}/activate")
     public ResponseEntity<?> activateMeeting(@PathVariable String meetingId) {
-        Optional<Meeting> optionalMeeting = meetingRepository.findById(meetingId);
+        Optional<Meeting> optionalMeeting = meetingRepository.findWithParticipantsByMeetingId(meetingId);
         if (optionalMeeting.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
 
-        Meeting meeting = optionalMeeting.get();
-        ActiveMeeting activeMeeting = new ActiveMeeting();
-        activeMeeting.setMeetingId(meeting.getMeetingId());
-        activeMeeting.setTitle(meeting.getTitle());
-        activeMeeting.setDescription(meeting.getDescription());
-        activeMeeting.setStartTime(meeting.getStartTime().toInstant(ZoneOffset.UTC).toEpochMilli());
-        activeMeeting.setEndTime(meeting.getEndTime().toInstant(ZoneOffset.UTC).toEpochMilli());
-        activeMeeting.setLatitude(meeting.getLatitude());
-        activeMeeting.setLongitude(meeting.getLongitude());
-
-        Set<String> participants = Arrays.stream(meeting.getParticipants().split(","))
-                .map(String::trim)
-                .collect(Collectors.toSet());
-        activeMeeting.setParticipants(participants);
-
-        activeMeetingRepository.save(activeMeeting);
+        meetingService.activateMeeting(optionalMeeting.get());
 
         return ResponseEntity.ok("Meeting " + meetingId + " manually activated");
     }
 
-    // Bonus function to debug Redis, returns all Redis keys and active meetings
-    // Useful for troubleshooting Redis data inconsistencies or verifying active meetings
+    // Bonus function to debug Redis, returns a page of the keys matching the pattern. One SCAN step
+    // per call, continued from the cursor of the previous page, so Redis is never blocked for long
     @GetMapping("/redis/debug")
-    public Map<String, Object> debugRedis() {
-        Map<String, Object> result = new HashMap<>();
+    public ResponseEntity<?> debugRedis(
+            @RequestParam(defaultValue = "*") String match,
+            @RequestParam(defaultValue = "0") String cursor,
+            @RequestParam(defaultValue = "100") int count) {
+        if (count < 1 || count > MAX_SCAN_COUNT) {
+            return ResponseEntity.badRequest().body("count must be between 1 and " + MAX_SCAN_COUNT);
+        }
+        try {
+            return ResponseEntity.ok(redisIntrospection.scan(cursor, match, count));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
 
-        // List all keys in Redis
-        Set<String> keys = redisTemplate.keys("*");
-        result.put("allKeys", keys);
+    // Bonus function to estimate the Redis keys and memory per key prefix from random samples
+    @GetMapping("/redis/stats")
+    public ResponseEntity<?> redisStats(@RequestParam(defaultValue = "1000") int samples) {
+        if (samples < 1 || samples > MAX_KEY_SAMPLES) {
+            return ResponseEntity.badRequest().body("samples must be between 1 and " + MAX_KEY_SAMPLES);
+        }
+        return ResponseEntity.ok(redisIntrospection.sample(samples));
+    }
 
-        // Check active meetings directly
-        Iterable<ActiveMeeting> meetings = activeMeetingRepository.findAll();
-        List<String> meetingIds = StreamSupport.stream(meetings.spliterator(), false)
-                .map(ActiveMeeting::getMeetingId)
-                .collect(Collectors.toList());
-        result.put("activeMeetingIds", meetingIds);
+    // Bonus function to rebuild the geo and per-user indexes from the active meetings,
+    // e.g. after restoring Redis from a snapshot
+    @PostMapping("/redis/reindex")
+    public ResponseEntity<?> reindexRedis() {
+        activeMeetingIndex.rebuild();
+        return ResponseEntity.ok("Active meeting indexes rebuilt");
+    }
+
+    // Bonus function to rebuild the attendance rollups from the activity logs
+    @PostMapping("/attendance/rebuild")
+    public ResponseEntity<?> rebuildAttendance() {
+        return ResponseEntity.ok("Attendance rollups rebuilt for " + attendanceRollup.rebuild() + " meetings");
+    }
 
-        return result;
+    private static ResponseEntity<?> tooManyRequests(Duration retryAfter) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(RateLimiter.retryAfterSeconds(retryAfter)))
+                .body("Too many requests, retry later");
     }
-}
\ No newline at end of file
+}
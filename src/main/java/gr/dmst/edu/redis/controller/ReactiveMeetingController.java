@@ -0,0 +1,116 @@
+package gr.dmst.edu.redis.controller;
+
+import gr.dmst.edu.redis.model.ChatMessage;
+import gr.dmst.edu.redis.service.RateLimiter;
+import gr.dmst.edu.redis.service.ReactiveMeetingService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+// Non-blocking variant of the participant and chat endpoints of MeetingController, same requests
+// and responses under /api/reactive. The request thread is released while Redis answers. Chat reads
+// are JSON arrays, or with Accept: application/x-ndjson one message per line, written as read
+// (the produces attribute would make Spring MVC always stream, so the Accept header decides).
+@RestController
+@RequestMapping("/api/reactive")
+@RequiredArgsConstructor
+public class ReactiveMeetingController {
+    private final ReactiveMeetingService reactiveMeetingService;
+    private final RateLimiter rateLimiter;
+
+    // Function 1: Find nearby active meetings
+    @GetMapping("/meetings/nearby")
+    public Mono<List<String>> getNearbyMeetings(
+            @RequestParam String email,
+            @RequestParam double x,
+            @RequestParam double y) {
+        return reactiveMeetingService.findNearbyMeetings(email, x, y).collectList();
+    }
+
+    // Function 2: Join a meeting
+    @PostMapping("/meetings/{meetingId}/join")
+    public Mono<ResponseEntity<?>> joinMeeting(
+            @PathVariable String meetingId,
+            @RequestParam String email) {
+        return rateLimiter.acquireJoinReactive(email)
+                .flatMap(retryAfter -> {
+                    if (!retryAfter.isZero()) {
+                        return Mono.just(tooManyRequests(retryAfter));
+                    }
+                    return reactiveMeetingService.joinMeeting(email, meetingId)
+                            .map(success -> success
+                                    ? ResponseEntity.ok().build()
+                                    : ResponseEntity.badRequest().body("Unable to join meeting"));
+                });
+    }
+
+    // Function 3: Leave a meeting
+    @PostMapping("/meetings/{meetingId}/leave")
+    public Mono<ResponseEntity<?>> leaveMeeting(
+            @PathVariable String meetingId,
+            @RequestParam String email) {
+        return reactiveMeetingService.leaveMeeting(email, meetingId)
+                .map(success -> success
+                        ? ResponseEntity.ok().build()
+                        : ResponseEntity.badRequest().body("Unable to leave meeting"));
+    }
+
+    // Function 4: Get joined participants
+    @GetMapping("/meetings/{meetingId}/joined")
+    public Mono<List<String>> getJoinedParticipants(@PathVariable String meetingId) {
+        return reactiveMeetingService.getJoinedParticipants(meetingId).collectList();
+    }
+
+    // Function 7: Post message, only by users joined to the meeting
+    @PostMapping("/meetings/{meetingId}/chat/post")
+    public Mono<ResponseEntity<?>> postMessageToMeeting(
+            @PathVariable String meetingId,
+            @RequestBody Map<String, String> payload) {
+
+        String email = payload.get("email");
+        String message = payload.get("message");
+
+        return reactiveMeetingService.isJoined(email, meetingId)
+                .flatMap(joined -> {
+                    if (!joined) {
+                        return Mono.just(ResponseEntity.status(403).body("User must join the meeting first"));
+                    }
+                    return rateLimiter.acquireChatReactive(email, meetingId)
+                            .flatMap(retryAfter -> {
+                                if (!retryAfter.isZero()) {
+                                    return Mono.just(tooManyRequests(retryAfter));
+                                }
+                                return reactiveMeetingService.postMessageToMeeting(meetingId, email, message)
+                                        .map(success -> success
+                                                ? ResponseEntity.ok().build()
+                                                : ResponseEntity.badRequest().body("Unable to post message"));
+                            });
+                });
+    }
+
+    // Function 8: Get meeting messages
+    @GetMapping("/meetings/{meetingId}/chat")
+    public Flux<ChatMessage> getMeetingMessages(@PathVariable String meetingId) {
+        return reactiveMeetingService.getMeetingChatMessages(meetingId);
+    }
+
+    // Function 9: Get user messages
+    @GetMapping("/users/{email}/messages")
+    public Flux<ChatMessage> getUserMessages(@PathVariable String email) {
+        return reactiveMeetingService.getUserMessages(email);
+    }
+
+    private static ResponseEntity<?> tooManyRequests(Duration retryAfter) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(RateLimiter.retryAfterSeconds(retryAfter)))
+                .body("Too many requests, retry later");
+    }
+}
@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.redis.core.RedisHash;
 
 import java.util.HashSet;
@@ -25,5 +26,6 @@ public class ActiveMeeting {
     private Double latitude;
     private Double longitude;
     private Set<String> participants = new HashSet<>(); // All participants
-    private Set<String> joinedParticipants = new HashSet<>(); // Only joined participants
+    @Transient
+    private Set<String> joinedParticipants = new HashSet<>(); // Only joined participants, stored in meeting:{id}:joined
 }
\ No newline at end of file
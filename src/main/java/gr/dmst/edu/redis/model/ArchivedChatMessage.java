@@ -0,0 +1,32 @@
+package gr.dmst.edu.redis.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Chat message of an ended meeting, written by ChatArchiver. A meeting id may be activated
+// again, so each activation's chat is told apart by the time the meeting ended.
+@Entity
+@Table(name = "chat_archive", uniqueConstraints = @UniqueConstraint(name = "uk_chat_archive_position",
+        columnNames = {"meeting_id", "ended_at", "seq"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedChatMessage {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String meetingId;
+    private Long endedAt;   // epoch millis
+    private Long seq;       // position in the chat of that activation
+    private String email;
+    @Column(columnDefinition = "TEXT")
+    private String message;
+    private Long timestamp; // epoch millis, as in ChatMessage
+
+    public ChatMessage toChatMessage() {
+        return new ChatMessage(email, message, timestamp);
+    }
+}
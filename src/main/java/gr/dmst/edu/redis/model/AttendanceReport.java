@@ -0,0 +1,18 @@
+package gr.dmst.edu.redis.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// A meeting's attendance rollup with its attendees and how many of the invited users joined
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttendanceReport {
+    private MeetingAttendance meeting;
+    private long invited;
+    private Double joinToInviteRatio;   // null when nobody is invited
+    private List<UserAttendance> attendees;
+}
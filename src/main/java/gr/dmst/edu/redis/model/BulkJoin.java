@@ -0,0 +1,14 @@
+package gr.dmst.edu.redis.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One join of a bulk join request
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkJoin {
+    private String meetingId;
+    private String email;
+}
@@ -0,0 +1,46 @@
+package gr.dmst.edu.redis.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Outcome of a bulk request, with one result per item in input order
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkResult {
+    private int succeeded;
+    private int failed;
+    private List<Item> items;
+
+    public static BulkResult of(List<Item> items) {
+        int failed = (int) items.stream().filter(item -> item.getStatus() == Status.FAILED).count();
+        return new BulkResult(items.size() - failed, failed, items);
+    }
+
+    public enum Status {
+        CREATED,
+        UPDATED,
+        JOINED,
+        ALREADY_JOINED,
+        FAILED
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+        private int index;
+        private String id;      // e-mail, meeting id, or <meeting id>/<e-mail> for a join
+        private Status status;
+        private String error;   // why the item failed, or a warning about a written one
+
+        public Item fail(String error) {
+            this.status = Status.FAILED;
+            this.error = error;
+            return this;
+        }
+    }
+}
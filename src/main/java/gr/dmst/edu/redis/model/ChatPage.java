@@ -0,0 +1,18 @@
+package gr.dmst.edu.redis.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// A page of chat messages. nextCursor fetches the messages posted after this page and
+// previousCursor the older ones (null when the page starts at the first message).
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatPage {
+    private List<ChatMessage> messages;
+    private String nextCursor;
+    private String previousCursor;
+}
@@ -0,0 +1,17 @@
+package gr.dmst.edu.redis.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// One SCAN step over the Redis keys. nextCursor continues the scan, null once it is over;
+// a page may be empty before that.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KeyScanPage {
+    private List<String> keys;
+    private String nextCursor;
+}
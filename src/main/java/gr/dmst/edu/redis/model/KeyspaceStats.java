@@ -0,0 +1,29 @@
+package gr.dmst.edu.redis.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+// Redis keys and memory per key prefix (the part of the key before the first ':'),
+// extrapolated from random samples of the keyspace
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KeyspaceStats {
+    private long keys;
+    private Long usedMemory;    // null where INFO does not report it
+    private int samples;
+    private Map<String, Prefix> prefixes;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Prefix {
+        private int sampled;
+        private long estimatedKeys;
+        private Long averageBytes;      // MEMORY USAGE of the sampled keys, null where not supported
+        private Long estimatedBytes;
+    }
+}
@@ -0,0 +1,15 @@
+package gr.dmst.edu.redis.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// A user's position, x the latitude and y the longitude as in findNearbyMeetings
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LocationUpdate {
+    private String email;
+    private double x;
+    private double y;
+}
@@ -7,6 +7,9 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_log_meeting_time", columnList = "meeting_id, timestamp"),
+        @Index(name = "idx_log_email_time", columnList = "email, timestamp")})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
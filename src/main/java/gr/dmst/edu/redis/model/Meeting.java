@@ -1,13 +1,23 @@
 package gr.dmst.edu.redis.model;
 
-import jakarta.persistence.Entity;
-import jakarta.persistence.Id;
+import com.fasterxml.jackson.annotation.JsonSetter;
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.BatchSize;
+
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Entity
+@Table(indexes = @Index(name = "idx_meeting_start_time_id", columnList = "start_time, meeting_id"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -20,5 +30,40 @@ public class Meeting {
     private LocalDateTime endTime;   // t2
     private Double latitude;
     private Double longitude;
-    private String participants; // Comma-separated list of emails
-}
\ No newline at end of file
+
+    // Invited emails, one meeting_participant row each, indexed by email for the per-user lookups.
+    // Loaded lazily in batches, or with the meetings by the repository queries that need them.
+    @ElementCollection
+    @CollectionTable(name = "meeting_participant",
+            joinColumns = @JoinColumn(name = "meeting_id"),
+            indexes = @Index(name = "idx_meeting_participant_email", columnList = "email"))
+    @Column(name = "email", nullable = false)
+    @BatchSize(size = 500)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private Set<String> participants = new LinkedHashSet<>();
+
+    // Clients may still send the participants as one comma-separated string
+    @JsonSetter("participants")
+    void setParticipantsJson(JsonNode node) {
+        if (node == null || node.isNull()) {
+            participants = new LinkedHashSet<>();
+        } else if (node.isTextual()) {
+            participants = parseParticipants(node.asText());
+        } else {
+            participants = new LinkedHashSet<>();
+            node.forEach(email -> participants.addAll(parseParticipants(email.asText())));
+        }
+    }
+
+    // Trimmed, non-empty emails of a comma-separated list
+    public static Set<String> parseParticipants(String participants) {
+        if (participants == null) {
+            return new LinkedHashSet<>();
+        }
+        return Arrays.stream(participants.split(","))
+                .map(String::trim)
+                .filter(email -> !email.isEmpty())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+}
@@ -0,0 +1,26 @@
+package gr.dmst.edu.redis.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Attendance rollup of a meeting, kept up to date by AttendanceRollup as the logs are written
+@Entity
+@Table(name = "meeting_attendance")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MeetingAttendance {
+    @Id
+    private String meetingId;
+
+    private int currentAttendees;
+    private int peakAttendees;
+    private LocalDateTime peakAt;
+    private int distinctAttendees;  // users who joined at least once
+    private long totalMillis;       // time in the meeting, summed over the users
+    private LocalDateTime lastAppliedAt;    // time of the latest log applied, older ones need a replay
+}
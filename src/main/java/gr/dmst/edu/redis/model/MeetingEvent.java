@@ -0,0 +1,34 @@
+package gr.dmst.edu.redis.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Something that happened in an active meeting, pushed to the meeting's subscribers
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MeetingEvent {
+    private Type type;
+    private String meetingId;
+    private String email;
+    private ChatMessage message; // CHAT_MESSAGE only
+    private String cursor;       // CHAT_MESSAGE only, chat cursor of the message
+    private Long timestamp;
+
+    public enum Type {
+        CHAT_MESSAGE,
+        JOIN,
+        LEAVE,
+        TIME_OUT,
+        ENDED // last event of a meeting, the subscription is closed after it
+    }
+
+    public static MeetingEvent of(Type type, String meetingId, String email) {
+        return new MeetingEvent(type, meetingId, email, null, null, System.currentTimeMillis());
+    }
+
+    public static MeetingEvent chatMessage(String meetingId, ChatMessage message, String cursor) {
+        return new MeetingEvent(Type.CHAT_MESSAGE, meetingId, message.getEmail(), message, cursor, message.getTimestamp());
+    }
+}
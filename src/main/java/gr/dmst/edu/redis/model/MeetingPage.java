@@ -0,0 +1,16 @@
+package gr.dmst.edu.redis.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// A page of meetings in start time order. nextCursor fetches the following page, null on the last one.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MeetingPage {
+    private List<Meeting> meetings;
+    private String nextCursor;
+}
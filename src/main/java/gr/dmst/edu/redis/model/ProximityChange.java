@@ -0,0 +1,18 @@
+package gr.dmst.edu.redis.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// The active meetings a user came within the nearby radius of, and the ones they are no longer
+// near, since their previous location update. Meetings that ended count as left.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProximityChange {
+    private String email;
+    private List<String> entered;
+    private List<String> left;
+}
@@ -0,0 +1,40 @@
+package gr.dmst.edu.redis.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+// Attendance rollup of one user in one meeting, kept up to date by AttendanceRollup.
+// The primary key serves the per-meeting lookups, the email index the per-user ones.
+@Entity
+@Table(name = "user_attendance", indexes = @Index(name = "idx_user_attendance_email", columnList = "email"))
+@IdClass(UserAttendance.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserAttendance {
+    @Id
+    private String meetingId;
+    @Id
+    private String email;
+
+    private long totalMillis;           // closed sessions only
+    private int joins;
+    private LocalDateTime firstJoinedAt;
+    private LocalDateTime lastLeftAt;
+    private LocalDateTime openSince;    // start of the current session, null when not in the meeting
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private String meetingId;
+        private String email;
+    }
+}
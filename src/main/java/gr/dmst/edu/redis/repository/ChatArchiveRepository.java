@@ -0,0 +1,15 @@
+package gr.dmst.edu.redis.repository;
+
+import gr.dmst.edu.redis.model.ArchivedChatMessage;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface ChatArchiveRepository extends JpaRepository<ArchivedChatMessage, Long> {
+    // Keyset page following the position (endedAt, seq), on the unique index of the positions
+    @Query("SELECT c FROM ArchivedChatMessage c WHERE c.meetingId = ?1 "
+            + "AND (c.endedAt > ?2 OR (c.endedAt = ?2 AND c.seq > ?3)) ORDER BY c.endedAt, c.seq")
+    List<ArchivedChatMessage> findPage(String meetingId, long endedAt, long seq, Limit limit);
+}
@@ -0,0 +1,7 @@
+package gr.dmst.edu.redis.repository;
+
+import gr.dmst.edu.redis.model.MeetingAttendance;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface MeetingAttendanceRepository extends JpaRepository<MeetingAttendance, String> {
+}
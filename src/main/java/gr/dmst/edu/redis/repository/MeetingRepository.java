@@ -2,13 +2,40 @@ package gr.dmst.edu.redis.repository;
 
 
 import gr.dmst.edu.redis.model.Meeting;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface MeetingRepository extends JpaRepository<Meeting, String> {
+    // With the participants, fetched in the same query
+    @EntityGraph(attributePaths = "participants")
     @Query("SELECT m FROM Meeting m WHERE m.startTime <= ?1 AND m.endTime >= ?1")
     List<Meeting> findActiveMeetings(LocalDateTime now);
-}
+
+    @Query("SELECT m FROM Meeting m WHERE m.startTime > ?1 AND m.startTime <= ?2")
+    List<Meeting> findStartingBetween(LocalDateTime after, LocalDateTime until);
+
+    // The meetings to activate, with the participants fetched in the same query
+    @EntityGraph(attributePaths = "participants")
+    @Query("SELECT m FROM Meeting m WHERE m.meetingId IN ?1")
+    List<Meeting> findAllWithParticipants(Collection<String> meetingIds);
+
+    @EntityGraph(attributePaths = "participants")
+    Optional<Meeting> findWithParticipantsByMeetingId(String meetingId);
+
+    // Meetings the user is invited to that have not ended yet, in start order, looked up on the email index
+    @EntityGraph(attributePaths = "participants")
+    @Query("SELECT m FROM Meeting m WHERE m.endTime >= ?2 AND m.meetingId IN "
+            + "(SELECT p.meetingId FROM Meeting p JOIN p.participants email WHERE email = ?1) "
+            + "ORDER BY m.startTime")
+    List<Meeting> findUpcomingAndActiveFor(String email, LocalDateTime now);
+
+    // Number of invited users, counted on the meeting_participant primary key
+    @Query("SELECT COUNT(email) FROM Meeting m JOIN m.participants email WHERE m.meetingId = ?1")
+    long countParticipants(String meetingId);
+}
\ No newline at end of file
@@ -0,0 +1,96 @@
+package gr.dmst.edu.redis.repository;
+
+// Redis keys kept next to the ActiveMeeting hashes
+public final class RedisKeys {
+    public static final String ACTIVE_MEETING_KEYSPACE = "active_meeting";
+    public static final String MEETING_KEY_PREFIX = "meeting:";
+    public static final String CHAT_KEY_PREFIX = "chat:";
+    // Chats of ended meetings waiting for ChatArchiver, archive:chat:{endedAt}:{meetingId}
+    public static final String CHAT_ARCHIVE_KEY_PREFIX = "archive:chat:";
+    public static final String CHAT_ARCHIVE_PENDING = "archive:pending";
+    public static final String GEO_ACTIVE_MEETINGS = "geo:active_meetings";
+    public static final String USER_KEY_PREFIX = "user:";
+    // Meeting ids scored by their start / end time in epoch millis
+    public static final String SCHEDULE_START = "schedule:start";
+    public static final String SCHEDULE_END = "schedule:end";
+    // Lease of the instance running the scheduler jobs, holding its fencing token
+    public static final String SCHEDULER_LEASE = "lease:scheduler";
+    // Counter the fencing tokens of the scheduler lease are taken from
+    public static final String SCHEDULER_LEASE_TOKEN = "lease:scheduler:token";
+    // Token buckets of the rate limits, ratelimit:{limit}:{id}
+    public static final String RATE_LIMIT_KEY_PREFIX = "ratelimit:";
+    // Pub/sub channels of the meeting events, one per meeting
+    public static final String EVENTS_CHANNEL_PREFIX = "events:meeting:";
+    // Pub/sub channel carrying the ids of active meetings to drop from the local caches
+    public static final String ACTIVE_MEETING_INVALIDATION_CHANNEL = "invalidate:active_meeting";
+
+    private RedisKeys() {
+    }
+
+    // Hash written by ActiveMeetingRepository for the meeting
+    public static String activeMeeting(String meetingId) {
+        return ACTIVE_MEETING_KEYSPACE + ":" + meetingId;
+    }
+
+    // Emails invited to an active meeting
+    public static String meetingInvited(String meetingId) {
+        return MEETING_KEY_PREFIX + meetingId + ":invited";
+    }
+
+    // Emails that have joined an active meeting
+    public static String meetingJoined(String meetingId) {
+        return MEETING_KEY_PREFIX + meetingId + ":joined";
+    }
+
+    public static String eventsChannel(String meetingId) {
+        return EVENTS_CHANNEL_PREFIX + meetingId;
+    }
+
+    public static String chat(String meetingId) {
+        return CHAT_KEY_PREFIX + meetingId;
+    }
+
+    public static String chatArchive(long endedAt, String meetingId) {
+        return CHAT_ARCHIVE_KEY_PREFIX + endedAt + ":" + meetingId;
+    }
+
+    // Lock of the instance archiving the chat
+    public static String chatArchiveLock(String archiveKey) {
+        return archiveKey + ":lock";
+    }
+
+    // Number of messages trimmed from the head of a list chat, list positions are offset by it
+    public static String chatTrimmed(String chatKey) {
+        return chatKey + ":trimmed";
+    }
+
+    // Lock of the instance migrating a list chat to a stream
+    public static String chatMigrationLock(String chatKey) {
+        return chatKey + ":migrating:lock";
+    }
+
+    // Active meetings the user is invited to
+    public static String userInvited(String email) {
+        return USER_KEY_PREFIX + email + ":invited";
+    }
+
+    // Active meetings the user has joined
+    public static String userJoined(String email) {
+        return USER_KEY_PREFIX + email + ":joined";
+    }
+
+    // Active meetings within the nearby radius of the user's last tracked position
+    public static String userNearby(String email) {
+        return USER_KEY_PREFIX + email + ":nearby";
+    }
+
+    // The user's last tracked position, "latitude,longitude"
+    public static String userPosition(String email) {
+        return USER_KEY_PREFIX + email + ":position";
+    }
+
+    // Token bucket of a rate limit, e.g. limit "chat:user" and the user's e-mail
+    public static String rateLimit(String limit, String id) {
+        return RATE_LIMIT_KEY_PREFIX + limit + ":" + id;
+    }
+}
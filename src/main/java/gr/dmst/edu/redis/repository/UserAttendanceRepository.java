@@ -0,0 +1,14 @@
+package gr.dmst.edu.redis.repository;
+
+import gr.dmst.edu.redis.model.UserAttendance;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface UserAttendanceRepository extends JpaRepository<UserAttendance, UserAttendance.Key> {
+    // On the primary key
+    List<UserAttendance> findByMeetingIdOrderByTotalMillisDesc(String meetingId);
+
+    // On the email index
+    List<UserAttendance> findByEmailOrderByFirstJoinedAtDesc(String email);
+}
@@ -2,7 +2,14 @@ package gr.dmst.edu.redis.repository;
 
 
 import gr.dmst.edu.redis.model.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.List;
+
 public interface UserRepository extends JpaRepository<User, String> {
+    // Keyset pages on the primary key
+    List<User> findAllByOrderByEmail(Limit limit);
+
+    List<User> findByEmailGreaterThanOrderByEmail(String email, Limit limit);
 }
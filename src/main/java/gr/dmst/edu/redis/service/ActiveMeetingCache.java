@@ -0,0 +1,109 @@
+package gr.dmst.edu.redis.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import gr.dmst.edu.redis.config.NearCacheProperties;
+import gr.dmst.edu.redis.model.ActiveMeeting;
+import gr.dmst.edu.redis.repository.ActiveMeetingRepository;
+import gr.dmst.edu.redis.repository.RedisKeys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Optional;
+
+// Bounded local cache of the ActiveMeeting hashes, so the hot paths skip the HGETALL.
+// Only active meetings are cached. Activating or ending a meeting publishes its id on an
+// invalidation channel and every instance drops its copy; the write expiry bounds the
+// staleness if a message is lost. Snapshots are shared between callers and must not be modified.
+// Hits, misses and evictions are exported as the cache.* meters of the "activeMeetings" cache.
+@Component
+@Slf4j
+public class ActiveMeetingCache implements MessageListener {
+    private static final LogRateLimiter LOG_LIMITER = new LogRateLimiter(Duration.ofSeconds(10));
+
+    static final String CACHE_NAME = "activeMeetings";
+
+    private final ActiveMeetingRepository activeMeetingRepository;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final Cache<String, ActiveMeeting> cache;
+
+    public ActiveMeetingCache(ActiveMeetingRepository activeMeetingRepository,
+                              StringRedisTemplate stringRedisTemplate,
+                              RedisMessageListenerContainer listenerContainer,
+                              NearCacheProperties properties,
+                              MeterRegistry meterRegistry) {
+        this.activeMeetingRepository = activeMeetingRepository;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxSize())
+                .expireAfterWrite(properties.getExpireAfterWrite())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    @PostConstruct
+    void start() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(RedisKeys.ACTIVE_MEETING_INVALIDATION_CHANNEL));
+    }
+
+    // The meeting if it is active, loaded from Redis on a miss
+    public Optional<ActiveMeeting> get(String meetingId) {
+        return Optional.ofNullable(cache.get(meetingId,
+                id -> activeMeetingRepository.findById(id).orElse(null)));
+    }
+
+    // Drops the meeting here and on every other instance, call it after the hash changed
+    public void invalidate(String meetingId) {
+        cache.invalidate(meetingId);
+        try {
+            stringRedisTemplate.convertAndSend(RedisKeys.ACTIVE_MEETING_INVALIDATION_CHANNEL, meetingId);
+        } catch (Exception e) {
+            LOG_LIMITER.warn(log, "invalidate", "Could not publish the invalidation of meeting {}: {}", meetingId, e.getMessage());
+        }
+    }
+
+    // Same for many meetings, with the invalidation messages sent in one pipeline
+    public void invalidate(Collection<String> meetingIds) {
+        if (meetingIds.isEmpty()) {
+            return;
+        }
+        cache.invalidateAll(meetingIds);
+        byte[] channel = RedisKeys.ACTIVE_MEETING_INVALIDATION_CHANNEL.getBytes(StandardCharsets.UTF_8);
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                meetingIds.forEach(id -> connection.publish(channel, id.getBytes(StandardCharsets.UTF_8)));
+                return null;
+            });
+        } catch (Exception e) {
+            LOG_LIMITER.warn(log, "invalidate", "Could not publish the invalidation of {} meetings: {}", meetingIds.size(), e.getMessage());
+        }
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        cache.invalidate(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,220 @@
+package gr.dmst.edu.redis.service;
+
+import gr.dmst.edu.redis.model.ActiveMeeting;
+import gr.dmst.edu.redis.model.LocationUpdate;
+import gr.dmst.edu.redis.repository.ActiveMeetingRepository;
+import gr.dmst.edu.redis.repository.RedisKeys;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.geo.Distance;
+import org.springframework.data.geo.GeoResults;
+import org.springframework.data.redis.connection.RedisGeoCommands;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.domain.geo.GeoReference;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+// Secondary indexes over the active meetings: the geo index of their locations and the
+// per-user sets of invited and joined meetings. They are derived from the ActiveMeeting
+// hashes and the meeting:{id}:joined sets and can always be rebuilt from them.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ActiveMeetingIndex {
+    private static final int SCAN_BATCH = 1000;
+
+    // Removal happens in end_meeting.lua, together with the rest of the meeting
+    private static final RedisScript<Long> INDEX_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/index_meeting.lua"), Long.class);
+    private static final RedisScript<Long> REMOVE_STALE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/remove_stale_index.lua"), Long.class);
+
+    private final ActiveMeetingRepository activeMeetingRepository;
+    private final ParticipantStore participantStore;
+    private final StringRedisTemplate stringRedisTemplate;
+
+    // Indexes an active meeting, unless it was ended meanwhile. Returns false when it was not active.
+    public boolean add(ActiveMeeting meeting) {
+        String meetingId = meeting.getMeetingId();
+        Set<String> invited = meeting.getParticipants() == null ? Collections.emptySet() : meeting.getParticipants();
+        Set<String> joined = meeting.getJoinedParticipants() == null ? Collections.emptySet() : meeting.getJoinedParticipants();
+        List<String> keys = new ArrayList<>(List.of(RedisKeys.activeMeeting(meetingId),
+                RedisKeys.meetingInvited(meetingId), RedisKeys.meetingJoined(meetingId), RedisKeys.GEO_ACTIVE_MEETINGS));
+        invited.forEach(email -> keys.add(RedisKeys.userInvited(email)));
+        joined.forEach(email -> keys.add(RedisKeys.userJoined(email)));
+        List<String> args = new ArrayList<>();
+        args.add(meetingId);
+        boolean located = meeting.getLatitude() != null && meeting.getLongitude() != null;
+        // Redis GEO points are (longitude, latitude)
+        args.add(located ? String.valueOf(meeting.getLongitude()) : "");
+        args.add(located ? String.valueOf(meeting.getLatitude()) : "");
+        args.add(String.valueOf(invited.size()));
+        args.addAll(invited);
+        args.addAll(joined);
+        Long indexed = stringRedisTemplate.execute(INDEX_SCRIPT, keys, args.toArray());
+        return indexed != null && indexed == 1;
+    }
+
+    public Set<String> invitedMeetings(String email) {
+        Set<String> members = stringRedisTemplate.opsForSet().members(RedisKeys.userInvited(email));
+        return members == null ? Collections.emptySet() : members;
+    }
+
+    public Set<String> joinedMeetings(String email) {
+        Set<String> members = stringRedisTemplate.opsForSet().members(RedisKeys.userJoined(email));
+        return members == null ? Collections.emptySet() : members;
+    }
+
+    public boolean isJoined(String email, String meetingId) {
+        return Boolean.TRUE.equals(stringRedisTemplate.opsForSet().isMember(RedisKeys.userJoined(email), meetingId));
+    }
+
+    // Meeting ids within radiusMeters of (latitude, longitude), closest first
+    public List<String> nearby(double latitude, double longitude, double radiusMeters) {
+        GeoResults<RedisGeoCommands.GeoLocation<String>> results = stringRedisTemplate.opsForGeo().search(
+                RedisKeys.GEO_ACTIVE_MEETINGS,
+                GeoReference.fromCoordinate(longitude, latitude),
+                new Distance(radiusMeters, RedisGeoCommands.DistanceUnit.METERS),
+                RedisGeoCommands.GeoSearchCommandArgs.newGeoSearchArgs().sortAscending());
+        if (results == null) {
+            return Collections.emptyList();
+        }
+
+        List<String> meetingIds = new ArrayList<>();
+        results.forEach(result -> meetingIds.add(result.getContent().getName()));
+        return meetingIds;
+    }
+
+    // For each location, the meetings its user is invited to within radiusMeters of it, closest first.
+    // The geo searches and invitation lookups of all the locations go out in one pipeline.
+    @SuppressWarnings("unchecked")
+    public List<List<String>> nearbyInvited(List<LocationUpdate> locations, double radiusMeters) {
+        if (locations.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Distance radius = new Distance(radiusMeters, RedisGeoCommands.DistanceUnit.METERS);
+        List<Object> results = stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                for (LocationUpdate location : locations) {
+                    ops.opsForGeo().search(RedisKeys.GEO_ACTIVE_MEETINGS,
+                            GeoReference.fromCoordinate(location.getY(), location.getX()), radius,
+                            RedisGeoCommands.GeoSearchCommandArgs.newGeoSearchArgs().sortAscending());
+                    ops.opsForSet().members(RedisKeys.userInvited(location.getEmail()));
+                }
+                return null;
+            }
+        });
+
+        List<List<String>> nearby = new ArrayList<>(locations.size());
+        for (int i = 0; i < locations.size(); i++) {
+            // Pipelined geo results are not deserialized, their member names are raw bytes
+            GeoResults<RedisGeoCommands.GeoLocation<Object>> inRange =
+                    (GeoResults<RedisGeoCommands.GeoLocation<Object>>) results.get(2 * i);
+            Set<String> invited = (Set<String>) results.get(2 * i + 1);
+            List<String> meetingIds = new ArrayList<>();
+            if (inRange != null && invited != null && !invited.isEmpty()) {
+                inRange.forEach(result -> {
+                    Object name = result.getContent().getName();
+                    String meetingId = name instanceof byte[] bytes
+                            ? stringRedisTemplate.getStringSerializer().deserialize(bytes) : String.valueOf(name);
+                    if (invited.contains(meetingId)) {
+                        meetingIds.add(meetingId);
+                    }
+                });
+            }
+            nearby.add(meetingIds);
+        }
+        return nearby;
+    }
+
+    // Rebuilds every index from the ActiveMeeting hashes and joined sets, e.g. after a Redis restart that
+    // restored the hashes from a snapshot taken before the indexes were updated. Entries are
+    // re-added first and stale ones removed afterwards, so lookups keep working meanwhile. Joins,
+    // activations and ends may run concurrently: meetings ended since the snapshot are not re-added,
+    // and each entry missing from the snapshot is checked against Redis again before it is removed.
+    public void rebuild() {
+        try {
+            Set<String> activeIds = new HashSet<>();
+            Map<String, Set<String>> invitedByUser = new HashMap<>();
+            Map<String, Set<String>> joinedByUser = new HashMap<>();
+            for (ActiveMeeting meeting : activeMeetingRepository.findAll()) {
+                // Joined participants live outside the hash
+                meeting.setJoinedParticipants(participantStore.joined(meeting.getMeetingId()));
+                if (!add(meeting)) {
+                    continue;
+                }
+                activeIds.add(meeting.getMeetingId());
+                meeting.getParticipants().forEach(email ->
+                        invitedByUser.computeIfAbsent(email, e -> new HashSet<>()).add(meeting.getMeetingId()));
+                meeting.getJoinedParticipants().forEach(email ->
+                        joinedByUser.computeIfAbsent(email, e -> new HashSet<>()).add(meeting.getMeetingId()));
+            }
+
+            long removed = removeStale(":invited", invitedByUser) + removeStale(":joined", joinedByUser);
+            Set<String> indexed = stringRedisTemplate.opsForZSet().range(RedisKeys.GEO_ACTIVE_MEETINGS, 0, -1);
+            if (indexed != null) {
+                indexed.removeAll(activeIds);
+                removed += removeStale(RedisKeys.GEO_ACTIVE_MEETINGS, "", indexed);
+            }
+            log.info("Rebuilt active meeting indexes for {} meetings, removed {} stale entries", activeIds.size(), removed);
+        } catch (DataAccessException e) {
+            log.warn("Could not rebuild active meeting indexes: {}", e.getMessage());
+        }
+    }
+
+    // Removes from every user:*<suffix> set the meetings missing from expected that are stale in Redis too
+    private long removeStale(String suffix, Map<String, Set<String>> expected) {
+        long removed = 0;
+        ScanOptions options = ScanOptions.scanOptions().match(RedisKeys.USER_KEY_PREFIX + "*" + suffix).count(SCAN_BATCH).build();
+        try (Cursor<String> cursor = stringRedisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                String key = cursor.next();
+                String email = key.substring(RedisKeys.USER_KEY_PREFIX.length(), key.length() - suffix.length());
+                Set<String> members = stringRedisTemplate.opsForSet().members(key);
+                if (members == null) {
+                    continue;
+                }
+                members.removeAll(expected.getOrDefault(email, Collections.emptySet()));
+                removed += removeStale(key, email, members);
+            }
+        }
+        return removed;
+    }
+
+    // Runs remove_stale_index.lua over the candidates in chunks. For a per-user set each meeting's
+    // hash and invited or joined set are checked, for the geo index (empty email) only its hash.
+    private long removeStale(String indexKey, String email, Collection<String> candidates) {
+        long removed = 0;
+        List<String> keys = new ArrayList<>();
+        List<String> args = new ArrayList<>();
+        Iterator<String> meetingIds = candidates.iterator();
+        while (meetingIds.hasNext()) {
+            String meetingId = meetingIds.next();
+            keys.add(RedisKeys.activeMeeting(meetingId));
+            if (!email.isEmpty()) {
+                keys.add(indexKey.endsWith(":invited")
+                        ? RedisKeys.meetingInvited(meetingId) : RedisKeys.meetingJoined(meetingId));
+            }
+            args.add(meetingId);
+            if (args.size() == SCAN_BATCH || !meetingIds.hasNext()) {
+                keys.add(0, indexKey);
+                args.add(0, email);
+                Long result = stringRedisTemplate.execute(REMOVE_STALE_SCRIPT, keys, args.toArray());
+                removed += result == null ? 0 : result;
+                keys.clear();
+                args.clear();
+            }
+        }
+        return removed;
+    }
+}
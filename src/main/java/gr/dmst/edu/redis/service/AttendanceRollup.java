@@ -0,0 +1,275 @@
+package gr.dmst.edu.redis.service;
+
+import gr.dmst.edu.redis.model.AttendanceReport;
+import gr.dmst.edu.redis.model.Log;
+import gr.dmst.edu.redis.model.MeetingAttendance;
+import gr.dmst.edu.redis.model.UserAttendance;
+import gr.dmst.edu.redis.repository.MeetingAttendanceRepository;
+import gr.dmst.edu.redis.repository.MeetingRepository;
+import gr.dmst.edu.redis.repository.UserAttendanceRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+// Attendance rollups kept up to date as the activity logs are written, so reports read a few
+// rows instead of scanning the log table: time in the meeting per user, peak concurrent
+// attendance and distinct attendees per meeting. LogWriter applies each batch in the
+// transaction that inserts it. Writers lock the meeting_attendance row of a meeting before
+// touching its rows, which serializes the writers of several instances and the rebuild but does
+// not order their logs: logs buffered on another instance, caller-runs writes and retried batches
+// can arrive after later ones. A batch holding a log no later than the last one applied to the
+// meeting has the meeting's rollups replayed from the log table in time order instead.
+// A join while already in the meeting, or a leave or timeout while not in it, changes nothing.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AttendanceRollup {
+    private static final int FETCH_SIZE = 1000;
+
+    private static final String MEETING_COLUMNS =
+            "meeting_id, current_attendees, peak_attendees, peak_at, distinct_attendees, total_millis, last_applied_at";
+    private static final String USER_COLUMNS =
+            "meeting_id, email, total_millis, joins, first_joined_at, last_left_at, open_since";
+    private static final String LOCK_MEETING_SQL =
+            "SELECT " + MEETING_COLUMNS + " FROM meeting_attendance WHERE meeting_id = ? FOR UPDATE";
+    private static final String INSERT_MEETING_SQL = "INSERT INTO meeting_attendance (" + MEETING_COLUMNS
+            + ") VALUES (?, 0, 0, NULL, 0, 0, NULL)";
+    private static final String UPDATE_MEETING_SQL = "UPDATE meeting_attendance SET current_attendees = ?, "
+            + "peak_attendees = ?, peak_at = ?, distinct_attendees = ?, total_millis = ?, last_applied_at = ? "
+            + "WHERE meeting_id = ?";
+    private static final String INSERT_USER_SQL = "INSERT INTO user_attendance (" + USER_COLUMNS
+            + ") VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_USER_SQL = "UPDATE user_attendance SET total_millis = ?, joins = ?, "
+            + "first_joined_at = ?, last_left_at = ?, open_since = ? WHERE meeting_id = ? AND email = ?";
+    // Replayed on idx_log_meeting_time, the id orders logs written in the same instant
+    private static final String MEETING_LOGS_SQL = "SELECT email, timestamp, action FROM log "
+            + "WHERE meeting_id = ? AND email IS NOT NULL AND timestamp IS NOT NULL ORDER BY timestamp, id";
+
+    private static final RowMapper<MeetingAttendance> MEETING_MAPPER = (rs, row) -> new MeetingAttendance(
+            rs.getString(1), rs.getInt(2), rs.getInt(3), toLocalDateTime(rs.getTimestamp(4)), rs.getInt(5), rs.getLong(6),
+            toLocalDateTime(rs.getTimestamp(7)));
+    private static final RowMapper<UserAttendance> USER_MAPPER = (rs, row) -> new UserAttendance(
+            rs.getString(1), rs.getString(2), rs.getLong(3), rs.getInt(4), toLocalDateTime(rs.getTimestamp(5)),
+            toLocalDateTime(rs.getTimestamp(6)), toLocalDateTime(rs.getTimestamp(7)));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeetingAttendanceRepository meetingAttendanceRepository;
+    private final UserAttendanceRepository userAttendanceRepository;
+    private final MeetingRepository meetingRepository;
+
+    // Applies the logs in the caller's transaction, which has inserted them already, in time order and
+    // for equal times in the order they were submitted. A concurrent writer creating the same meeting
+    // row fails it on the primary key, the caller retries.
+    public void apply(List<Log> logs) {
+        // Meetings in id order, so concurrent writers lock them in the same order
+        Map<String, List<Log>> byMeeting = new TreeMap<>();
+        for (Log entry : logs) {
+            if (entry.getMeetingId() != null && entry.getEmail() != null
+                    && entry.getTimestamp() != null && entry.getAction() != null) {
+                byMeeting.computeIfAbsent(entry.getMeetingId(), id -> new ArrayList<>()).add(entry);
+            }
+        }
+        byMeeting.forEach((meetingId, meetingLogs) -> {
+            MeetingAttendance meeting = lockMeeting(meetingId);
+            meetingLogs.sort(Comparator.comparing(Log::getTimestamp));
+            if (meeting.getLastAppliedAt() != null
+                    && !meetingLogs.get(0).getTimestamp().isAfter(meeting.getLastAppliedAt())) {
+                // Out of order, the logs of this batch are in the table and replayed with the others
+                replay(meetingId);
+                return;
+            }
+            Set<String> emails = meetingLogs.stream().map(Log::getEmail).collect(Collectors.toSet());
+            Map<String, UserAttendance> users = loadUsers(meetingId, emails);
+            Set<String> existing = new HashSet<>(users.keySet());
+            for (Log entry : meetingLogs) {
+                step(meeting, users, entry.getEmail(), entry.getTimestamp(), entry.getAction());
+            }
+            save(meeting, users.values(), existing);
+        });
+    }
+
+    // Rebuilds the rollups of every meeting from the logs, one meeting per transaction, and returns
+    // the number of meetings. Logs written meanwhile are applied after the meeting they belong to.
+    public int rebuild() {
+        List<String> meetingIds = jdbcTemplate.queryForList(
+                "SELECT DISTINCT meeting_id FROM log WHERE meeting_id IS NOT NULL", String.class);
+        for (String meetingId : meetingIds) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> replay(meetingId));
+            } catch (DataIntegrityViolationException e) {
+                // A log writer created the meeting row meanwhile
+                transactionTemplate.executeWithoutResult(status -> replay(meetingId));
+            }
+        }
+        // Rollups of meetings whose logs were purged
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("DELETE FROM user_attendance u WHERE NOT EXISTS "
+                    + "(SELECT 1 FROM log l WHERE l.meeting_id = u.meeting_id)");
+            jdbcTemplate.update("DELETE FROM meeting_attendance m WHERE NOT EXISTS "
+                    + "(SELECT 1 FROM log l WHERE l.meeting_id = m.meeting_id)");
+        });
+        log.info("Rebuilt the attendance rollups of {} meetings", meetingIds.size());
+        return meetingIds.size();
+    }
+
+    // Backfills the rollups on the first start after they were introduced, when the logs exist already
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        try {
+            Boolean rollups = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM meeting_attendance)", Boolean.class);
+            Boolean logs = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM log)", Boolean.class);
+            if (Boolean.FALSE.equals(rollups) && Boolean.TRUE.equals(logs)) {
+                rebuild();
+            }
+        } catch (DataAccessException e) {
+            log.warn("Could not backfill the attendance rollups: {}", e.getMessage());
+        }
+    }
+
+    public Optional<AttendanceReport> report(String meetingId) {
+        return meetingAttendanceRepository.findById(meetingId).map(meeting -> {
+            long invited = meetingRepository.countParticipants(meetingId);
+            Double ratio = invited == 0 ? null : (double) meeting.getDistinctAttendees() / invited;
+            return new AttendanceReport(meeting, invited, ratio,
+                    userAttendanceRepository.findByMeetingIdOrderByTotalMillisDesc(meetingId));
+        });
+    }
+
+    public List<UserAttendance> forUser(String email) {
+        return userAttendanceRepository.findByEmailOrderByFirstJoinedAtDesc(email);
+    }
+
+    // Recomputes the rollups of one meeting from all its logs, in the caller's transaction
+    private void replay(String meetingId) {
+        lockMeeting(meetingId);
+        jdbcTemplate.update("DELETE FROM user_attendance WHERE meeting_id = ?", meetingId);
+        MeetingAttendance meeting = new MeetingAttendance(meetingId, 0, 0, null, 0, 0, null);
+        Map<String, UserAttendance> users = new HashMap<>();
+        // Streamed, only the meeting's attendees are kept in memory
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(MEETING_LOGS_SQL);
+            statement.setFetchSize(FETCH_SIZE);
+            statement.setString(1, meetingId);
+            return statement;
+        }, (RowCallbackHandler) rs -> step(meeting, users, rs.getString(1),
+                rs.getTimestamp(2).toLocalDateTime(), rs.getInt(3)));
+        save(meeting, users.values(), Set.of());
+    }
+
+    private MeetingAttendance lockMeeting(String meetingId) {
+        List<MeetingAttendance> rows = jdbcTemplate.query(LOCK_MEETING_SQL, MEETING_MAPPER, meetingId);
+        if (!rows.isEmpty()) {
+            return rows.get(0);
+        }
+        jdbcTemplate.update(INSERT_MEETING_SQL, meetingId);
+        return new MeetingAttendance(meetingId, 0, 0, null, 0, 0, null);
+    }
+
+    private Map<String, UserAttendance> loadUsers(String meetingId, Set<String> emails) {
+        String placeholders = String.join(", ", Collections.nCopies(emails.size(), "?"));
+        List<Object> args = new ArrayList<>(emails.size() + 1);
+        args.add(meetingId);
+        args.addAll(emails);
+        Map<String, UserAttendance> users = new HashMap<>();
+        jdbcTemplate.query("SELECT " + USER_COLUMNS + " FROM user_attendance WHERE meeting_id = ? AND email IN ("
+                + placeholders + ")", USER_MAPPER, args.toArray())
+                .forEach(user -> users.put(user.getEmail(), user));
+        return users;
+    }
+
+    private static void step(MeetingAttendance meeting, Map<String, UserAttendance> users,
+                             String email, LocalDateTime at, int action) {
+        UserAttendance user = users.computeIfAbsent(email,
+                e -> new UserAttendance(meeting.getMeetingId(), e, 0, 0, null, null, null));
+        if (meeting.getLastAppliedAt() == null || at.isAfter(meeting.getLastAppliedAt())) {
+            meeting.setLastAppliedAt(at);
+        }
+        if (action == Log.JOIN_MEETING) {
+            if (user.getOpenSince() != null) {
+                return;
+            }
+            if (user.getFirstJoinedAt() == null) {
+                user.setFirstJoinedAt(at);
+                meeting.setDistinctAttendees(meeting.getDistinctAttendees() + 1);
+            }
+            user.setJoins(user.getJoins() + 1);
+            user.setOpenSince(at);
+            meeting.setCurrentAttendees(meeting.getCurrentAttendees() + 1);
+            if (meeting.getCurrentAttendees() > meeting.getPeakAttendees()) {
+                meeting.setPeakAttendees(meeting.getCurrentAttendees());
+                meeting.setPeakAt(at);
+            }
+        } else if (user.getOpenSince() != null) {
+            // LEAVE_MEETING or TIME_OUT closes the session
+            long millis = Math.max(0, Duration.between(user.getOpenSince(), at).toMillis());
+            user.setTotalMillis(user.getTotalMillis() + millis);
+            user.setLastLeftAt(at);
+            user.setOpenSince(null);
+            meeting.setTotalMillis(meeting.getTotalMillis() + millis);
+            meeting.setCurrentAttendees(Math.max(0, meeting.getCurrentAttendees() - 1));
+        }
+    }
+
+    private void save(MeetingAttendance meeting, Collection<UserAttendance> users, Set<String> existing) {
+        jdbcTemplate.update(UPDATE_MEETING_SQL, meeting.getCurrentAttendees(), meeting.getPeakAttendees(),
+                toTimestamp(meeting.getPeakAt()), meeting.getDistinctAttendees(), meeting.getTotalMillis(),
+                toTimestamp(meeting.getLastAppliedAt()), meeting.getMeetingId());
+
+        List<UserAttendance> inserts = new ArrayList<>();
+        List<UserAttendance> updates = new ArrayList<>();
+        for (UserAttendance user : users) {
+            if (existing.contains(user.getEmail())) {
+                updates.add(user);
+            } else if (user.getJoins() > 0) {
+                // Users who only left without having joined get no row
+                inserts.add(user);
+            }
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_USER_SQL, inserts, inserts.size(), (ps, user) -> {
+                ps.setString(1, user.getMeetingId());
+                ps.setString(2, user.getEmail());
+                ps.setLong(3, user.getTotalMillis());
+                ps.setInt(4, user.getJoins());
+                ps.setTimestamp(5, toTimestamp(user.getFirstJoinedAt()));
+                ps.setTimestamp(6, toTimestamp(user.getLastLeftAt()));
+                ps.setTimestamp(7, toTimestamp(user.getOpenSince()));
+            });
+        }
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_USER_SQL, updates, updates.size(), (ps, user) -> {
+                ps.setLong(1, user.getTotalMillis());
+                ps.setInt(2, user.getJoins());
+                ps.setTimestamp(3, toTimestamp(user.getFirstJoinedAt()));
+                ps.setTimestamp(4, toTimestamp(user.getLastLeftAt()));
+                ps.setTimestamp(5, toTimestamp(user.getOpenSince()));
+                ps.setString(6, user.getMeetingId());
+                ps.setString(7, user.getEmail());
+            });
+        }
+    }
+
+    private static Timestamp toTimestamp(LocalDateTime time) {
+        return time == null ? null : Timestamp.valueOf(time);
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime();
+    }
+}
@@ -0,0 +1,297 @@
+package gr.dmst.edu.redis.service;
+
+import com.fasterxml.jackson.core.exc.StreamReadException;
+import com.fasterxml.jackson.databind.DatabindException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.dmst.edu.redis.config.BulkProperties;
+import gr.dmst.edu.redis.model.BulkJoin;
+import gr.dmst.edu.redis.model.BulkResult;
+import gr.dmst.edu.redis.model.Meeting;
+import gr.dmst.edu.redis.model.User;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Bulk versions of createUser, createMeeting and joinMeeting for the calendar sync. The body is a
+// JSON array or one item per line (ndjson), parsed as it arrives and written batchSize items at a
+// time: users and meetings as JDBC batches in one transaction per batch, joins as one pipeline of
+// join scripts. Every item gets a result, a bad item fails on its own and the rest are written.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BulkIngestion {
+    private static final LogRateLimiter LOG_LIMITER = new LogRateLimiter(Duration.ofSeconds(10));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeetingSchedule meetingSchedule;
+    private final MeetingService meetingService;
+    private final BulkProperties properties;
+
+    // Creates or replaces users, like createUser
+    public BulkResult users(InputStream in) throws IOException {
+        return ingest(in, User.class, User::getEmail, this::writeUsers);
+    }
+
+    // Creates or replaces meetings with their participants and schedules them, like createMeeting
+    public BulkResult meetings(InputStream in) throws IOException {
+        return ingest(in, Meeting.class, Meeting::getMeetingId, this::writeMeetings);
+    }
+
+    // Joins users to active meetings, like joinMeeting
+    public BulkResult joins(InputStream in) throws IOException {
+        return ingest(in, BulkJoin.class, join -> join.getMeetingId() + "/" + join.getEmail(), this::writeJoins);
+    }
+
+    private <T> BulkResult ingest(InputStream in, Class<T> type, Function<T, String> id,
+                                  Consumer<List<Pending<T>>> writer) throws IOException {
+        List<BulkResult.Item> items = new ArrayList<>();
+        List<Pending<T>> batch = new ArrayList<>();
+        // Reads the elements of a top level array, or else a sequence of top level values
+        try (MappingIterator<T> values = objectMapper.readerFor(type).readValues(in)) {
+            while (true) {
+                BulkResult.Item item = new BulkResult.Item(items.size(), null, null, null);
+                try {
+                    if (!values.hasNextValue()) {
+                        break;
+                    }
+                    T value = values.nextValue();
+                    items.add(item);
+                    if (value == null) {
+                        item.fail("Empty item");
+                        continue;
+                    }
+                    item.setId(id.apply(value));
+                    batch.add(new Pending<>(value, item));
+                } catch (DatabindException e) {
+                    // The rest of the item is skipped and reading goes on with the next one
+                    items.add(item.fail(e.getOriginalMessage()));
+                } catch (StreamReadException e) {
+                    // Malformed JSON, there is no telling where the next item starts
+                    items.add(item.fail("Malformed JSON, the items from here on were not read: " + e.getOriginalMessage()));
+                    break;
+                }
+                if (batch.size() >= properties.getBatchSize()) {
+                    writer.accept(batch);
+                    batch = new ArrayList<>();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            writer.accept(batch);
+        }
+        return BulkResult.of(items);
+    }
+
+    private void writeUsers(List<Pending<User>> batch) {
+        List<Pending<User>> valid = validate(batch, user -> isBlank(user.getEmail()) ? "email is required" : null);
+        writeInTransaction(valid, this::upsertUsers);
+    }
+
+    private void writeMeetings(List<Pending<Meeting>> batch) {
+        List<Pending<Meeting>> valid = validate(batch, meeting -> {
+            if (isBlank(meeting.getMeetingId())) {
+                return "meetingId is required";
+            }
+            if (meeting.getStartTime() == null || meeting.getEndTime() == null) {
+                return "startTime and endTime are required";
+            }
+            return null;
+        });
+        writeInTransaction(valid, this::upsertMeetings);
+
+        // The last version of each written meeting goes to the schedules
+        Map<String, Meeting> written = new LinkedHashMap<>();
+        List<Pending<Meeting>> scheduled = new ArrayList<>();
+        for (Pending<Meeting> pending : valid) {
+            if (pending.item().getStatus() != BulkResult.Status.FAILED) {
+                written.put(pending.value().getMeetingId(), pending.value());
+                scheduled.add(pending);
+            }
+        }
+        try {
+            meetingSchedule.scheduleAll(written.values());
+        } catch (DataAccessException e) {
+            // Saved all the same, MeetingScheduler's refill or reconciliation picks them up
+            LOG_LIMITER.warn(log, "bulk-schedule", "Could not schedule {} bulk meetings: {}", written.size(), e.getMessage());
+            scheduled.forEach(pending -> pending.item().setError("Saved but not scheduled: " + e.getMessage()));
+        }
+    }
+
+    private void writeJoins(List<Pending<BulkJoin>> batch) {
+        List<Pending<BulkJoin>> valid = validate(batch, join ->
+                isBlank(join.getMeetingId()) || isBlank(join.getEmail()) ? "meetingId and email are required" : null);
+        if (valid.isEmpty()) {
+            return;
+        }
+        List<Long> results;
+        try {
+            results = meetingService.joinMeetings(valid.stream().map(Pending::value).toList());
+        } catch (DataAccessException e) {
+            LOG_LIMITER.warn(log, "bulk-join", "Could not run {} bulk joins: {}", valid.size(), e.getMessage());
+            valid.forEach(pending -> pending.item().fail(e.getMessage()));
+            return;
+        }
+        for (int i = 0; i < valid.size(); i++) {
+            BulkResult.Item item = valid.get(i).item();
+            long result = results.get(i);
+            if (result == ParticipantStore.JOINED) {
+                item.setStatus(BulkResult.Status.JOINED);
+            } else if (result == ParticipantStore.UNCHANGED) {
+                item.setStatus(BulkResult.Status.ALREADY_JOINED);
+            } else if (result == ParticipantStore.NOT_INVITED) {
+                item.fail("User not invited");
+            } else {
+                item.fail("Meeting not active");
+            }
+        }
+    }
+
+    // Marks the items the check returns an error for as failed, returns the others
+    private static <T> List<Pending<T>> validate(List<Pending<T>> batch, Function<T, String> check) {
+        List<Pending<T>> valid = new ArrayList<>(batch.size());
+        for (Pending<T> pending : batch) {
+            String error = check.apply(pending.value());
+            if (error == null) {
+                valid.add(pending);
+            } else {
+                pending.item().fail(error);
+            }
+        }
+        return valid;
+    }
+
+    // Writes the batch in one transaction. A bad item or a concurrent insert of the same id fails
+    // the whole transaction, then the items are written one by one to find the ones that fail.
+    private <T> void writeInTransaction(List<Pending<T>> batch, Consumer<List<Pending<T>>> upsert) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> upsert.accept(batch));
+        } catch (DataAccessException e) {
+            LOG_LIMITER.warn(log, "bulk-batch", "Bulk batch of {} items failed, writing them one by one: {}",
+                    batch.size(), e.getMessage());
+            for (Pending<T> pending : batch) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> upsert.accept(List.of(pending)));
+                } catch (DataAccessException itemError) {
+                    pending.item().fail(itemError.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+    }
+
+    private void upsertUsers(List<Pending<User>> batch) {
+        Set<String> existing = existingIds("users", "email", batch, User::getEmail);
+        Map<String, User> latest = latest(batch, User::getEmail, existing);
+        List<User> inserts = new ArrayList<>();
+        List<User> updates = new ArrayList<>();
+        latest.forEach((email, user) -> (existing.contains(email) ? updates : inserts).add(user));
+
+        batchUpdate("INSERT INTO users (name, age, gender, email) VALUES (?, ?, ?, ?)", inserts, BulkIngestion::setUser);
+        batchUpdate("UPDATE users SET name = ?, age = ?, gender = ? WHERE email = ?", updates, BulkIngestion::setUser);
+    }
+
+    private void upsertMeetings(List<Pending<Meeting>> batch) {
+        Set<String> existing = existingIds("meeting", "meeting_id", batch, Meeting::getMeetingId);
+        Map<String, Meeting> latest = latest(batch, Meeting::getMeetingId, existing);
+        List<Meeting> inserts = new ArrayList<>();
+        List<Meeting> updates = new ArrayList<>();
+        latest.forEach((id, meeting) -> (existing.contains(id) ? updates : inserts).add(meeting));
+
+        batchUpdate("INSERT INTO meeting (title, description, start_time, end_time, latitude, longitude, meeting_id) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)", inserts, BulkIngestion::setMeeting);
+        batchUpdate("UPDATE meeting SET title = ?, description = ?, start_time = ?, end_time = ?, "
+                + "latitude = ?, longitude = ? WHERE meeting_id = ?", updates, BulkIngestion::setMeeting);
+        // Replaced meetings get the participants of their new version
+        batchUpdate("DELETE FROM meeting_participant WHERE meeting_id = ?", updates,
+                (ps, meeting) -> ps.setString(1, meeting.getMeetingId()));
+
+        List<String[]> participants = new ArrayList<>();
+        for (Meeting meeting : latest.values()) {
+            meeting.getParticipants().forEach(email -> participants.add(new String[]{meeting.getMeetingId(), email}));
+        }
+        batchUpdate("INSERT INTO meeting_participant (meeting_id, email) VALUES (?, ?)",
+                participants, (ps, row) -> {
+                    ps.setString(1, row[0]);
+                    ps.setString(2, row[1]);
+                });
+    }
+
+    // One JDBC batch of all the rows
+    private <T> void batchUpdate(String sql, List<T> rows, ParameterizedPreparedStatementSetter<T> setter) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, rows, rows.size(), setter);
+        }
+    }
+
+    // The last version of every id in the batch. As if the items were saved one after the other,
+    // the first item of a new id creates it and the ones after it update it.
+    private static <T> Map<String, T> latest(List<Pending<T>> batch, Function<T, String> id, Set<String> existing) {
+        Map<String, T> latest = new LinkedHashMap<>();
+        for (Pending<T> pending : batch) {
+            String key = id.apply(pending.value());
+            boolean exists = existing.contains(key) || latest.containsKey(key);
+            pending.item().setStatus(exists ? BulkResult.Status.UPDATED : BulkResult.Status.CREATED);
+            latest.put(key, pending.value());
+        }
+        return latest;
+    }
+
+    private <T> Set<String> existingIds(String table, String column, List<Pending<T>> batch, Function<T, String> id) {
+        Set<String> ids = new LinkedHashSet<>();
+        batch.forEach(pending -> ids.add(id.apply(pending.value())));
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT " + column + " FROM " + table + " WHERE " + column + " IN (" + placeholders + ")",
+                String.class, ids.toArray()));
+    }
+
+    private static void setUser(PreparedStatement ps, User user) throws SQLException {
+        ps.setString(1, user.getName());
+        ps.setObject(2, user.getAge(), Types.INTEGER);
+        ps.setString(3, user.getGender());
+        ps.setString(4, user.getEmail());
+    }
+
+    private static void setMeeting(PreparedStatement ps, Meeting meeting) throws SQLException {
+        ps.setString(1, meeting.getTitle());
+        ps.setString(2, meeting.getDescription());
+        ps.setTimestamp(3, timestamp(meeting.getStartTime()));
+        ps.setTimestamp(4, timestamp(meeting.getEndTime()));
+        ps.setObject(5, meeting.getLatitude(), Types.DOUBLE);
+        ps.setObject(6, meeting.getLongitude(), Types.DOUBLE);
+        ps.setString(7, meeting.getMeetingId());
+    }
+
+    private static Timestamp timestamp(LocalDateTime time) {
+        return time == null ? null : Timestamp.valueOf(time);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    // An item waiting in the batch, with the result it is reported with
+    private record Pending<T>(T value, BulkResult.Item item) {
+    }
+}
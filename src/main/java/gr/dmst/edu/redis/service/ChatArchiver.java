@@ -0,0 +1,288 @@
+package gr.dmst.edu.redis.service;
+
+import gr.dmst.edu.redis.config.ChatArchiveProperties;
+import gr.dmst.edu.redis.config.ChatProperties;
+import gr.dmst.edu.redis.model.ArchivedChatMessage;
+import gr.dmst.edu.redis.model.ChatMessage;
+import gr.dmst.edu.redis.model.ChatPage;
+import gr.dmst.edu.redis.repository.ChatArchiveRepository;
+import gr.dmst.edu.redis.repository.RedisKeys;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Moves the chats of ended meetings from Redis to the chat_archive table. Ending a meeting only
+// renames its chat to an archive key and queues that key, in one script per meeting sent in a
+// single pipeline. The chats are then read in chunks off the request path and bulk-inserted with
+// batched JDBC, one transaction per chunk. A crashed run resumes after the last position
+// committed, and the unique positions keep two instances from archiving a message twice.
+@Component
+@Slf4j
+public class ChatArchiver {
+    private static final LogRateLimiter LOG_LIMITER = new LogRateLimiter(Duration.ofSeconds(10));
+
+    private static final RedisScript<Long> ARCHIVE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/archive_chat.lua"), Long.class);
+    private static final RedisScript<Long> RELEASE_LOCK_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/release_lease.lua"), Long.class);
+    // archive:chat:{endedAt}:{meetingId}, see RedisKeys.chatArchive
+    private static final Pattern ARCHIVE_KEY =
+            Pattern.compile(Pattern.quote(RedisKeys.CHAT_ARCHIVE_KEY_PREFIX) + "(\\d{1,18}):(.+)");
+    private static final String INSERT_SQL = "INSERT INTO chat_archive (meeting_id, ended_at, seq, email, message, timestamp) "
+            + "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisTemplate<String, byte[]> chatRedisTemplate;
+    private final ChatCodec chatCodec;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ChatArchiveRepository chatArchiveRepository;
+    private final ChatArchiveProperties properties;
+    private final ChatProperties chatProperties;
+    private final LeaderLease leaderLease;
+    private final Counter archivedMessages;
+
+    public ChatArchiver(StringRedisTemplate stringRedisTemplate, RedisTemplate<String, byte[]> chatRedisTemplate,
+                        ChatCodec chatCodec, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                        ChatArchiveRepository chatArchiveRepository, ChatArchiveProperties properties,
+                        ChatProperties chatProperties, LeaderLease leaderLease, MeterRegistry meterRegistry) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.chatRedisTemplate = chatRedisTemplate;
+        this.chatCodec = chatCodec;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.chatArchiveRepository = chatArchiveRepository;
+        this.properties = properties;
+        this.chatProperties = chatProperties;
+        this.leaderLease = leaderLease;
+        this.archivedMessages = Counter.builder("meetings.chat.archived")
+                .description("Chat messages moved from Redis to the archive table")
+                .register(meterRegistry);
+    }
+
+    // Queues the chats of the ended meetings for archival, called once the meetings are deactivated
+    public void archive(Collection<String> meetingIds) {
+        if (meetingIds.isEmpty()) {
+            return;
+        }
+        long endedAt = System.currentTimeMillis();
+        byte[] sha = bytes(ARCHIVE_SCRIPT.getSha1());
+        byte[] pending = bytes(RedisKeys.CHAT_ARCHIVE_PENDING);
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            // Loading the script first keeps the EVALSHAs working after a script cache flush
+            connection.scriptingCommands().scriptLoad(bytes(ARCHIVE_SCRIPT.getScriptAsString()));
+            for (String meetingId : meetingIds) {
+                String chatKey = RedisKeys.chat(meetingId);
+                connection.scriptingCommands().evalSha(sha, ReturnType.INTEGER, 4, bytes(chatKey),
+                        bytes(RedisKeys.chatArchive(endedAt, meetingId)), pending, bytes(RedisKeys.chatTrimmed(chatKey)));
+            }
+            return null;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${meeting.chat.archive.interval:PT5S}")
+    public void archivePending() {
+        try {
+            Set<String> archiveKeys = stringRedisTemplate.opsForSet()
+                    .distinctRandomMembers(RedisKeys.CHAT_ARCHIVE_PENDING, properties.getChatsPerRun());
+            if (archiveKeys == null) {
+                return;
+            }
+            for (String archiveKey : archiveKeys) {
+                String lock = RedisKeys.chatArchiveLock(archiveKey);
+                String token = UUID.randomUUID().toString();
+                if (!Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(lock, token, properties.getLockTimeout()))) {
+                    continue;
+                }
+                try {
+                    archiveChat(archiveKey);
+                } catch (RuntimeException e) {
+                    // Left queued for a later run, the other chats go on
+                    LOG_LIMITER.warn(log, "archive", "Could not archive chat {}: {}", archiveKey, e.getMessage());
+                } finally {
+                    // Only while still ours, a run that outlived the lock leaves the next holder's alone
+                    stringRedisTemplate.execute(RELEASE_LOCK_SCRIPT, List.of(lock), token);
+                }
+            }
+        } catch (DataAccessException e) {
+            LOG_LIMITER.warn(log, "archive", "Chat archival failed: {}", e.getMessage());
+        }
+    }
+
+    // Archives one queued chat, a list or a stream depending on the store that wrote it.
+    // Returns the number of messages inserted.
+    int archiveChat(String archiveKey) {
+        Matcher key = ARCHIVE_KEY.matcher(archiveKey);
+        if (!key.matches()) {
+            // Not written by archive_chat.lua, it would be picked again on every run
+            log.warn("Dropping malformed chat archive key {} from {}", archiveKey, RedisKeys.CHAT_ARCHIVE_PENDING);
+            stringRedisTemplate.opsForSet().remove(RedisKeys.CHAT_ARCHIVE_PENDING, archiveKey);
+            return 0;
+        }
+        long endedAt = Long.parseLong(key.group(1));
+        String meetingId = key.group(2);
+
+        // Positions below next were committed by an earlier run
+        Long last = jdbcTemplate.queryForObject("SELECT MAX(seq) FROM chat_archive WHERE meeting_id = ? AND ended_at = ?",
+                Long.class, meetingId, endedAt);
+        long next = last == null ? 0 : last + 1;
+
+        DataType type = chatRedisTemplate.type(archiveKey);
+        int inserted = 0;
+        if (type == DataType.LIST) {
+            inserted = archiveList(archiveKey, meetingId, endedAt, next);
+        } else if (type == DataType.STREAM) {
+            inserted = archiveStream(archiveKey, meetingId, endedAt, next);
+        }
+        chatRedisTemplate.delete(archiveKey);
+        stringRedisTemplate.opsForSet().remove(RedisKeys.CHAT_ARCHIVE_PENDING, archiveKey);
+        if (inserted > 0) {
+            log.debug("Archived {} chat messages of meeting {}", inserted, meetingId);
+        }
+        return inserted;
+    }
+
+    private int archiveList(String archiveKey, String meetingId, long endedAt, long start) {
+        int batchSize = properties.getBatchSize();
+        int inserted = 0;
+        long position = start;
+        List<byte[]> chunk;
+        do {
+            chunk = chatRedisTemplate.opsForList().range(archiveKey, position, position + batchSize - 1);
+            if (chunk == null) {
+                break;
+            }
+            inserted += insert(meetingId, endedAt, position, chunk);
+            position += chunk.size();
+        } while (chunk.size() == batchSize);
+        return inserted;
+    }
+
+    // Streams have no positions, the entries already archived are read again and skipped
+    private int archiveStream(String archiveKey, String meetingId, long endedAt, long start) {
+        int batchSize = properties.getBatchSize();
+        int inserted = 0;
+        long position = 0;
+        Range<String> range = Range.unbounded();
+        List<MapRecord<String, String, byte[]>> chunk;
+        do {
+            chunk = chatRedisTemplate.<String, byte[]>opsForStream().range(archiveKey, range,
+                    Limit.limit().count(batchSize));
+            if (chunk == null || chunk.isEmpty()) {
+                break;
+            }
+            List<byte[]> entries = new ArrayList<>(chunk.size());
+            chunk.forEach(record -> entries.add(record.getValue().get(StreamChatStore.MESSAGE_FIELD)));
+            int skip = (int) Math.min(entries.size(), Math.max(0, start - position));
+            inserted += insert(meetingId, endedAt, position + skip, entries.subList(skip, entries.size()));
+            position += entries.size();
+
+            String lastId = chunk.get(chunk.size() - 1).getId().getValue();
+            range = Range.rightUnbounded(Range.Bound.inclusive(StreamChatStore.nextId(StreamChatStore.parseCursor(lastId))));
+        } while (chunk.size() == batchSize);
+        return inserted;
+    }
+
+    // Inserts the entries at positions first, first + 1, ... in one batch and transaction.
+    // Entries that cannot be decoded keep their position and are skipped.
+    private int insert(String meetingId, long endedAt, long first, List<byte[]> entries) {
+        List<Object[]> rows = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            ChatMessage message = decode(entries.get(i));
+            if (message != null) {
+                rows.add(new Object[]{meetingId, endedAt, first + i,
+                        message.getEmail(), message.getMessage(), message.getTimestamp()});
+            }
+        }
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL, rows));
+        archivedMessages.increment(rows.size());
+        return rows.size();
+    }
+
+    // Bounds the active stream chats by age, the length is bounded on append. Run by the scheduler leader only.
+    @Scheduled(fixedDelayString = "${meeting.chat.trim-interval:PT1M}")
+    public void trimActiveChats() {
+        if (chatProperties.getMaxAge() == null || chatProperties.getStore() != ChatProperties.Store.STREAM
+                || !leaderLease.isLeader()) {
+            return;
+        }
+        try {
+            Set<String> meetingIds = stringRedisTemplate.opsForSet().members(RedisKeys.ACTIVE_MEETING_KEYSPACE);
+            if (meetingIds == null || meetingIds.isEmpty()) {
+                return;
+            }
+            byte[] minId = bytes((System.currentTimeMillis() - chatProperties.getMaxAge().toMillis()) + "-0");
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (String meetingId : meetingIds) {
+                    connection.execute("XTRIM", bytes(RedisKeys.chat(meetingId)), bytes("MINID"), bytes("~"), minId);
+                }
+                return null;
+            });
+        } catch (DataAccessException e) {
+            LOG_LIMITER.warn(log, "trim", "Trimming the active chats failed: {}", e.getMessage());
+        }
+    }
+
+    // Archived messages of the meeting, all its activations in order, following the cursor of a previous page
+    public ChatPage page(String meetingId, String after, int limit) {
+        long[] position = after == null ? new long[]{Long.MIN_VALUE, Long.MIN_VALUE} : parseCursor(after);
+        List<ArchivedChatMessage> rows = chatArchiveRepository.findPage(meetingId, position[0], position[1],
+                org.springframework.data.domain.Limit.of(limit));
+        if (rows.isEmpty()) {
+            return new ChatPage(Collections.emptyList(), after, null);
+        }
+        ArchivedChatMessage lastRow = rows.get(rows.size() - 1);
+        List<ChatMessage> messages = rows.stream().map(ArchivedChatMessage::toChatMessage).toList();
+        return new ChatPage(messages, lastRow.getEndedAt() + "-" + lastRow.getSeq(), null);
+    }
+
+    // Archive cursors are <endedAt>-<seq>
+    private static long[] parseCursor(String cursor) {
+        try {
+            int dash = cursor.indexOf('-');
+            return new long[]{Long.parseLong(cursor.substring(0, dash)), Long.parseLong(cursor.substring(dash + 1))};
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid archive cursor: " + cursor);
+        }
+    }
+
+    private ChatMessage decode(byte[] entry) {
+        if (entry == null) {
+            return null;
+        }
+        try {
+            return chatCodec.decode(entry);
+        } catch (Exception e) {
+            LOG_LIMITER.warn(log, "decode", "Error decoding archived chat message: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,133 @@
+package gr.dmst.edu.redis.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.dmst.edu.redis.config.ChatProperties;
+import gr.dmst.edu.redis.model.ChatMessage;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Encoding of the chat entries, selected with meeting.chat.codec. Decoding goes by the first
+// byte, so chats mixing entries of both codecs (or written before the binary one) stay readable:
+// JSON entries start with '{', binary ones with their format version.
+//
+// Binary version 1: the version byte, a byte flagging the non-null fields (FLAG_*), then the
+// timestamp as a zigzag varint and the email and message as a varint length and UTF-8 bytes.
+@Component
+public class ChatCodec {
+    static final byte VERSION_1 = 1;
+    private static final byte JSON_START = '{';
+
+    private static final int FLAG_EMAIL = 1;
+    private static final int FLAG_MESSAGE = 2;
+    private static final int FLAG_TIMESTAMP = 4;
+
+    private final ObjectMapper objectMapper;
+    private final ChatProperties.Codec codec;
+
+    public ChatCodec(ObjectMapper objectMapper, ChatProperties properties) {
+        this.objectMapper = objectMapper;
+        this.codec = properties.getCodec();
+    }
+
+    public byte[] encode(ChatMessage message) throws IOException {
+        if (codec == ChatProperties.Codec.JSON) {
+            return objectMapper.writeValueAsBytes(message);
+        }
+        return encodeBinary(message);
+    }
+
+    public ChatMessage decode(byte[] data) throws IOException {
+        if (data == null || data.length == 0) {
+            throw new IOException("Empty chat message");
+        }
+        if (data[0] == JSON_START) {
+            return objectMapper.readValue(data, ChatMessage.class);
+        }
+        if (data[0] == VERSION_1) {
+            return decodeBinary(data);
+        }
+        throw new IOException("Unsupported chat message version " + data[0]);
+    }
+
+    private static byte[] encodeBinary(ChatMessage message) {
+        byte[] email = message.getEmail() == null ? null : message.getEmail().getBytes(StandardCharsets.UTF_8);
+        byte[] text = message.getMessage() == null ? null : message.getMessage().getBytes(StandardCharsets.UTF_8);
+        int flags = (email != null ? FLAG_EMAIL : 0)
+                | (text != null ? FLAG_MESSAGE : 0)
+                | (message.getTimestamp() != null ? FLAG_TIMESTAMP : 0);
+
+        // Version, flags, and at most 10 bytes per varint
+        byte[] out = new byte[2 + 30 + (email == null ? 0 : email.length) + (text == null ? 0 : text.length)];
+        out[0] = VERSION_1;
+        out[1] = (byte) flags;
+        int position = 2;
+        if (message.getTimestamp() != null) {
+            long timestamp = message.getTimestamp();
+            position = writeVarint(out, position, (timestamp << 1) ^ (timestamp >> 63));
+        }
+        position = writeBytes(out, position, email);
+        position = writeBytes(out, position, text);
+        return Arrays.copyOf(out, position);
+    }
+
+    private static ChatMessage decodeBinary(byte[] data) throws IOException {
+        try {
+            int flags = data[1];
+            int[] position = {2};
+            Long timestamp = null;
+            if ((flags & FLAG_TIMESTAMP) != 0) {
+                long zigzag = readVarint(data, position);
+                timestamp = (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+            String email = (flags & FLAG_EMAIL) != 0 ? readString(data, position) : null;
+            String message = (flags & FLAG_MESSAGE) != 0 ? readString(data, position) : null;
+            return new ChatMessage(email, message, timestamp);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Truncated chat message");
+        }
+    }
+
+    private static int writeBytes(byte[] out, int position, byte[] value) {
+        if (value == null) {
+            return position;
+        }
+        position = writeVarint(out, position, value.length);
+        System.arraycopy(value, 0, out, position, value.length);
+        return position + value.length;
+    }
+
+    // 7 bits per byte, least significant first, the high bit set on all but the last byte
+    private static int writeVarint(byte[] out, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out[position++] = (byte) value;
+        return position;
+    }
+
+    private static long readVarint(byte[] data, int[] position) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = data[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in chat message");
+    }
+
+    private static String readString(byte[] data, int[] position) throws IOException {
+        long length = readVarint(data, position);
+        if (length > data.length - position[0]) {
+            throw new IOException("Truncated chat message");
+        }
+        String value = new String(data, position[0], (int) length, StandardCharsets.UTF_8);
+        position[0] += (int) length;
+        return value;
+    }
+}
@@ -0,0 +1,28 @@
+package gr.dmst.edu.redis.service;
+
+import gr.dmst.edu.redis.model.ChatMessage;
+import gr.dmst.edu.redis.model.ChatPage;
+
+import java.util.List;
+
+// Storage of the meeting chats in Redis, selected with meeting.chat.store. Cursors are opaque
+// to clients: they are only valid for the store that returned them.
+public interface ChatStore {
+
+    // Appends a message and returns its cursor
+    String append(String meetingId, ChatMessage message) throws Exception;
+
+    List<ChatMessage> readAll(String meetingId);
+
+    // The last limit messages
+    ChatPage last(String meetingId, int limit);
+
+    // Up to limit messages following the cursor of a previous page
+    ChatPage after(String meetingId, String cursor, int limit);
+
+    // Up to limit messages preceding the cursor of a previous page
+    ChatPage before(String meetingId, String cursor, int limit);
+
+    // Up to limit messages posted after the timestamp (epoch millis)
+    ChatPage since(String meetingId, long timestamp, int limit);
+}
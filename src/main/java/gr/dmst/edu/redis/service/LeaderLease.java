@@ -0,0 +1,124 @@
+package gr.dmst.edu.redis.service;
+
+import gr.dmst.edu.redis.config.BackgroundThreads;
+import gr.dmst.edu.redis.config.SchedulerProperties;
+import gr.dmst.edu.redis.repository.RedisKeys;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Redis lease electing the one instance that runs the scheduler jobs, so their load stays the
+// same however many replicas run. The holder renews it on a thread of its own, well within its
+// time to live; when it stops, another instance takes over once the lease expired. Each
+// acquisition gets a larger fencing token, which the schedule scripts check, so a former leader
+// that was paused past its lease cannot claim meetings any more.
+@Component
+@Slf4j
+public class LeaderLease implements SmartLifecycle {
+    private static final LogRateLimiter LOG_LIMITER = new LogRateLimiter(Duration.ofSeconds(10));
+
+    private static final RedisScript<Long> ACQUIRE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/acquire_lease.lua"), Long.class);
+    private static final RedisScript<Long> RELEASE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/release_lease.lua"), Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final SchedulerProperties properties;
+    private final BackgroundThreads backgroundThreads;
+
+    private volatile long token;        // last token acquired, 0 when another instance holds the lease
+    private volatile long validUntil;   // System.nanoTime() at which this instance's view of the lease ends
+    private ScheduledExecutorService renewer;
+
+    public LeaderLease(StringRedisTemplate stringRedisTemplate, SchedulerProperties properties,
+                       BackgroundThreads backgroundThreads) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.properties = properties;
+        this.backgroundThreads = backgroundThreads;
+    }
+
+    // The fencing token while this instance holds the lease, 0 otherwise
+    public long token() {
+        long current = token;
+        return current != 0 && System.nanoTime() - validUntil < 0 ? current : 0;
+    }
+
+    public boolean isLeader() {
+        return token() != 0;
+    }
+
+    // Whether the token still holds the lease in Redis, not only in this instance's view of it.
+    // For jobs that cannot pass the token to a script, between their writes.
+    public boolean holds(long token) {
+        return token != 0 && String.valueOf(token).equals(stringRedisTemplate.opsForValue().get(RedisKeys.SCHEDULER_LEASE));
+    }
+
+    // Acquires the lease if it is free, or renews it if this instance holds it
+    void renew() {
+        // The lease expires in Redis after the script ran, so counting from here errs on the safe side
+        long started = System.nanoTime();
+        try {
+            Long result = stringRedisTemplate.execute(ACQUIRE_SCRIPT,
+                    List.of(RedisKeys.SCHEDULER_LEASE, RedisKeys.SCHEDULER_LEASE_TOKEN),
+                    String.valueOf(token), String.valueOf(properties.getLeaseTtl().toMillis()));
+            long acquired = result == null ? 0 : result;
+            if (acquired != 0 && acquired != token) {
+                log.info("Acquired the scheduler lease with fencing token {}", acquired);
+            } else if (acquired == 0 && token != 0) {
+                log.warn("Lost the scheduler lease of fencing token {}", token);
+            }
+            validUntil = started + properties.getLeaseTtl().toNanos();
+            token = acquired;
+        } catch (DataAccessException e) {
+            // Still the leader until the lease would have expired
+            LOG_LIMITER.warn(log, "renew", "Could not renew the scheduler lease: {}", e.getMessage());
+        }
+    }
+
+    // Gives the lease up so another instance takes over without waiting for it to expire
+    void release() {
+        long current = token;
+        token = 0;
+        if (current == 0) {
+            return;
+        }
+        try {
+            stringRedisTemplate.execute(RELEASE_SCRIPT, List.of(RedisKeys.SCHEDULER_LEASE), String.valueOf(current));
+            log.info("Released the scheduler lease of fencing token {}", current);
+        } catch (DataAccessException e) {
+            log.warn("Could not release the scheduler lease, it expires in {}: {}", properties.getLeaseTtl(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void start() {
+        renewer = Executors.newSingleThreadScheduledExecutor(backgroundThreads.factory("leader-lease-"));
+        renewer.scheduleWithFixedDelay(this::renew, 0, properties.getLeaseRenewInterval().toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        renewer.shutdownNow();
+        try {
+            renewer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        release();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return renewer != null && !renewer.isShutdown();
+    }
+}
@@ -0,0 +1,181 @@
+package gr.dmst.edu.redis.service;
+
+import gr.dmst.edu.redis.config.ChatProperties;
+import gr.dmst.edu.redis.model.ChatMessage;
+import gr.dmst.edu.redis.model.ChatPage;
+import gr.dmst.edu.redis.repository.RedisKeys;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+// Chat stored as a Redis list of messages encoded by ChatCodec under chat:{meetingId}, capped at
+// meeting.chat.max-length messages on append. Cursors are positions counted from the first message
+// ever appended: chat:{meetingId}:trimmed counts the messages trimmed from the head, so cursors
+// stay valid as the list is trimmed.
+@Component
+@ConditionalOnProperty(name = "meeting.chat.store", havingValue = "list", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class ListChatStore implements ChatStore {
+    private static final LogRateLimiter LOG_LIMITER = new LogRateLimiter(Duration.ofSeconds(10));
+
+    static final RedisScript<Long> APPEND_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/append_chat.lua"), Long.class);
+    @SuppressWarnings("rawtypes")
+    static final RedisScript<List> READ_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/read_chat.lua"), List.class);
+
+    private final RedisTemplate<String, byte[]> chatRedisTemplate;
+    private final ChatCodec chatCodec;
+    private final ChatProperties properties;
+
+    @Override
+    public String append(String meetingId, ChatMessage message) throws Exception {
+        Long position = chatRedisTemplate.execute(APPEND_SCRIPT, keys(RedisKeys.chat(meetingId)),
+                chatCodec.encode(message), bytes(properties.getMaxLength()));
+        return String.valueOf(position == null ? 0 : position);
+    }
+
+    @Override
+    public List<ChatMessage> readAll(String meetingId) {
+        List<byte[]> entries = chatRedisTemplate.opsForList().range(RedisKeys.chat(meetingId), 0, -1);
+        if (entries == null || entries.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return decode(entries);
+    }
+
+    @Override
+    public ChatPage last(String meetingId, int limit) {
+        return page(read(chatRedisTemplate, RedisKeys.chat(meetingId), -limit, -1, limit));
+    }
+
+    @Override
+    public ChatPage after(String meetingId, String cursor, int limit) {
+        long start = parseCursor(cursor);
+        return page(read(chatRedisTemplate, RedisKeys.chat(meetingId), start, Long.MAX_VALUE, limit));
+    }
+
+    @Override
+    public ChatPage before(String meetingId, String cursor, int limit) {
+        long end = parseCursor(cursor);
+        return page(read(chatRedisTemplate, RedisKeys.chat(meetingId), Math.max(0, end - limit), end - 1, limit));
+    }
+
+    @Override
+    public ChatPage since(String meetingId, long timestamp, int limit) {
+        String chatKey = RedisKeys.chat(meetingId);
+        long start;
+        long trimmed;
+        // The search runs on list indexes, it is repeated if the list was trimmed meanwhile
+        do {
+            trimmed = trimmed(chatKey);
+            Long size = chatRedisTemplate.opsForList().size(chatKey);
+            start = trimmed + firstIndexAfter(chatKey, size == null ? 0 : size, timestamp);
+        } while (trimmed != trimmed(chatKey));
+        return page(read(chatRedisTemplate, chatKey, start, Long.MAX_VALUE, limit));
+    }
+
+    // Up to limit messages kept at positions [first, last] of a list chat, see read_chat.lua.
+    // Shared with the reactive store and the migration to streams.
+    static Slice read(RedisTemplate<String, byte[]> chatRedisTemplate, String chatKey, long first, long last, int limit) {
+        return Slice.of(chatRedisTemplate.execute(READ_SCRIPT, keys(chatKey), args(first, last, limit)), first);
+    }
+
+    static Object[] args(long first, long last, int limit) {
+        return new Object[]{bytes(first), bytes(last), bytes(limit)};
+    }
+
+    static List<String> keys(String chatKey) {
+        return List.of(chatKey, RedisKeys.chatTrimmed(chatKey));
+    }
+
+    static byte[] bytes(long value) {
+        return String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    // A read range: the position of its first message, the messages and the position after the last message of the chat
+    record Slice(long first, List<byte[]> entries, long trimmed, long end) {
+        static Slice of(List<?> reply, long requestedFirst) {
+            if (reply == null || reply.size() < 2) {
+                return new Slice(Math.max(0, requestedFirst), Collections.emptyList(), 0, 0);
+            }
+            long trimmed = ((Number) reply.get(0)).longValue();
+            long end = trimmed + ((Number) reply.get(1)).longValue();
+            List<byte[]> entries = new ArrayList<>(reply.size() - 2);
+            for (Object entry : reply.subList(2, reply.size())) {
+                entries.add((byte[]) entry);
+            }
+            // The last messages end the chat, other ranges start at the requested position unless it was trimmed
+            long first = requestedFirst < 0 ? end - entries.size() : Math.max(requestedFirst, trimmed);
+            return new Slice(first, entries, trimmed, end);
+        }
+    }
+
+    // The previous cursor is only set while older messages are kept
+    private ChatPage page(Slice slice) {
+        return new ChatPage(decode(slice.entries()),
+                String.valueOf(slice.first() + slice.entries().size()),
+                slice.first() > slice.trimmed() ? String.valueOf(slice.first()) : null);
+    }
+
+    private long trimmed(String chatKey) {
+        byte[] trimmed = chatRedisTemplate.opsForValue().get(RedisKeys.chatTrimmed(chatKey));
+        return trimmed == null ? 0 : Long.parseLong(new String(trimmed, StandardCharsets.UTF_8));
+    }
+
+    // Binary search for the index of the first message posted after the timestamp, messages are appended in time order
+    private long firstIndexAfter(String chatKey, long total, long since) {
+        long low = 0;
+        long high = total;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            ChatMessage message = decode(chatRedisTemplate.opsForList().index(chatKey, mid));
+            if (message != null && message.getTimestamp() != null && message.getTimestamp() <= since) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static long parseCursor(String cursor) {
+        try {
+            return Math.max(0, Long.parseLong(cursor));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid chat cursor: " + cursor);
+        }
+    }
+
+    private List<ChatMessage> decode(List<byte[]> entries) {
+        return entries.stream()
+                .map(this::decode)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private ChatMessage decode(byte[] entry) {
+        if (entry == null) {
+            return null;
+        }
+        try {
+            return chatCodec.decode(entry);
+        } catch (Exception e) {
+            LOG_LIMITER.warn(log, "deserialize", "Error deserializing chat message: {}", e.getMessage());
+            return null;
+        }
+    }
+}
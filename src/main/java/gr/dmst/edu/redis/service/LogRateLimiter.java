@@ -0,0 +1,42 @@
+package gr.dmst.edu.redis.service;
+
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Lets through one warning per key and interval, for failures that can repeat on every request
+// or tick. The next warning let through carries the number suppressed in between as the
+// "suppressed" key, which structured log formats emit as a field.
+final class LogRateLimiter {
+    private final long intervalNanos;
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    LogRateLimiter(Duration interval) {
+        this.intervalNanos = interval.toNanos();
+    }
+
+    void warn(Logger logger, String key, String format, Object... args) {
+        if (!logger.isWarnEnabled()) {
+            return;
+        }
+        Window window = windows.computeIfAbsent(key, k -> new Window());
+        long now = System.nanoTime();
+        long next = window.next.get();
+        if (now - next < 0 || !window.next.compareAndSet(next, now + intervalNanos)) {
+            window.suppressed.incrementAndGet();
+            return;
+        }
+        logger.atWarn()
+                .addKeyValue("suppressed", window.suppressed.getAndSet(0))
+                .log(format, args);
+    }
+
+    private static final class Window {
+        // System.nanoTime() from which the next warning is let through
+        private final AtomicLong next = new AtomicLong(System.nanoTime());
+        private final AtomicLong suppressed = new AtomicLong();
+    }
+}
@@ -0,0 +1,280 @@
+package gr.dmst.edu.redis.service;
+
+import gr.dmst.edu.redis.config.BackgroundThreads;
+import gr.dmst.edu.redis.config.LogWriterProperties;
+import gr.dmst.edu.redis.model.Log;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Buffers activity logs in memory and writes them to Postgres in JDBC batches, either when a
+// batch is full or when the flush interval has passed, so requests never wait for an INSERT.
+// The id column is left to the database, which keeps the existing IDENTITY column working.
+// Each batch updates the attendance rollups in the same transaction; if that keeps failing the
+// logs are written alone and the rollups catch up on the next rebuild. While the database cannot
+// be reached a batch is retried with backoff; a batch failing otherwise, e.g. on a constraint, is
+// written log by log so only the bad logs are lost. Lost logs are counted in meetings.logs.dropped.
+@Component
+@Slf4j
+public class LogWriter implements SmartLifecycle {
+    private static final LogRateLimiter LOG_LIMITER = new LogRateLimiter(Duration.ofSeconds(10));
+    private static final int ROLLUP_ATTEMPTS = 3;
+    private static final String INSERT_SQL = "INSERT INTO log (email, meeting_id, timestamp, action) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final LogWriterProperties properties;
+    private final BackgroundThreads backgroundThreads;
+    private final AttendanceRollup attendanceRollup;
+    private final Counter droppedOnOverflow;
+    private final Counter droppedOnError;
+
+    private BlockingQueue<Log> queue;
+    private Thread worker;
+    private volatile boolean running;
+
+    public LogWriter(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, LogWriterProperties properties,
+                     BackgroundThreads backgroundThreads, AttendanceRollup attendanceRollup, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.backgroundThreads = backgroundThreads;
+        this.attendanceRollup = attendanceRollup;
+        this.droppedOnOverflow = Counter.builder("meetings.logs.dropped")
+                .description("Activity logs lost instead of written")
+                .tag("cause", "overflow")
+                .register(meterRegistry);
+        this.droppedOnError = Counter.builder("meetings.logs.dropped")
+                .description("Activity logs lost instead of written")
+                .tag("cause", "error")
+                .register(meterRegistry);
+    }
+
+    public void submit(Log entry) {
+        if (!running) {
+            write(List.of(entry));
+            return;
+        }
+        offer(entry);
+        // stop() may have drained the queue between the check above and the offer
+        if (!running) {
+            flushQueue();
+        }
+    }
+
+    private void offer(Log entry) {
+        switch (properties.getOverflowPolicy()) {
+            case BLOCK -> {
+                try {
+                    if (!queue.offer(entry, properties.getOfferTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                        write(List.of(entry));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    write(List.of(entry));
+                }
+            }
+            case CALLER_RUNS -> {
+                if (!queue.offer(entry)) {
+                    write(List.of(entry));
+                }
+            }
+            case DROP -> {
+                if (!queue.offer(entry)) {
+                    droppedOnOverflow.increment();
+                }
+            }
+        }
+    }
+
+    public void submitAll(Collection<Log> logs) {
+        logs.forEach(this::submit);
+    }
+
+    // Number of logs discarded, by the DROP policy or after failed writes
+    public long getDropped() {
+        return (long) (droppedOnOverflow.count() + droppedOnError.count());
+    }
+
+    public int getPending() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    @Override
+    public void start() {
+        queue = new ArrayBlockingQueue<>(properties.getCapacity());
+        running = true;
+        worker = backgroundThreads.factory("log-writer-").newThread(this::drainLoop);
+        worker.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            try {
+                worker.join(10_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Flush whatever is left. Logs submitted while stopping are flushed by their submitter
+        flushQueue();
+    }
+
+    private void flushQueue() {
+        List<Log> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        writeInBatches(remaining);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Stop after the web server so in-flight requests can still submit their logs
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void drainLoop() {
+        List<Log> batch = new ArrayList<>(properties.getBatchSize());
+        while (running) {
+            try {
+                Log first = queue.poll(properties.getFlushInterval().toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Keep collecting until the batch is full or the window closes
+                long deadline = System.nanoTime() + properties.getFlushInterval().toNanos();
+                while (batch.size() < properties.getBatchSize()) {
+                    queue.drainTo(batch, properties.getBatchSize() - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= properties.getBatchSize() || remaining <= 0) {
+                        break;
+                    }
+                    Log next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                write(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                // stop() interrupts the worker, the pending batch is written below
+                break;
+            }
+        }
+        write(batch);
+    }
+
+    private void writeInBatches(List<Log> logs) {
+        for (int i = 0; i < logs.size(); i += properties.getBatchSize()) {
+            write(logs.subList(i, Math.min(logs.size(), i + properties.getBatchSize())));
+        }
+    }
+
+    private void write(List<Log> logs) {
+        if (logs.isEmpty()) {
+            return;
+        }
+        try {
+            writeRetrying(logs);
+        } catch (RuntimeException e) {
+            if (logs.size() > 1 && !isConnectionFailure(e)) {
+                // One bad log fails the whole batch, written one by one only the bad ones are lost
+                logs.forEach(entry -> write(List.of(entry)));
+                return;
+            }
+            log.error("Could not write {} activity logs, dropping them: {}", logs.size(), e.getMessage());
+            droppedOnError.increment(logs.size());
+        }
+    }
+
+    // Retries with exponential backoff while the database cannot be reached
+    private void writeRetrying(List<Log> logs) {
+        Duration backoff = properties.getRetryBackoff();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                writeOnce(logs);
+                return;
+            } catch (RuntimeException e) {
+                if (!isConnectionFailure(e) || attempt >= properties.getRetryAttempts()) {
+                    throw e;
+                }
+                LOG_LIMITER.warn(log, "retry", "Could not reach the database to write {} activity logs, retrying in {}: {}",
+                        logs.size(), backoff, e.getMessage());
+                try {
+                    Thread.sleep(backoff.toMillis());
+                } catch (InterruptedException interrupted) {
+                    // Stopping, give up on this batch
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+                backoff = backoff.multipliedBy(2);
+                if (backoff.compareTo(properties.getMaxRetryBackoff()) > 0) {
+                    backoff = properties.getMaxRetryBackoff();
+                }
+            }
+        }
+    }
+
+    // Writes the logs with their rollups, or alone when the rollups keep failing
+    private void writeOnce(List<Log> logs) {
+        for (int attempt = 1; attempt <= ROLLUP_ATTEMPTS; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    insert(logs);
+                    attendanceRollup.apply(logs);
+                });
+                return;
+            } catch (DataIntegrityViolationException | TransientDataAccessException e) {
+                // Another writer created the same rollup row or won a deadlock, the retry sees its rows
+                if (attempt == ROLLUP_ATTEMPTS) {
+                    log.warn("Could not update the attendance rollups of {} logs, they need a rebuild: {}",
+                            logs.size(), e.getMessage());
+                }
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> insert(logs));
+    }
+
+    private static boolean isConnectionFailure(RuntimeException e) {
+        return e instanceof DataAccessResourceFailureException || e instanceof TransientDataAccessResourceException
+                || e instanceof RecoverableDataAccessException || e instanceof CannotCreateTransactionException;
+    }
+
+    private void insert(List<Log> logs) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, logs, logs.size(), (ps, entry) -> {
+            ps.setString(1, entry.getEmail());
+            ps.setString(2, entry.getMeetingId());
+            ps.setTimestamp(3, entry.getTimestamp() == null ? null : Timestamp.valueOf(entry.getTimestamp()));
+            ps.setInt(4, entry.getAction());
+        });
+    }
+}
@@ -0,0 +1,102 @@
+package gr.dmst.edu.redis.service;
+
+import gr.dmst.edu.redis.repository.RedisKeys;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Removes active meetings from Redis in bulk. Each meeting is torn down by one atomic script,
+// which also makes ending idempotent: only the first caller gets the joined participants back.
+// The script declares every key it touches, the per-user sets included, so their participants
+// are read first; a meeting whose participants changed in between is read and ended again.
+// The reads and the script calls for all the meetings go out in a pipeline each.
+@Component
+@RequiredArgsConstructor
+public class MeetingDeactivator {
+    @SuppressWarnings("rawtypes")
+    static final RedisScript<List> END_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/end_meeting.lua"), List.class);
+    private static final int MAX_ATTEMPTS = 10;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    // Returns the joined participants of the meetings that were active and are now ended
+    public Map<String, Set<String>> deactivate(Collection<String> meetingIds) {
+        List<String> pending = new ArrayList<>(new LinkedHashSet<>(meetingIds));
+        Map<String, Set<String>> ended = new LinkedHashMap<>();
+        for (int attempt = 1; !pending.isEmpty(); attempt++) {
+            if (attempt > MAX_ATTEMPTS) {
+                throw new IllegalStateException("Participants kept changing while ending meetings " + pending);
+            }
+            pending = deactivateOnce(pending, ended);
+        }
+        return ended;
+    }
+
+    // Adds the meetings ended to ended, returns the ones to retry
+    @SuppressWarnings("unchecked")
+    private List<String> deactivateOnce(List<String> ids, Map<String, Set<String>> ended) {
+        List<Object> members = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String meetingId : ids) {
+                connection.setCommands().sMembers(bytes(RedisKeys.meetingInvited(meetingId)));
+                connection.setCommands().sMembers(bytes(RedisKeys.meetingJoined(meetingId)));
+            }
+            return null;
+        });
+
+        byte[] sha = bytes(END_SCRIPT.getSha1());
+        List<Object> results = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            // Loading the script first keeps the EVALSHAs working after a script cache flush
+            connection.scriptingCommands().scriptLoad(bytes(END_SCRIPT.getScriptAsString()));
+            for (int i = 0; i < ids.size(); i++) {
+                String meetingId = ids.get(i);
+                List<String> invited = new ArrayList<>((Set<String>) members.get(2 * i));
+                List<String> joined = new ArrayList<>((Set<String>) members.get(2 * i + 1));
+                List<byte[]> keysAndArgs = new ArrayList<>();
+                keysAndArgs.add(bytes(RedisKeys.ACTIVE_MEETING_KEYSPACE));
+                keysAndArgs.add(bytes(RedisKeys.activeMeeting(meetingId)));
+                keysAndArgs.add(bytes(RedisKeys.meetingInvited(meetingId)));
+                keysAndArgs.add(bytes(RedisKeys.meetingJoined(meetingId)));
+                keysAndArgs.add(bytes(RedisKeys.GEO_ACTIVE_MEETINGS));
+                invited.forEach(email -> keysAndArgs.add(bytes(RedisKeys.userInvited(email))));
+                joined.forEach(email -> keysAndArgs.add(bytes(RedisKeys.userJoined(email))));
+                int keyCount = keysAndArgs.size();
+                keysAndArgs.add(bytes(meetingId));
+                keysAndArgs.add(bytes(String.valueOf(invited.size())));
+                invited.forEach(email -> keysAndArgs.add(bytes(email)));
+                joined.forEach(email -> keysAndArgs.add(bytes(email)));
+                connection.scriptingCommands().evalSha(sha, ReturnType.MULTI, keyCount, keysAndArgs.toArray(new byte[0][]));
+            }
+            return null;
+        });
+
+        List<String> retry = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            // Skip the script load reply. Each reply is the ended flag followed by the joined participants
+            List<?> reply = (List<?>) results.get(i + 1);
+            if (reply == null || reply.isEmpty()) {
+                continue;
+            }
+            long flag = ((Number) reply.get(0)).longValue();
+            if (flag == 1) {
+                Set<String> participants = new HashSet<>();
+                reply.subList(1, reply.size()).forEach(email -> participants.add(email.toString()));
+                ended.put(ids.get(i), participants);
+            } else if (flag == -1) {
+                retry.add(ids.get(i));
+            }
+        }
+        return retry;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
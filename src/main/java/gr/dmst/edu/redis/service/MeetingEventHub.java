@@ -0,0 +1,197 @@
+package gr.dmst.edu.redis.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.dmst.edu.redis.config.BackgroundThreads;
+import gr.dmst.edu.redis.config.EventProperties;
+import gr.dmst.edu.redis.model.MeetingEvent;
+import gr.dmst.edu.redis.repository.RedisKeys;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Pushes meeting events to server-sent event subscribers. Events are published on a Redis
+// channel per meeting, so the instance holding a subscription receives the events of every
+// instance. Each subscriber has a bounded buffer; one that falls behind is disconnected and
+// can catch up through the chat cursors when it reconnects.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MeetingEventHub implements MessageListener {
+    private static final LogRateLimiter LOG_LIMITER = new LogRateLimiter(Duration.ofSeconds(10));
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ObjectMapper objectMapper;
+    private final EventProperties properties;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final BackgroundThreads backgroundThreads;
+
+    private final Map<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private Executor sender;
+
+    @PostConstruct
+    void start() {
+        // With virtual threads every drain gets its own thread, a slow client only parks its own
+        sender = backgroundThreads.executor("meeting-events-", properties.getSenderThreads());
+        listenerContainer.addMessageListener(this, new PatternTopic(RedisKeys.EVENTS_CHANNEL_PREFIX + "*"));
+    }
+
+    @PreDestroy
+    void stop() {
+        subscribers.values().forEach(set -> set.forEach(subscriber -> subscriber.emitter.complete()));
+        subscribers.clear();
+        if (sender instanceof ExecutorService pool) {
+            pool.shutdown();
+        }
+    }
+
+    // Publishes the event to every instance, failures only cost the real-time update
+    public void publish(MeetingEvent event) {
+        try {
+            stringRedisTemplate.convertAndSend(RedisKeys.eventsChannel(event.getMeetingId()),
+                    objectMapper.writeValueAsString(event));
+        } catch (Exception e) {
+            LOG_LIMITER.warn(log, "publish", "Could not publish {} event of meeting {}: {}",
+                    event.getType(), event.getMeetingId(), e.getMessage());
+        }
+    }
+
+    // Publishes the events in one pipeline, e.g. for the meetings ended together
+    public void publishAll(List<MeetingEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        try {
+            List<String> payloads = new ArrayList<>(events.size());
+            for (MeetingEvent event : events) {
+                payloads.add(objectMapper.writeValueAsString(event));
+            }
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (int i = 0; i < events.size(); i++) {
+                    connection.publish(RedisKeys.eventsChannel(events.get(i).getMeetingId()).getBytes(StandardCharsets.UTF_8),
+                            payloads.get(i).getBytes(StandardCharsets.UTF_8));
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            LOG_LIMITER.warn(log, "publish", "Could not publish {} meeting events: {}", events.size(), e.getMessage());
+        }
+    }
+
+    public SseEmitter subscribe(String meetingId) {
+        SseEmitter emitter = new SseEmitter(properties.getSubscriptionTimeout().toMillis());
+        Subscriber subscriber = new Subscriber(meetingId, emitter);
+        subscribers.computeIfAbsent(meetingId, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        emitter.onCompletion(subscriber::remove);
+        emitter.onTimeout(subscriber::remove);
+        emitter.onError(e -> subscriber.remove());
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.values().stream().mapToInt(Set::size).sum();
+    }
+
+    // Events published by any instance
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+        Set<Subscriber> meetingSubscribers = subscribers.get(channel.substring(RedisKeys.EVENTS_CHANNEL_PREFIX.length()));
+        if (meetingSubscribers == null || meetingSubscribers.isEmpty()) {
+            return;
+        }
+
+        MeetingEvent event;
+        try {
+            event = objectMapper.readValue(message.getBody(), MeetingEvent.class);
+        } catch (Exception e) {
+            LOG_LIMITER.warn(log, "read", "Could not read meeting event from {}: {}", channel, e.getMessage());
+            return;
+        }
+        meetingSubscribers.forEach(subscriber -> subscriber.offer(event));
+    }
+
+    private final class Subscriber {
+        private final String meetingId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<MeetingEvent> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private Subscriber(String meetingId, SseEmitter emitter) {
+            this.meetingId = meetingId;
+            this.emitter = emitter;
+            this.buffer = new ArrayBlockingQueue<>(properties.getBufferSize());
+        }
+
+        void offer(MeetingEvent event) {
+            if (!buffer.offer(event)) {
+                log.debug("Disconnecting slow subscriber of meeting {}", meetingId);
+                remove();
+                emitter.complete();
+                return;
+            }
+            scheduleDrain();
+        }
+
+        // At most one sender thread writes to a subscriber at a time
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    sender.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    draining.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                MeetingEvent event;
+                while ((event = buffer.poll()) != null) {
+                    emitter.send(SseEmitter.event()
+                            .name(event.getType().name())
+                            .data(event, MediaType.APPLICATION_JSON));
+                    if (event.getType() == MeetingEvent.Type.ENDED) {
+                        remove();
+                        emitter.complete();
+                        return;
+                    }
+                }
+            } catch (Exception e) {
+                // The client went away
+                remove();
+                emitter.completeWithError(e);
+            } finally {
+                draining.set(false);
+            }
+            if (!buffer.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+
+        void remove() {
+            subscribers.computeIfPresent(meetingId, (id, set) -> {
+                set.remove(this);
+                return set.isEmpty() ? null : set;
+            });
+        }
+    }
+}
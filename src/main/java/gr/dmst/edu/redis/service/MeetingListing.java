@@ -0,0 +1,202 @@
+package gr.dmst.edu.redis.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.dmst.edu.redis.model.Meeting;
+import gr.dmst.edu.redis.model.MeetingPage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Lists the meetings table without loading it whole: keyset pages in (start time, id) order on
+// idx_meeting_start_time_id, and an export written as the rows come from a database cursor.
+// Both filter by a start time window [from, to) and by an invited participant.
+@Component
+@RequiredArgsConstructor
+public class MeetingListing {
+    private static final int FETCH_SIZE = 500;
+
+    private static final String MEETING_COLUMNS =
+            "m.meeting_id, m.title, m.description, m.start_time, m.end_time, m.latitude, m.longitude";
+    private static final RowMapper<Meeting> MEETING_MAPPER = (rs, row) -> toMeeting(rs);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    // The meetings following the cursor of a previous page. Meetings without a start time are not paged.
+    public MeetingPage page(LocalDateTime from, LocalDateTime to, String participant, String after, int limit) {
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT " + MEETING_COLUMNS + " FROM meeting m WHERE m.start_time IS NOT NULL");
+        appendFilters(sql, args, from, to, participant);
+        if (after != null) {
+            Cursor cursor = parseCursor(after);
+            sql.append(" AND (m.start_time > ? OR (m.start_time = ? AND m.meeting_id > ?))");
+            args.add(Timestamp.valueOf(cursor.startTime()));
+            args.add(Timestamp.valueOf(cursor.startTime()));
+            args.add(cursor.meetingId());
+        }
+        // One more row than asked tells whether there is a next page
+        sql.append(" ORDER BY m.start_time, m.meeting_id LIMIT ?");
+        args.add(limit + 1);
+
+        List<Meeting> meetings = jdbcTemplate.query(sql.toString(), MEETING_MAPPER, args.toArray());
+        boolean more = meetings.size() > limit;
+        if (more) {
+            meetings = new ArrayList<>(meetings.subList(0, limit));
+        }
+        loadParticipants(meetings);
+        Meeting last = more ? meetings.get(limit - 1) : null;
+        return new MeetingPage(meetings, last == null ? null : last.getStartTime() + "," + last.getMeetingId());
+    }
+
+    // Writes every matching meeting in id order, as one JSON array or one meeting per line (ndjson).
+    // The meetings are joined with their participants in one query and written a meeting at a time.
+    public void export(LocalDateTime from, LocalDateTime to, String participant, boolean ndjson, OutputStream out)
+            throws IOException {
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT " + MEETING_COLUMNS + ", p.email FROM meeting m "
+                + "LEFT JOIN meeting_participant p ON p.meeting_id = m.meeting_id WHERE 1 = 1");
+        appendFilters(sql, args, from, to, participant);
+        sql.append(" ORDER BY m.meeting_id");
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            if (!ndjson) {
+                generator.writeStartArray();
+            }
+            MeetingWriter writer = new MeetingWriter(generator, ndjson);
+            // The transaction lets the driver read the rows through a cursor, FETCH_SIZE at a time
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(sql.toString());
+                statement.setFetchSize(FETCH_SIZE);
+                for (int i = 0; i < args.size(); i++) {
+                    statement.setObject(i + 1, args.get(i));
+                }
+                return statement;
+            }, writer));
+            writer.flush();
+            if (!ndjson) {
+                generator.writeEndArray();
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void appendFilters(StringBuilder sql, List<Object> args,
+                                      LocalDateTime from, LocalDateTime to, String participant) {
+        if (from != null) {
+            sql.append(" AND m.start_time >= ?");
+            args.add(Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(" AND m.start_time < ?");
+            args.add(Timestamp.valueOf(to));
+        }
+        if (participant != null) {
+            // On idx_meeting_participant_email
+            sql.append(" AND m.meeting_id IN (SELECT meeting_id FROM meeting_participant WHERE email = ?)");
+            args.add(participant);
+        }
+    }
+
+    private void loadParticipants(List<Meeting> meetings) {
+        if (meetings.isEmpty()) {
+            return;
+        }
+        Map<String, Meeting> byId = meetings.stream()
+                .collect(Collectors.toMap(Meeting::getMeetingId, Function.identity()));
+        String placeholders = String.join(", ", Collections.nCopies(byId.size(), "?"));
+        jdbcTemplate.query("SELECT meeting_id, email FROM meeting_participant WHERE meeting_id IN (" + placeholders + ")",
+                (RowCallbackHandler) rs -> byId.get(rs.getString(1)).getParticipants().add(rs.getString(2)),
+                byId.keySet().toArray());
+    }
+
+    private static Meeting toMeeting(ResultSet rs) throws SQLException {
+        Meeting meeting = new Meeting();
+        meeting.setMeetingId(rs.getString(1));
+        meeting.setTitle(rs.getString(2));
+        meeting.setDescription(rs.getString(3));
+        Timestamp startTime = rs.getTimestamp(4);
+        meeting.setStartTime(startTime == null ? null : startTime.toLocalDateTime());
+        Timestamp endTime = rs.getTimestamp(5);
+        meeting.setEndTime(endTime == null ? null : endTime.toLocalDateTime());
+        meeting.setLatitude(rs.getObject(6, Double.class));
+        meeting.setLongitude(rs.getObject(7, Double.class));
+        return meeting;
+    }
+
+    // Page cursors are <startTime>,<meetingId> of the last meeting of the page
+    private static Cursor parseCursor(String cursor) {
+        int comma = cursor.indexOf(',');
+        if (comma < 0) {
+            throw new IllegalArgumentException("Invalid meeting cursor: " + cursor);
+        }
+        try {
+            return new Cursor(LocalDateTime.parse(cursor.substring(0, comma)), cursor.substring(comma + 1));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid meeting cursor: " + cursor);
+        }
+    }
+
+    private record Cursor(LocalDateTime startTime, String meetingId) {
+    }
+
+    // Collects the participant rows of a meeting and writes it when the next meeting starts
+    private static class MeetingWriter implements RowCallbackHandler {
+        private final JsonGenerator generator;
+        private final boolean ndjson;
+        private Meeting current;
+
+        MeetingWriter(JsonGenerator generator, boolean ndjson) {
+            this.generator = generator;
+            this.ndjson = ndjson;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            String meetingId = rs.getString(1);
+            if (current == null || !current.getMeetingId().equals(meetingId)) {
+                flush();
+                current = toMeeting(rs);
+            }
+            String email = rs.getString(8);
+            if (email != null) {
+                current.getParticipants().add(email);
+            }
+        }
+
+        void flush() {
+            if (current == null) {
+                return;
+            }
+            try {
+                generator.writeObject(current);
+                if (ndjson) {
+                    generator.writeRaw('\n');
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            current = null;
+        }
+    }
+}
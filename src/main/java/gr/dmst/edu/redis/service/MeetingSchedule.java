@@ -0,0 +1,123 @@
+package gr.dmst.edu.redis.service;
+
+import gr.dmst.edu.redis.model.Meeting;
+import gr.dmst.edu.redis.repository.RedisKeys;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.zset.DefaultTuple;
+import org.springframework.data.redis.connection.zset.Tuple;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Time-ordered start and end schedules of the meetings, kept as Redis sorted sets scored by
+// epoch millis so due meetings are found with a range query instead of a table scan
+@Component
+@RequiredArgsConstructor
+public class MeetingSchedule {
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> CLAIM_DUE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/claim_due.lua"), List.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    // Same convention as ActiveMeeting: meeting times are treated as UTC
+    public static long toMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    public static long nowMillis() {
+        return toMillis(LocalDateTime.now());
+    }
+
+    public void schedule(Meeting meeting) {
+        stringRedisTemplate.opsForZSet().add(RedisKeys.SCHEDULE_START, meeting.getMeetingId(), toMillis(meeting.getStartTime()));
+        scheduleEnd(meeting.getMeetingId(), toMillis(meeting.getEndTime()));
+    }
+
+    // Schedules many meetings with one ZADD per schedule, sent in one pipeline
+    public void scheduleAll(Collection<Meeting> meetings) {
+        if (meetings.isEmpty()) {
+            return;
+        }
+        Set<Tuple> starts = new HashSet<>();
+        Set<Tuple> ends = new HashSet<>();
+        for (Meeting meeting : meetings) {
+            byte[] id = meeting.getMeetingId().getBytes(StandardCharsets.UTF_8);
+            starts.add(new DefaultTuple(id, (double) toMillis(meeting.getStartTime())));
+            ends.add(new DefaultTuple(id, (double) toMillis(meeting.getEndTime())));
+        }
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.zSetCommands().zAdd(RedisKeys.SCHEDULE_START.getBytes(StandardCharsets.UTF_8), starts);
+            connection.zSetCommands().zAdd(RedisKeys.SCHEDULE_END.getBytes(StandardCharsets.UTF_8), ends);
+            return null;
+        });
+    }
+
+    public void scheduleEnd(String meetingId, long endMillis) {
+        stringRedisTemplate.opsForZSet().add(RedisKeys.SCHEDULE_END, meetingId, endMillis);
+    }
+
+    public void unschedule(String meetingId) {
+        stringRedisTemplate.opsForZSet().remove(RedisKeys.SCHEDULE_START, meetingId);
+        stringRedisTemplate.opsForZSet().remove(RedisKeys.SCHEDULE_END, meetingId);
+    }
+
+    // Removes and returns up to limit meetings whose start time has passed, with their start time.
+    // Nothing is claimed unless the fencing token still holds the scheduler lease.
+    // Claimed meetings that could not be processed must be given back with requeueStarts.
+    public Map<String, Long> claimDueStarts(long nowMillis, int limit, long leaseToken) {
+        return claimDue(RedisKeys.SCHEDULE_START, nowMillis, limit, leaseToken);
+    }
+
+    // Removes and returns up to limit meetings whose end time has passed, with their end time
+    public Map<String, Long> claimDueEnds(long nowMillis, int limit, long leaseToken) {
+        return claimDue(RedisKeys.SCHEDULE_END, nowMillis, limit, leaseToken);
+    }
+
+    // Puts claimed meetings back into the start schedule, so the next tick retries them
+    public void requeueStarts(Map<String, Long> claimed) {
+        requeue(RedisKeys.SCHEDULE_START, claimed);
+    }
+
+    public void requeueEnds(Map<String, Long> claimed) {
+        requeue(RedisKeys.SCHEDULE_END, claimed);
+    }
+
+    // NX keeps the time of a meeting rescheduled since the claim
+    private void requeue(String key, Map<String, Long> claimed) {
+        if (claimed.isEmpty()) {
+            return;
+        }
+        Set<TypedTuple<String>> tuples = new HashSet<>();
+        claimed.forEach((meetingId, millis) -> tuples.add(TypedTuple.of(meetingId, (double) millis)));
+        stringRedisTemplate.opsForZSet().addIfAbsent(key, tuples);
+    }
+
+    private Map<String, Long> claimDue(String key, long nowMillis, int limit, long leaseToken) {
+        List<?> due = stringRedisTemplate.execute(CLAIM_DUE_SCRIPT, List.of(key, RedisKeys.SCHEDULER_LEASE),
+                String.valueOf(nowMillis), String.valueOf(limit), String.valueOf(leaseToken));
+        if (due == null || due.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, Long> claimed = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < due.size(); i += 2) {
+            claimed.put(due.get(i).toString(), (long) Double.parseDouble(due.get(i + 1).toString()));
+        }
+        return claimed;
+    }
+}
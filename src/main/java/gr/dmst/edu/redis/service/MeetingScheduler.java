@@ -0,0 +1,184 @@
+package gr.dmst.edu.redis.service;
+
+import gr.dmst.edu.redis.config.SchedulerProperties;
+import gr.dmst.edu.redis.model.Meeting;
+import gr.dmst.edu.redis.repository.MeetingRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Activates and ends meetings at their scheduled times. Start and end times are kept in the
+// MeetingSchedule sorted sets, fed when meetings are created and by incremental Postgres
+// queries for the upcoming window, so each tick only touches the meetings changing state.
+// With several replicas only the holder of the LeaderLease runs the jobs.
+@Component
+@Slf4j
+public class MeetingScheduler {
+    private static final LogRateLimiter LOG_LIMITER = new LogRateLimiter(Duration.ofSeconds(10));
+
+    private final MeetingService meetingService;
+    private final MeetingSchedule meetingSchedule;
+    private final MeetingRepository meetingRepository;
+    private final SchedulerProperties properties;
+    private final LeaderLease leaderLease;
+    private final Timer activationLag;
+    private final Timer deactivationLag;
+    private final DistributionSummary activatedPerTick;
+    private final DistributionSummary deactivatedPerTick;
+
+    // Upper bound of the start times already loaded into the schedule, under the lease of loadedWithToken
+    private LocalDateTime loadedUntil;
+    private long loadedWithToken;
+
+    public MeetingScheduler(MeetingService meetingService, MeetingSchedule meetingSchedule,
+                            MeetingRepository meetingRepository, SchedulerProperties properties,
+                            LeaderLease leaderLease, MeterRegistry meterRegistry) {
+        this.meetingService = meetingService;
+        this.meetingSchedule = meetingSchedule;
+        this.meetingRepository = meetingRepository;
+        this.properties = properties;
+        this.leaderLease = leaderLease;
+        this.activationLag = Timer.builder("meetings.activation.lag")
+                .description("Delay between a meeting's start time and its activation")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.deactivationLag = Timer.builder("meetings.deactivation.lag")
+                .description("Delay between a meeting's end time and its deactivation")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        // Run durations are recorded by Spring as tasks.scheduled.execution
+        this.activatedPerTick = DistributionSummary.builder("meetings.scheduler.changes")
+                .description("Meetings changing state per scheduler tick")
+                .tag("action", "activated")
+                .register(meterRegistry);
+        this.deactivatedPerTick = DistributionSummary.builder("meetings.scheduler.changes")
+                .description("Meetings changing state per scheduler tick")
+                .tag("action", "deactivated")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${meeting.scheduler.poll-interval:PT1S}")
+    public void tick() {
+        long token = leaderLease.token();
+        if (token == 0) {
+            return;
+        }
+        try {
+            long now = MeetingSchedule.nowMillis();
+            activatedPerTick.record(activateDue(now, token));
+            deactivatedPerTick.record(deactivateDue(now, token));
+        } catch (DataAccessException e) {
+            LOG_LIMITER.warn(log, "tick", "Meeting scheduler tick failed: {}", e.getMessage());
+        }
+    }
+
+    // Loads the meetings starting within the lookahead window that were not loaded yet
+    @Scheduled(initialDelay = 0, fixedDelayString = "${meeting.scheduler.refill-interval:PT5M}")
+    public void refill() {
+        long token = leaderLease.token();
+        if (token == 0) {
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime until = now.plus(properties.getLookahead());
+            List<Meeting> meetings;
+            // Another instance may have led meanwhile, what it loaded is not known here
+            if (loadedUntil == null || loadedWithToken != token) {
+                // First run: meetings in progress and the upcoming ones
+                meetings = meetingRepository.findActiveMeetings(now);
+                meetings.addAll(meetingRepository.findStartingBetween(now, until));
+            } else {
+                meetings = meetingRepository.findStartingBetween(loadedUntil, until);
+            }
+            meetings.forEach(meetingSchedule::schedule);
+            loadedUntil = until;
+            loadedWithToken = token;
+            log.debug("Loaded {} meetings into the schedule until {}", meetings.size(), until);
+        } catch (DataAccessException e) {
+            log.warn("Meeting schedule refill failed: {}", e.getMessage());
+        }
+    }
+
+    // Full comparison of Postgres and Redis, only a safety net for missed schedule entries. Its writes
+    // are not scripts, so the fencing token is checked in Redis before each of them instead.
+    @Scheduled(initialDelayString = "${meeting.scheduler.reconcile-interval:PT1H}",
+            fixedDelayString = "${meeting.scheduler.reconcile-interval:PT1H}")
+    public void reconcile() {
+        long token = leaderLease.token();
+        if (token == 0) {
+            return;
+        }
+        try {
+            meetingService.updateActiveMeetings(() -> leaderLease.holds(token));
+        } catch (DataAccessException e) {
+            log.warn("Meeting reconciliation failed: {}", e.getMessage());
+        }
+    }
+
+    private int activateDue(long now, long token) {
+        int activated = 0;
+        Map<String, Long> due;
+        do {
+            due = meetingSchedule.claimDueStarts(now, properties.getBatchSize(), token);
+            if (due.isEmpty()) {
+                break;
+            }
+            Map<String, Long> unprocessed = new HashMap<>(due);
+            try {
+                // One query for the whole batch, participants included
+                for (Meeting meeting : meetingRepository.findAllWithParticipants(due.keySet())) {
+                    // Meetings that already ended are left to their end entry
+                    if (MeetingSchedule.toMillis(meeting.getEndTime()) > now
+                            && !meetingService.isActive(meeting.getMeetingId())) {
+                        meetingService.activateMeeting(meeting);
+                        activationLag.record(Math.max(0, now - due.get(meeting.getMeetingId())), TimeUnit.MILLISECONDS);
+                        activated++;
+                    }
+                    unprocessed.remove(meeting.getMeetingId());
+                }
+            } catch (RuntimeException e) {
+                // Ids missing from Postgres belong to deleted meetings, only a failure gives them back
+                meetingSchedule.requeueStarts(unprocessed);
+                throw e;
+            }
+        } while (due.size() == properties.getBatchSize());
+        return activated;
+    }
+
+    private int deactivateDue(long now, long token) {
+        int deactivated = 0;
+        Map<String, Long> due;
+        do {
+            due = meetingSchedule.claimDueEnds(now, properties.getBatchSize(), token);
+            if (due.isEmpty()) {
+                break;
+            }
+            // The whole batch is ended with a few round trips
+            List<String> ended;
+            try {
+                ended = meetingService.endMeetings(due.keySet());
+            } catch (RuntimeException e) {
+                // Ending is idempotent, so the whole batch is retried
+                meetingSchedule.requeueEnds(due);
+                throw e;
+            }
+            for (String meetingId : ended) {
+                deactivationLag.record(Math.max(0, now - due.get(meetingId)), TimeUnit.MILLISECONDS);
+                deactivated++;
+            }
+        } while (due.size() == properties.getBatchSize());
+        return deactivated;
+    }
+}
@@ -1,85 +1,121 @@
 package gr.dmst.edu.redis.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import gr.dmst.edu.redis.model.ActiveMeeting;
+import gr.dmst.edu.redis.model.BulkJoin;
 import gr.dmst.edu.redis.model.ChatMessage;
+import gr.dmst.edu.redis.model.ChatPage;
 import gr.dmst.edu.redis.model.Log;
 import gr.dmst.edu.redis.model.Meeting;
+import gr.dmst.edu.redis.model.MeetingEvent;
 import gr.dmst.edu.redis.repository.ActiveMeetingRepository;
-import gr.dmst.edu.redis.repository.LogRepository;
 import gr.dmst.edu.redis.repository.MeetingRepository;
-import gr.dmst.edu.redis.repository.UserRepository;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.dmst.edu.redis.repository.RedisKeys;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.redis.core.RedisTemplate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.*;
+import java.util.function.BooleanSupplier;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class MeetingService {
+    private static final LogRateLimiter LOG_LIMITER = new LogRateLimiter(Duration.ofSeconds(10));
+
     private final MeetingRepository meetingRepository;
-    private final UserRepository userRepository;
-    private final LogRepository logRepository;
+    private final LogWriter logWriter;
     private final ActiveMeetingRepository activeMeetingRepository;
-    private final RedisTemplate<String, Object> redisTemplate;
     private final StringRedisTemplate stringRedisTemplate;
-    private final ObjectMapper objectMapper;
-
-    private static final String CHAT_KEY_PREFIX = "chat:";
-    private static final double MAX_DISTANCE_METERS = 100.0;
-
-    @Scheduled(fixedRate = 60000) // Run every minute
-    public void updateActiveMeetings() {
+    private final ActiveMeetingIndex activeMeetingIndex;
+    private final ParticipantStore participantStore;
+    private final MeetingSchedule meetingSchedule;
+    private final ChatStore chatStore;
+    private final ChatArchiver chatArchiver;
+    private final MeetingEventHub meetingEventHub;
+    private final ActiveMeetingCache activeMeetingCache;
+    private final MeetingDeactivator meetingDeactivator;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${meeting.nearby.radius-meters:100}")
+    private double nearbyRadiusMeters = 100.0;
+
+    // Full reconciliation of Postgres and Redis, MeetingScheduler activates meetings on time.
+    // stillLeading is checked before each write, a former leader stops once it lost the lease.
+    public void updateActiveMeetings(BooleanSupplier stillLeading) {
         LocalDateTime now = LocalDateTime.now();
-        System.out.println("Scheduler running at: " + now);
 
         // Get meetings that should be active from PostgreSQL
         List<Meeting> activeMeetings = meetingRepository.findActiveMeetings(now);
-        System.out.println("Found " + activeMeetings.size() + " meetings that should be active");
+        int activated = 0;
 
         for (Meeting meeting : activeMeetings) {
-            System.out.println("Processing meeting: " + meeting.getMeetingId());
-
-            // Convert PostgreSQL meeting to Redis ActiveMeeting using the existing method
-            ActiveMeeting activeMeeting = convertToActiveMeeting(meeting);
-
-            // Check if meeting is already active in Redis
-            Optional<ActiveMeeting> existingMeeting = activeMeetingRepository.findById(meeting.getMeetingId());
-
-            // If not already in Redis, or needs updating, save it
-            if (existingMeeting.isEmpty()) {
-                System.out.println("Activating new meeting: " + meeting.getMeetingId());
-                activeMeetingRepository.save(activeMeeting);
-                System.out.println("Meeting saved to Redis: " + meeting.getMeetingId());
+            // If not already active in Redis, save it
+            if (!isActive(meeting.getMeetingId())) {
+                if (!stillLeading.getAsBoolean()) {
+                    log.warn("Reconciliation stopped, the scheduler lease was lost");
+                    return;
+                }
+                log.debug("Activating meeting {}", meeting.getMeetingId());
+                activateMeeting(meeting);
+                activated++;
             }
         }
 
         // Find meetings that should be deactivated
-        List<String> activeIds = activeMeetings.stream()
+        Set<String> activeIds = activeMeetings.stream()
                 .map(Meeting::getMeetingId)
-                .collect(Collectors.toList());
+                .collect(Collectors.toSet());
 
-        // Get all active meeting IDs from Redis
-        List<String> redisIds = StreamSupport.stream(activeMeetingRepository.findAll().spliterator(), false)
-                .map(ActiveMeeting::getMeetingId)
+        // Deactivate the meetings in Redis that should no longer be active, all at once
+        List<String> staleIds = getAllActiveMeetings().stream()
+                .filter(id -> !activeIds.contains(id))
                 .collect(Collectors.toList());
+        if (!staleIds.isEmpty() && !stillLeading.getAsBoolean()) {
+            log.warn("Reconciliation stopped, the scheduler lease was lost");
+            return;
+        }
+        int deactivated = staleIds.isEmpty() ? 0 : endMeetings(staleIds).size();
 
-        // Deactivate meetings that should no longer be active
-        for (String id : redisIds) {
-            if (!activeIds.contains(id)) {
-                System.out.println("Deactivating meeting: " + id);
-                endMeeting(id);
-            }
+        // Anything changed here was missed by the scheduler
+        if (activated > 0 || deactivated > 0) {
+            log.info("Reconciliation activated {} and deactivated {} meetings", activated, deactivated);
+        } else {
+            log.debug("Reconciliation found {} active meetings in sync", activeMeetings.size());
         }
     }
 
+    // Stores the meeting in Redis and registers it in the geo and per-user indexes
+    public ActiveMeeting activateMeeting(Meeting meeting) {
+        ActiveMeeting activeMeeting = convertToActiveMeeting(meeting);
+        // Invited first, joins are accepted as soon as the hash marks the meeting active
+        participantStore.register(activeMeeting);
+        activeMeetingRepository.save(activeMeeting);
+        activeMeetingCache.invalidate(activeMeeting.getMeetingId());
+        // Skipped when the meeting was ended since the save, end_meeting.lua has nothing left to remove then
+        activeMeetingIndex.add(activeMeeting);
+        // Make sure the meeting ends on time, also when activated manually or by reconciliation
+        meetingSchedule.scheduleEnd(activeMeeting.getMeetingId(), activeMeeting.getEndTime());
+        return activeMeeting;
+    }
+
+    // Answered from the local cache, only a miss reads the hash from Redis
+    public boolean isActive(String meetingId) {
+        return activeMeetingCache.get(meetingId).isPresent();
+    }
+
+    public Optional<ActiveMeeting> findActiveMeeting(String meetingId) {
+        return activeMeetingCache.get(meetingId);
+    }
+
     private ActiveMeeting convertToActiveMeeting(Meeting meeting) {
         ActiveMeeting activeMeeting = new ActiveMeeting();
         activeMeeting.setMeetingId(meeting.getMeetingId());
@@ -89,31 +125,26 @@ public class MeetingService {
         activeMeeting.setEndTime(meeting.getEndTime().toInstant(ZoneOffset.UTC).toEpochMilli());
         activeMeeting.setLatitude(meeting.getLatitude());
         activeMeeting.setLongitude(meeting.getLongitude());
-
-        // Parse participants
-        Set<String> participants = Arrays.stream(meeting.getParticipants().split(","))
-                .map(String::trim)
-                .collect(Collectors.toSet());
-        activeMeeting.setParticipants(participants);
+        activeMeeting.setParticipants(new HashSet<>(meeting.getParticipants()));
 
         return activeMeeting;
     }
 
     // Function 1: Find nearby active meetings for a user
+    // x is the latitude and y the longitude of the user, the radius is in meters
     public List<String> findNearbyMeetings(String email, double x, double y) {
         List<String> result = new ArrayList<>();
 
-        // Get all active meetings
-        Iterable<ActiveMeeting> meetings = activeMeetingRepository.findAll();
+        // Active meetings the user is invited to
+        Set<String> invited = activeMeetingIndex.invitedMeetings(email);
+        if (invited.isEmpty()) {
+            return result;
+        }
 
-        for (ActiveMeeting meeting : meetings) {
-            // Check if user is a participant
-            if (meeting.getParticipants().contains(email)) {
-                // Calculate distance
-                double distance = calculateDistance(x, y, meeting.getLatitude(), meeting.getLongitude());
-                if (distance <= MAX_DISTANCE_METERS) {
-                    result.add(meeting.getMeetingId());
-                }
+        // Radius search on the geo index, closest first
+        for (String meetingId : activeMeetingIndex.nearby(x, y, nearbyRadiusMeters)) {
+            if (invited.contains(meetingId)) {
+                result.add(meetingId);
             }
         }
 
@@ -122,164 +153,178 @@ public class MeetingService {
 
     // Function 2: User joins a meeting
     public boolean joinMeeting(String email, String meetingId) {
-        Optional<ActiveMeeting> optionalMeeting = activeMeetingRepository.findById(meetingId);
-        if (optionalMeeting.isEmpty()) {
-            return false; // Meeting not active
+        // Checks the meeting is active and the user invited, then joins, in one atomic script
+        long result = participantStore.join(email, meetingId);
+        if (result < 0) {
+            return false; // Meeting not active or user not a participant
         }
 
-        ActiveMeeting meeting = optionalMeeting.get();
-
-        // Check if user is a participant
-        if (!meeting.getParticipants().contains(email)) {
-            return false;
+        // Log the action, only once per actual join
+        if (result == ParticipantStore.JOINED) {
+            Log entry = new Log();
+            entry.setEmail(email);
+            entry.setMeetingId(meetingId);
+            entry.setTimestamp(LocalDateTime.now());
+            entry.setAction(Log.JOIN_MEETING);
+            logWriter.submit(entry);
+            meetingEventHub.publish(MeetingEvent.of(MeetingEvent.Type.JOIN, meetingId, email));
         }
 
-        // Add to joined participants
-        meeting.getJoinedParticipants().add(email);
-        activeMeetingRepository.save(meeting);
-
-        // Log the action
-        Log log = new Log();
-        log.setEmail(email);
-        log.setMeetingId(meetingId);
-        log.setTimestamp(LocalDateTime.now());
-        log.setAction(Log.JOIN_MEETING);
-        logRepository.save(log);
-
         return true;
     }
 
-    // Function 3: User leaves a meeting
-    public boolean leaveMeeting(String email, String meetingId) {
-        Optional<ActiveMeeting> optionalMeeting = activeMeetingRepository.findById(meetingId);
-        if (optionalMeeting.isEmpty()) {
-            return false; // Meeting not active
+    // Function 2b: Many users join meetings at once, e.g. a calendar sync. The join scripts go out
+    // in one pipeline and the logs of the actual joins are written as one batch.
+    // Returns the result of each join as ParticipantStore.join does.
+    public List<Long> joinMeetings(List<BulkJoin> joins) {
+        List<Long> results = participantStore.joinAll(joins);
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Log> logs = new ArrayList<>();
+        List<MeetingEvent> events = new ArrayList<>();
+        for (int i = 0; i < joins.size(); i++) {
+            if (results.get(i) == ParticipantStore.JOINED) {
+                BulkJoin join = joins.get(i);
+                Log entry = new Log();
+                entry.setEmail(join.getEmail());
+                entry.setMeetingId(join.getMeetingId());
+                entry.setTimestamp(now);
+                entry.setAction(Log.JOIN_MEETING);
+                logs.add(entry);
+                events.add(MeetingEvent.of(MeetingEvent.Type.JOIN, join.getMeetingId(), join.getEmail()));
+            }
         }
+        logWriter.submitAll(logs);
+        meetingEventHub.publishAll(events);
 
-        ActiveMeeting meeting = optionalMeeting.get();
+        return results;
+    }
 
-        // Check if user is joined
-        if (!meeting.getJoinedParticipants().contains(email)) {
+    // Function 3: User leaves a meeting
+    public boolean leaveMeeting(String email, String meetingId) {
+        // Meeting not active or user not joined
+        if (participantStore.leave(email, meetingId) != ParticipantStore.LEFT) {
             return false;
         }
 
-        // Remove from joined participants
-        meeting.getJoinedParticipants().remove(email);
-        activeMeetingRepository.save(meeting);
-
         // Log the action
-        Log log = new Log();
-        log.setEmail(email);
-        log.setMeetingId(meetingId);
-        log.setTimestamp(LocalDateTime.now());
-        log.setAction(Log.LEAVE_MEETING);
-        logRepository.save(log);
+        Log entry = new Log();
+        entry.setEmail(email);
+        entry.setMeetingId(meetingId);
+        entry.setTimestamp(LocalDateTime.now());
+        entry.setAction(Log.LEAVE_MEETING);
+        logWriter.submit(entry);
+        meetingEventHub.publish(MeetingEvent.of(MeetingEvent.Type.LEAVE, meetingId, email));
 
         return true;
     }
 
     // Function 4: List joined participants
     public List<String> getJoinedParticipants(String meetingId) {
-        Optional<ActiveMeeting> optionalMeeting = activeMeetingRepository.findById(meetingId);
-        if (optionalMeeting.isEmpty()) {
-            return Collections.emptyList();
-        }
+        return new ArrayList<>(participantStore.joined(meetingId));
+    }
 
-        return new ArrayList<>(optionalMeeting.get().getJoinedParticipants());
+    public boolean isJoined(String email, String meetingId) {
+        return participantStore.isJoined(email, meetingId);
     }
 
     // Function 5: List all active meetings
     public List<String> getAllActiveMeetings() {
-        return StreamSupport.stream(activeMeetingRepository.findAll().spliterator(), false)
-                .map(ActiveMeeting::getMeetingId)
-                .collect(Collectors.toList());
+        // The repository keeps the ids of all the hashes in a set, no need to load them
+        Set<String> ids = stringRedisTemplate.opsForSet().members(RedisKeys.ACTIVE_MEETING_KEYSPACE);
+        return ids == null ? new ArrayList<>() : new ArrayList<>(ids);
     }
 
     // Function 6: End a meeting
     public boolean endMeeting(String meetingId) {
-        Optional<ActiveMeeting> optionalMeeting = activeMeetingRepository.findById(meetingId);
-        if (optionalMeeting.isEmpty()) {
-            return false;
-        }
+        return !endMeetings(List.of(meetingId)).isEmpty();
+    }
 
-        ActiveMeeting meeting = optionalMeeting.get();
+    // Function 6b: End many meetings at once, e.g. all the meetings ending in the same minute.
+    // Redis is cleaned up with one pipeline of atomic scripts, which only end the meetings that are
+    // still active, and the timeouts of all the meetings are written as one batch.
+    // Returns the ids of the meetings that were ended here.
+    public List<String> endMeetings(Collection<String> meetingIds) {
+        Map<String, Set<String>> ended = meetingDeactivator.deactivate(meetingIds);
+        if (ended.isEmpty()) {
+            return Collections.emptyList();
+        }
+        // Dropped from the local cache before anything is published, other instances follow on the invalidation message
+        activeMeetingCache.invalidate(ended.keySet());
 
         // Log timeout for all joined participants
         LocalDateTime now = LocalDateTime.now();
-        for (String email : meeting.getJoinedParticipants()) {
-            Log log = new Log();
-            log.setEmail(email);
-            log.setMeetingId(meetingId);
-            log.setTimestamp(now);
-            log.setAction(Log.TIME_OUT);
-            logRepository.save(log);
-        }
-
-        // Delete the meeting from Redis
-        activeMeetingRepository.deleteById(meetingId);
+        List<Log> timeouts = new ArrayList<>();
+        List<MeetingEvent> events = new ArrayList<>();
+        ended.forEach((meetingId, joined) -> {
+            for (String email : joined) {
+                Log entry = new Log();
+                entry.setEmail(email);
+                entry.setMeetingId(meetingId);
+                entry.setTimestamp(now);
+                entry.setAction(Log.TIME_OUT);
+                timeouts.add(entry);
+                events.add(MeetingEvent.of(MeetingEvent.Type.TIME_OUT, meetingId, email));
+            }
+            // ENDED closes the subscriptions of the meeting
+            events.add(MeetingEvent.of(MeetingEvent.Type.ENDED, meetingId, null));
+        });
+        logWriter.submitAll(timeouts);
 
-        // Delete chat messages - using StringRedisTemplate
-        stringRedisTemplate.delete(CHAT_KEY_PREFIX + meetingId);
+        // The chats are moved to Postgres in the background
+        chatArchiver.archive(ended.keySet());
+        meetingEventHub.publishAll(events);
 
-        return true;
+        return new ArrayList<>(ended.keySet());
     }
 
     // Function 7: Post a message to chat
     public boolean postMessageToMeeting(String meetingId, String email, String text) {
-        // Check if meeting exists
-        Optional<ActiveMeeting> optionalMeeting = activeMeetingRepository.findById(meetingId);
-        if (optionalMeeting.isEmpty()) {
-            return false; // Meeting doesn't exist
+        // The cache may still hold a meeting ended on another instance, so membership is confirmed
+        // in Redis, where end_meeting.lua removes the joined set together with the hash
+        if (!isActive(meetingId) || !participantStore.isJoined(email, meetingId)) {
+            return false;
         }
 
-        // Construct the chat key for this meeting
-        String chatKey = CHAT_KEY_PREFIX + meetingId;
-
-        // Create message and convert to JSON string
+        // Create message and store it in the meeting chat
         ChatMessage message = new ChatMessage(email, text, System.currentTimeMillis());
         try {
-            String jsonMessage = objectMapper.writeValueAsString(message);
-            stringRedisTemplate.opsForList().rightPush(chatKey, jsonMessage);
+            String cursor = chatStore.append(meetingId, message);
+            meterRegistry.counter("meetings.chat.messages").increment();
+            meetingEventHub.publish(MeetingEvent.chatMessage(meetingId, message, cursor));
             return true;
         } catch (Exception e) {
-            System.err.println("Error serializing chat message: " + e.getMessage());
+            String cause = e instanceof JsonProcessingException ? "serialization" : "store";
+            meterRegistry.counter("meetings.chat.append.failures", "cause", cause).increment();
+            LOG_LIMITER.warn(log, "chat-append", "Error storing chat message of meeting {}: {}", meetingId, e.getMessage());
             return false;
         }
     }
 
     // Function 8: Get all chat messages for a meeting
     public List<ChatMessage> getMeetingChatMessages(String meetingId) {
-        String chatKey = CHAT_KEY_PREFIX + meetingId;
+        return chatStore.readAll(meetingId);
+    }
 
-        Long size = stringRedisTemplate.opsForList().size(chatKey);
-        if (size == null || size == 0) {
-            return Collections.emptyList();
+    // Function 8b: Get a page of chat messages for a meeting, reading only that range from Redis:
+    // the messages after a cursor, before a cursor, posted after a timestamp, or else the last ones
+    public ChatPage getMeetingChatPage(String meetingId, String after, String before, Long since, int limit) {
+        if (after != null) {
+            return chatStore.after(meetingId, after, limit);
         }
-
-        List<String> jsonMessages = stringRedisTemplate.opsForList().range(chatKey, 0, size - 1);
-        if (jsonMessages == null || jsonMessages.isEmpty()) {
-            return Collections.emptyList();
+        if (before != null) {
+            return chatStore.before(meetingId, before, limit);
         }
-
-        return jsonMessages.stream()
-                .map(jsonStr -> {
-                    try {
-                        return objectMapper.readValue(jsonStr, ChatMessage.class);
-                    } catch (Exception e) {
-                        System.err.println("Error deserializing chat message: " + e.getMessage());
-                        return null;
-                    }
-                })
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
+        if (since != null) {
+            return chatStore.since(meetingId, since, limit);
+        }
+        return chatStore.last(meetingId, limit);
     }
 
     // Function 9: Get all messages posted by a user from all meetings
     public List<ChatMessage> getUserMessages(String email) {
         // Find all meetings the user has joined
-        List<ActiveMeeting> joinedMeetings = StreamSupport.stream(activeMeetingRepository.findAll().spliterator(), false)
-                .filter(m -> m.getJoinedParticipants().contains(email))
-                .collect(Collectors.toList());
+        Set<String> joinedMeetings = activeMeetingIndex.joinedMeetings(email);
 
         if (joinedMeetings.isEmpty()) {
             return Collections.emptyList();
@@ -288,8 +333,8 @@ public class MeetingService {
         // Get all messages from all joined meetings and filter by user
         List<ChatMessage> allUserMessages = new ArrayList<>();
 
-        for (ActiveMeeting meeting : joinedMeetings) {
-            List<ChatMessage> meetingMessages = getMeetingChatMessages(meeting.getMeetingId());
+        for (String meetingId : joinedMeetings) {
+            List<ChatMessage> meetingMessages = getMeetingChatMessages(meetingId);
             // Filter only messages by this user
             List<ChatMessage> userMessagesInMeeting = meetingMessages.stream()
                     .filter(msg -> email.equals(msg.getEmail()))
@@ -302,9 +347,8 @@ public class MeetingService {
     }
     // Function: Get messages from a specific user in a specific meeting
     public List<ChatMessage> getUserMessagesInMeeting(String email, String meetingId) {
-        // Check if meeting exists and user is joined
-        Optional<ActiveMeeting> optionalMeeting = activeMeetingRepository.findById(meetingId);
-        if (optionalMeeting.isEmpty() || !optionalMeeting.get().getJoinedParticipants().contains(email)) {
+        // Check if user is joined, the index only holds active meetings
+        if (!activeMeetingIndex.isJoined(email, meetingId)) {
             return Collections.emptyList();
         }
 
@@ -316,13 +360,4 @@ public class MeetingService {
                 .filter(msg -> email.equals(msg.getEmail()))
                 .collect(Collectors.toList());
     }
-
-
-    // Helper method to calculate distance between two points
-    private double calculateDistance(double x1, double y1, double x2, double y2) {
-        // Simple Euclidean distance - in a real app would use Haversine formula for geographic coordinates
-        double dx = x2 - x1;
-        double dy = y2 - y1;
-        return Math.sqrt(dx * dx + dy * dy);
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,80 @@
+package gr.dmst.edu.redis.service;
+
+import gr.dmst.edu.redis.model.Meeting;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Moves the participants of meetings stored before the meeting_participant table, kept in the
+// comma-separated meeting.participants column, into the table. Runs on startup before the
+// scheduler and the web server start. Meetings are migrated in chunks, each in one transaction
+// that also clears their column, so an interrupted migration resumes where it stopped. The column
+// is left in place (and picked up on the next startup) while instances of the old version still write it.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ParticipantMigration implements SmartInitializingSingleton {
+    static final int CHUNK_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        int migrated = migrate();
+        if (migrated > 0) {
+            log.info("Migrated the participants of {} meetings to the meeting_participant table", migrated);
+        }
+    }
+
+    // Returns the number of meetings migrated
+    int migrate() {
+        if (!hasParticipantsColumn()) {
+            return 0;
+        }
+        int migrated = 0;
+        List<Map<String, Object>> chunk;
+        do {
+            chunk = jdbcTemplate.queryForList(
+                    "SELECT meeting_id, participants FROM meeting WHERE participants IS NOT NULL ORDER BY meeting_id LIMIT ?",
+                    CHUNK_SIZE);
+            migrateChunk(chunk);
+            migrated += chunk.size();
+        } while (chunk.size() == CHUNK_SIZE);
+        return migrated;
+    }
+
+    private void migrateChunk(List<Map<String, Object>> chunk) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<Object[]> meetingIds = new ArrayList<>(chunk.size());
+        List<Object[]> rows = new ArrayList<>();
+        for (Map<String, Object> meeting : chunk) {
+            Object meetingId = meeting.get("meeting_id");
+            meetingIds.add(new Object[]{meetingId});
+            for (String email : Meeting.parseParticipants((String) meeting.get("participants"))) {
+                rows.add(new Object[]{meetingId, email});
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            // The column is the latest write of an old version instance, it replaces the rows
+            jdbcTemplate.batchUpdate("DELETE FROM meeting_participant WHERE meeting_id = ?", meetingIds);
+            jdbcTemplate.batchUpdate("INSERT INTO meeting_participant (meeting_id, email) VALUES (?, ?)", rows);
+            jdbcTemplate.batchUpdate("UPDATE meeting SET participants = NULL WHERE meeting_id = ?", meetingIds);
+        });
+    }
+
+    private boolean hasParticipantsColumn() {
+        Integer columns = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.columns "
+                + "WHERE LOWER(table_name) = 'meeting' AND LOWER(column_name) = 'participants'", Integer.class);
+        return columns != null && columns > 0;
+    }
+}
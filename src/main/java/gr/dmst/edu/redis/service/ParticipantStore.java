@@ -0,0 +1,103 @@
+package gr.dmst.edu.redis.service;
+
+import gr.dmst.edu.redis.model.ActiveMeeting;
+import gr.dmst.edu.redis.model.BulkJoin;
+import gr.dmst.edu.redis.repository.RedisKeys;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+// Invited and joined participants of the active meetings, kept in their own Redis sets so
+// joins and leaves are single atomic script calls instead of rewriting the ActiveMeeting hash
+@Component
+@RequiredArgsConstructor
+public class ParticipantStore {
+    public static final long JOINED = 1;
+    public static final long LEFT = 1;
+    public static final long UNCHANGED = 0;
+    public static final long NOT_ACTIVE = -1;
+    public static final long NOT_INVITED = -2;
+
+    static final RedisScript<Long> JOIN_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/join_meeting.lua"), Long.class);
+    static final RedisScript<Long> LEAVE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/leave_meeting.lua"), Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    // Records the invited participants of a newly activated meeting
+    public void register(ActiveMeeting meeting) {
+        if (meeting.getParticipants() == null || meeting.getParticipants().isEmpty()) {
+            return;
+        }
+        stringRedisTemplate.opsForSet().add(RedisKeys.meetingInvited(meeting.getMeetingId()),
+                meeting.getParticipants().toArray(new String[0]));
+    }
+
+    // Returns JOINED, UNCHANGED (already joined), NOT_ACTIVE or NOT_INVITED
+    public long join(String email, String meetingId) {
+        Long result = stringRedisTemplate.execute(JOIN_SCRIPT, keys(email, meetingId), email, meetingId);
+        return result == null ? NOT_ACTIVE : result;
+    }
+
+    // Runs the join scripts of many joins in one pipeline, returns the result of each join as join does
+    public List<Long> joinAll(List<BulkJoin> joins) {
+        if (joins.isEmpty()) {
+            return Collections.emptyList();
+        }
+        byte[] sha = bytes(JOIN_SCRIPT.getSha1());
+        List<Object> replies = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            // Loading the script first keeps the EVALSHAs working after a script cache flush
+            connection.scriptingCommands().scriptLoad(bytes(JOIN_SCRIPT.getScriptAsString()));
+            for (BulkJoin join : joins) {
+                List<String> keys = keys(join.getEmail(), join.getMeetingId());
+                connection.scriptingCommands().evalSha(sha, ReturnType.INTEGER, keys.size(),
+                        bytes(keys.get(0)), bytes(keys.get(1)), bytes(keys.get(2)), bytes(keys.get(3)),
+                        bytes(join.getEmail()), bytes(join.getMeetingId()));
+            }
+            return null;
+        });
+        // Skip the script load reply
+        List<Long> results = new ArrayList<>(joins.size());
+        for (int i = 0; i < joins.size(); i++) {
+            Object reply = replies.get(i + 1);
+            results.add(reply == null ? NOT_ACTIVE : ((Number) reply).longValue());
+        }
+        return results;
+    }
+
+    // Returns LEFT, UNCHANGED (not joined) or NOT_ACTIVE
+    public long leave(String email, String meetingId) {
+        Long result = stringRedisTemplate.execute(LEAVE_SCRIPT, keys(email, meetingId), email, meetingId);
+        return result == null ? NOT_ACTIVE : result;
+    }
+
+    public Set<String> joined(String meetingId) {
+        Set<String> members = stringRedisTemplate.opsForSet().members(RedisKeys.meetingJoined(meetingId));
+        return members == null ? Collections.emptySet() : members;
+    }
+
+    public boolean isJoined(String email, String meetingId) {
+        return Boolean.TRUE.equals(stringRedisTemplate.opsForSet().isMember(RedisKeys.meetingJoined(meetingId), email));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Keys of the join and leave scripts
+    static List<String> keys(String email, String meetingId) {
+        return List.of(RedisKeys.activeMeeting(meetingId), RedisKeys.meetingInvited(meetingId),
+                RedisKeys.meetingJoined(meetingId), RedisKeys.userJoined(email));
+    }
+}
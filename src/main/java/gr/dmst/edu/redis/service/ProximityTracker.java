@@ -0,0 +1,100 @@
+package gr.dmst.edu.redis.service;
+
+import gr.dmst.edu.redis.model.LocationUpdate;
+import gr.dmst.edu.redis.model.ProximityChange;
+import gr.dmst.edu.redis.repository.RedisKeys;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+
+// Tracks which active meetings moving users are near, so clients send their positions and get
+// back only the meetings they came within the nearby radius of or moved away from, instead of
+// polling findNearbyMeetings for the whole list. Per user Redis keeps the set of meetings in
+// range and the last position, both expiring once the user stops sending updates.
+@Component
+@RequiredArgsConstructor
+public class ProximityTracker {
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> DELTA_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/proximity_delta.lua"), List.class);
+    // Bounds of the positions Redis accepts in GEO commands
+    private static final double MAX_LATITUDE = 85.05112878;
+    private static final double MAX_LONGITUDE = 180.0;
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ActiveMeetingIndex activeMeetingIndex;
+
+    @Value("${meeting.nearby.radius-meters:100}")
+    private double radiusMeters = 100.0;
+
+    @Value("${meeting.nearby.tracking-ttl:PT10M}")
+    private Duration trackingTtl = Duration.ofMinutes(10);
+
+    // Records the positions and returns the changes of the users whose meetings in range changed.
+    // The lookups of all the updates go out in one pipeline, and their delta scripts in another.
+    public List<ProximityChange> update(List<LocationUpdate> updates) {
+        if (updates.isEmpty()) {
+            return Collections.emptyList();
+        }
+        // Checked up front, NaN included: Redis rejects an out of range position and with it the whole pipeline
+        for (int i = 0; i < updates.size(); i++) {
+            LocationUpdate update = updates.get(i);
+            if (!(Math.abs(update.getX()) <= MAX_LATITUDE && Math.abs(update.getY()) <= MAX_LONGITUDE)) {
+                throw new IllegalArgumentException("Update " + i + ": x must be a latitude within +-"
+                        + MAX_LATITUDE + " and y a longitude within +-" + MAX_LONGITUDE);
+            }
+        }
+        List<List<String>> nearby = activeMeetingIndex.nearbyInvited(updates, radiusMeters);
+
+        byte[] sha = bytes(DELTA_SCRIPT.getSha1());
+        byte[] ttl = bytes(String.valueOf(trackingTtl.toMillis()));
+        List<Object> replies = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            // Loading the script first keeps the EVALSHAs working after a script cache flush
+            connection.scriptingCommands().scriptLoad(bytes(DELTA_SCRIPT.getScriptAsString()));
+            for (int i = 0; i < updates.size(); i++) {
+                LocationUpdate update = updates.get(i);
+                List<byte[]> keysAndArgs = new ArrayList<>();
+                keysAndArgs.add(bytes(RedisKeys.userNearby(update.getEmail())));
+                keysAndArgs.add(bytes(RedisKeys.userPosition(update.getEmail())));
+                keysAndArgs.add(bytes(update.getX() + "," + update.getY()));
+                keysAndArgs.add(ttl);
+                nearby.get(i).forEach(meetingId -> keysAndArgs.add(bytes(meetingId)));
+                connection.scriptingCommands().evalSha(sha, ReturnType.MULTI, 2, keysAndArgs.toArray(new byte[0][]));
+            }
+            return null;
+        });
+
+        List<ProximityChange> changes = new ArrayList<>();
+        for (int i = 0; i < updates.size(); i++) {
+            // Skip the script load reply. Each reply is the number of entered meetings, the entered and the left ones
+            List<?> reply = (List<?>) replies.get(i + 1);
+            if (reply == null || reply.size() <= 1) {
+                continue;
+            }
+            int entered = ((Number) reply.get(0)).intValue();
+            List<String> meetingIds = reply.subList(1, reply.size()).stream().map(Object::toString).toList();
+            changes.add(new ProximityChange(updates.get(i).getEmail(),
+                    meetingIds.subList(0, entered), meetingIds.subList(entered, meetingIds.size())));
+        }
+        return changes;
+    }
+
+    // The meetings in range of the user's last tracked position, empty when not tracked
+    public Set<String> nearby(String email) {
+        Set<String> members = stringRedisTemplate.opsForSet().members(RedisKeys.userNearby(email));
+        return members == null ? Collections.emptySet() : members;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,121 @@
+package gr.dmst.edu.redis.service;
+
+import gr.dmst.edu.redis.config.RateLimitProperties;
+import gr.dmst.edu.redis.repository.RedisKeys;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Token bucket rate limits of chat posting and joins, kept in Redis and updated by one script so
+// they hold across all the instances. A request takes a token from each of its buckets, the
+// user's and, for chat, the meeting's; when one is empty it takes none and gets the time to wait.
+// Throttled requests are counted in meetings.requests.throttled, tagged with the limit hit.
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class RateLimiter {
+    private static final LogRateLimiter LOG_LIMITER = new LogRateLimiter(Duration.ofSeconds(10));
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> TOKEN_BUCKET_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/token_bucket.lua"), List.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ReactiveStringRedisTemplate reactiveStringRedisTemplate;
+    private final RateLimitProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    // Time until the user may post to the meeting, zero when the message may go through now
+    public Duration acquireChat(String email, String meetingId) {
+        return acquire(chatLimits(email, meetingId));
+    }
+
+    // Time until the user may join a meeting, zero when the join may go through now
+    public Duration acquireJoin(String email) {
+        return acquire(joinLimits(email));
+    }
+
+    public Mono<Duration> acquireChatReactive(String email, String meetingId) {
+        return acquireReactive(chatLimits(email, meetingId));
+    }
+
+    public Mono<Duration> acquireJoinReactive(String email) {
+        return acquireReactive(joinLimits(email));
+    }
+
+    // The Retry-After header value, whole seconds rounded up
+    public static long retryAfterSeconds(Duration wait) {
+        return Math.max(1, (wait.toMillis() + 999) / 1000);
+    }
+
+    private List<Limit> chatLimits(String email, String meetingId) {
+        return List.of(new Limit("chat-per-user", RedisKeys.rateLimit("chat:user", email), properties.getChatPerUser()),
+                new Limit("chat-per-meeting", RedisKeys.rateLimit("chat:meeting", meetingId), properties.getChatPerMeeting()));
+    }
+
+    private List<Limit> joinLimits(String email) {
+        return List.of(new Limit("join-per-user", RedisKeys.rateLimit("join:user", email), properties.getJoinPerUser()));
+    }
+
+    private Duration acquire(List<Limit> limits) {
+        if (!properties.isEnabled()) {
+            return Duration.ZERO;
+        }
+        try {
+            return result(limits, stringRedisTemplate.execute(TOKEN_BUCKET_SCRIPT, keys(limits), (Object[]) args(limits)));
+        } catch (DataAccessException e) {
+            // Let the request through, it fails on its own if Redis is really down
+            LOG_LIMITER.warn(log, "acquire", "Could not check the rate limits: {}", e.getMessage());
+            return Duration.ZERO;
+        }
+    }
+
+    private Mono<Duration> acquireReactive(List<Limit> limits) {
+        if (!properties.isEnabled()) {
+            return Mono.just(Duration.ZERO);
+        }
+        return reactiveStringRedisTemplate.execute(TOKEN_BUCKET_SCRIPT, keys(limits), List.of(args(limits)))
+                .next()
+                .map(reply -> result(limits, reply))
+                .onErrorResume(DataAccessException.class, e -> {
+                    LOG_LIMITER.warn(log, "acquire", "Could not check the rate limits: {}", e.getMessage());
+                    return Mono.just(Duration.ZERO);
+                });
+    }
+
+    private Duration result(List<Limit> limits, List<?> reply) {
+        if (reply == null || ((Number) reply.get(0)).longValue() == 0) {
+            return Duration.ZERO;
+        }
+        Limit limited = limits.get(((Number) reply.get(1)).intValue() - 1);
+        meterRegistry.counter("meetings.requests.throttled", "limit", limited.name()).increment();
+        return Duration.ofMillis(((Number) reply.get(0)).longValue());
+    }
+
+    private static List<String> keys(List<Limit> limits) {
+        return limits.stream().map(Limit::key).toList();
+    }
+
+    private static String[] args(List<Limit> limits) {
+        List<String> args = new ArrayList<>(limits.size() * 2);
+        for (Limit limit : limits) {
+            args.add(String.valueOf(limit.bucket().getCapacity()));
+            args.add(String.valueOf(limit.bucket().getRefillPerSecond()));
+        }
+        return args.toArray(new String[0]);
+    }
+
+    private record Limit(String name, String key, RateLimitProperties.Bucket bucket) {
+    }
+}
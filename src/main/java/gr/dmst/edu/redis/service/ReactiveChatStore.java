@@ -0,0 +1,16 @@
+package gr.dmst.edu.redis.service;
+
+import gr.dmst.edu.redis.model.ChatMessage;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Non-blocking access to the meeting chats, in the format of the ChatStore selected with
+// meeting.chat.store. Reads go to Redis in chunks and emit each message as it is deserialized,
+// so a chat is never held in memory as a whole.
+public interface ReactiveChatStore {
+
+    // Appends a message and emits its cursor
+    Mono<String> append(String meetingId, ChatMessage message);
+
+    Flux<ChatMessage> readAll(String meetingId);
+}
@@ -0,0 +1,70 @@
+package gr.dmst.edu.redis.service;
+
+import gr.dmst.edu.redis.config.ChatProperties;
+import gr.dmst.edu.redis.model.ChatMessage;
+import gr.dmst.edu.redis.repository.RedisKeys;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+// Reactive counterpart of ListChatStore, with the same scripts, reading the list in ranges of CHUNK_SIZE positions
+@Component
+@ConditionalOnProperty(name = "meeting.chat.store", havingValue = "list", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class ReactiveListChatStore implements ReactiveChatStore {
+    private static final LogRateLimiter LOG_LIMITER = new LogRateLimiter(Duration.ofSeconds(10));
+
+    static final int CHUNK_SIZE = 500;
+
+    private final ReactiveRedisTemplate<String, byte[]> reactiveChatRedisTemplate;
+    private final ChatCodec chatCodec;
+    private final ChatProperties properties;
+
+    @Override
+    public Mono<String> append(String meetingId, ChatMessage message) {
+        String chatKey = RedisKeys.chat(meetingId);
+        return Mono.fromCallable(() -> chatCodec.encode(message))
+                .flatMap(entry -> reactiveChatRedisTemplate.execute(ListChatStore.APPEND_SCRIPT, ListChatStore.keys(chatKey),
+                        List.of(entry, ListChatStore.bytes(properties.getMaxLength()))).next())
+                .map(String::valueOf);
+    }
+
+    @Override
+    public Flux<ChatMessage> readAll(String meetingId) {
+        return readFrom(RedisKeys.chat(meetingId), 0);
+    }
+
+    // The next chunk is only requested once the previous one has been emitted. Positions are used
+    // rather than list indexes, so appends trimming the list meanwhile do not skip messages.
+    private Flux<ChatMessage> readFrom(String chatKey, long start) {
+        return reactiveChatRedisTemplate.execute(ListChatStore.READ_SCRIPT, ListChatStore.keys(chatKey),
+                        List.of(ListChatStore.args(start, Long.MAX_VALUE, CHUNK_SIZE)))
+                .next()
+                .map(reply -> ListChatStore.Slice.of(reply, start))
+                .flatMapMany(slice -> {
+                    Flux<ChatMessage> messages = Flux.fromIterable(slice.entries()).mapNotNull(this::decode);
+                    if (slice.entries().size() < CHUNK_SIZE) {
+                        return messages;
+                    }
+                    long next = slice.first() + CHUNK_SIZE;
+                    return messages.concatWith(Flux.defer(() -> readFrom(chatKey, next)));
+                });
+    }
+
+    private ChatMessage decode(byte[] entry) {
+        try {
+            return chatCodec.decode(entry);
+        } catch (Exception e) {
+            LOG_LIMITER.warn(log, "deserialize", "Error deserializing chat message: {}", e.getMessage());
+            return null;
+        }
+    }
+}
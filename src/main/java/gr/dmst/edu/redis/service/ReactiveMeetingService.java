@@ -0,0 +1,156 @@
+package gr.dmst.edu.redis.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.dmst.edu.redis.model.ChatMessage;
+import gr.dmst.edu.redis.model.Log;
+import gr.dmst.edu.redis.model.MeetingEvent;
+import gr.dmst.edu.redis.repository.RedisKeys;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.geo.Distance;
+import org.springframework.data.redis.connection.RedisGeoCommands;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.domain.geo.GeoReference;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Non-blocking variant of the participant and chat functions of MeetingService, on reactive
+// Lettuce, with the same Redis keys, scripts and results. No thread waits for Redis: a request
+// only holds a thread while it computes. The activity log writer may block, so log entries are
+// handed to it on the bounded elastic scheduler.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReactiveMeetingService {
+    private static final LogRateLimiter LOG_LIMITER = new LogRateLimiter(Duration.ofSeconds(10));
+
+    private final ReactiveStringRedisTemplate reactiveStringRedisTemplate;
+    private final ReactiveChatStore reactiveChatStore;
+    private final LogWriter logWriter;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${meeting.nearby.radius-meters:100}")
+    private double nearbyRadiusMeters = 100.0;
+
+    // Function 1: Active meetings within the radius the user is invited to, closest first
+    public Flux<String> findNearbyMeetings(String email, double x, double y) {
+        return reactiveStringRedisTemplate.opsForSet().members(RedisKeys.userInvited(email))
+                .collectList()
+                .flatMapMany(invited -> invited.isEmpty()
+                        ? Flux.empty()
+                        : reactiveStringRedisTemplate.opsForGeo().search(
+                                        RedisKeys.GEO_ACTIVE_MEETINGS,
+                                        GeoReference.fromCoordinate(y, x),
+                                        new Distance(nearbyRadiusMeters, RedisGeoCommands.DistanceUnit.METERS),
+                                        RedisGeoCommands.GeoSearchCommandArgs.newGeoSearchArgs().sortAscending())
+                                .map(result -> result.getContent().getName())
+                                .filter(invited::contains));
+    }
+
+    // Function 2: User joins a meeting, false if it is not active or the user is not invited
+    public Mono<Boolean> joinMeeting(String email, String meetingId) {
+        return reactiveStringRedisTemplate.execute(ParticipantStore.JOIN_SCRIPT,
+                        ParticipantStore.keys(email, meetingId), List.of(email, meetingId))
+                .next()
+                .defaultIfEmpty(ParticipantStore.NOT_ACTIVE)
+                .flatMap(result -> {
+                    if (result < 0) {
+                        return Mono.just(false);
+                    }
+                    if (result == ParticipantStore.JOINED) {
+                        return record(email, meetingId, Log.JOIN_MEETING, MeetingEvent.Type.JOIN).thenReturn(true);
+                    }
+                    return Mono.just(true);
+                });
+    }
+
+    // Function 3: User leaves a meeting, false if it is not active or the user has not joined
+    public Mono<Boolean> leaveMeeting(String email, String meetingId) {
+        return reactiveStringRedisTemplate.execute(ParticipantStore.LEAVE_SCRIPT,
+                        ParticipantStore.keys(email, meetingId), List.of(email, meetingId))
+                .next()
+                .defaultIfEmpty(ParticipantStore.NOT_ACTIVE)
+                .flatMap(result -> result == ParticipantStore.LEFT
+                        ? record(email, meetingId, Log.LEAVE_MEETING, MeetingEvent.Type.LEAVE).thenReturn(true)
+                        : Mono.just(false));
+    }
+
+    // Function 4: List joined participants
+    public Flux<String> getJoinedParticipants(String meetingId) {
+        return reactiveStringRedisTemplate.opsForSet().members(RedisKeys.meetingJoined(meetingId));
+    }
+
+    public Mono<Boolean> isJoined(String email, String meetingId) {
+        return reactiveStringRedisTemplate.opsForSet().isMember(RedisKeys.meetingJoined(meetingId), email);
+    }
+
+    // Function 7: Post a message to the chat of an active meeting
+    public Mono<Boolean> postMessageToMeeting(String meetingId, String email, String text) {
+        ChatMessage message = new ChatMessage(email, text, System.currentTimeMillis());
+        return reactiveStringRedisTemplate.opsForSet().isMember(RedisKeys.ACTIVE_MEETING_KEYSPACE, meetingId)
+                .flatMap(active -> {
+                    if (!active) {
+                        return Mono.just(false);
+                    }
+                    return reactiveChatStore.append(meetingId, message)
+                            .flatMap(cursor -> {
+                                meterRegistry.counter("meetings.chat.messages").increment();
+                                return publish(MeetingEvent.chatMessage(meetingId, message, cursor));
+                            })
+                            .thenReturn(true)
+                            .onErrorResume(e -> {
+                                String cause = e instanceof JsonProcessingException ? "serialization" : "store";
+                                meterRegistry.counter("meetings.chat.append.failures", "cause", cause).increment();
+                                LOG_LIMITER.warn(log, "chat-append", "Error storing chat message of meeting {}: {}", meetingId, e.getMessage());
+                                return Mono.just(false);
+                            });
+                });
+    }
+
+    // Function 8: Chat messages of a meeting, oldest first, emitted as they are read
+    public Flux<ChatMessage> getMeetingChatMessages(String meetingId) {
+        return reactiveChatStore.readAll(meetingId);
+    }
+
+    // Function 9: Messages posted by a user in the meetings they have joined, one meeting after the other
+    public Flux<ChatMessage> getUserMessages(String email) {
+        return reactiveStringRedisTemplate.opsForSet().members(RedisKeys.userJoined(email))
+                .concatMap(meetingId -> reactiveChatStore.readAll(meetingId)
+                        .filter(message -> email.equals(message.getEmail())));
+    }
+
+    // Logs the action and publishes the event, failures only cost the real-time update
+    private Mono<Void> record(String email, String meetingId, int action, MeetingEvent.Type type) {
+        Log entry = new Log();
+        entry.setEmail(email);
+        entry.setMeetingId(meetingId);
+        entry.setTimestamp(LocalDateTime.now());
+        entry.setAction(action);
+        Mono<Void> submit = Mono.fromRunnable(() -> logWriter.submit(entry))
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
+        return submit.then(publish(MeetingEvent.of(type, meetingId, email)));
+    }
+
+    // Same channel and payload as MeetingEventHub.publish
+    private Mono<Void> publish(MeetingEvent event) {
+        return Mono.fromCallable(() -> objectMapper.writeValueAsString(event))
+                .flatMap(payload -> reactiveStringRedisTemplate.convertAndSend(RedisKeys.eventsChannel(event.getMeetingId()), payload))
+                .onErrorResume(e -> {
+                    LOG_LIMITER.warn(log, "publish", "Could not publish {} event of meeting {}: {}",
+                            event.getType(), event.getMeetingId(), e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+}
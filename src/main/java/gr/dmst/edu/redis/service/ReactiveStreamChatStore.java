@@ -0,0 +1,101 @@
+package gr.dmst.edu.redis.service;
+
+import gr.dmst.edu.redis.config.ChatProperties;
+import gr.dmst.edu.redis.model.ChatMessage;
+import gr.dmst.edu.redis.repository.RedisKeys;
+import io.lettuce.core.RedisCommandExecutionException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// Reactive counterpart of StreamChatStore, reading the stream in ranges of CHUNK_SIZE entries.
+// A chat still stored as a list is migrated by StreamChatStore on a worker thread, then the command is retried.
+@Component
+@ConditionalOnProperty(name = "meeting.chat.store", havingValue = "stream")
+@RequiredArgsConstructor
+@Slf4j
+public class ReactiveStreamChatStore implements ReactiveChatStore {
+    private static final LogRateLimiter LOG_LIMITER = new LogRateLimiter(Duration.ofSeconds(10));
+
+    static final int CHUNK_SIZE = 500;
+
+    private final ReactiveRedisTemplate<String, byte[]> reactiveChatRedisTemplate;
+    private final StreamChatStore streamChatStore;
+    private final ChatCodec chatCodec;
+    private final ChatProperties properties;
+
+    @Override
+    public Mono<String> append(String meetingId, ChatMessage message) {
+        return Mono.fromCallable(() -> chatCodec.encode(message))
+                .flatMap(entry -> {
+                    MapRecord<String, String, byte[]> record = StreamRecords.newRecord()
+                            .in(RedisKeys.chat(meetingId))
+                            .ofMap(Map.of(StreamChatStore.MESSAGE_FIELD, entry));
+                    return withMigration(meetingId, () -> reactiveChatRedisTemplate.opsForStream().add(record,
+                            RedisStreamCommands.XAddOptions.maxlen(properties.getMaxLength()).approximateTrimming(true)));
+                })
+                .map(RecordId::getValue);
+    }
+
+    @Override
+    public Flux<ChatMessage> readAll(String meetingId) {
+        return readFrom(meetingId, Range.unbounded());
+    }
+
+    // The next chunk starts after the last id read, and is only requested once the previous one has been emitted
+    private Flux<ChatMessage> readFrom(String meetingId, Range<String> range) {
+        return withMigration(meetingId, () -> reactiveChatRedisTemplate.<String, byte[]>opsForStream()
+                        .range(RedisKeys.chat(meetingId), range, Limit.limit().count(CHUNK_SIZE))
+                        .collectList())
+                .flatMapMany(chunk -> {
+                    Flux<ChatMessage> messages = Flux.fromIterable(chunk).mapNotNull(this::toMessage);
+                    if (chunk.size() < CHUNK_SIZE) {
+                        return messages;
+                    }
+                    String last = chunk.get(chunk.size() - 1).getId().getValue();
+                    Range<String> next = Range.rightUnbounded(Range.Bound.inclusive(
+                            StreamChatStore.nextId(StreamChatStore.parseCursor(last))));
+                    return messages.concatWith(Flux.defer(() -> readFrom(meetingId, next)));
+                });
+    }
+
+    // Reactive commands may fail with the untranslated Lettuce exception
+    private <T> Mono<T> withMigration(String meetingId, Supplier<Mono<T>> command) {
+        return command.get().onErrorResume(e -> e instanceof RedisSystemException
+                        || e instanceof InvalidDataAccessApiUsageException
+                        || e instanceof RedisCommandExecutionException,
+                e -> Mono.fromCallable(() -> streamChatStore.ensureMigrated(RedisKeys.chat(meetingId)))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .flatMap(migrated -> migrated ? command.get() : Mono.error(e)));
+    }
+
+    private ChatMessage toMessage(MapRecord<String, String, byte[]> record) {
+        byte[] entry = record.getValue().get(StreamChatStore.MESSAGE_FIELD);
+        if (entry == null) {
+            return null;
+        }
+        try {
+            return chatCodec.decode(entry);
+        } catch (Exception e) {
+            LOG_LIMITER.warn(log, "deserialize", "Error deserializing chat message: {}", e.getMessage());
+            return null;
+        }
+    }
+}
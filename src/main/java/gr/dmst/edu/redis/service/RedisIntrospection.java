@@ -0,0 +1,125 @@
+package gr.dmst.edu.redis.service;
+
+import gr.dmst.edu.redis.model.KeyScanPage;
+import gr.dmst.edu.redis.model.KeyspaceStats;
+import io.lettuce.core.KeyScanCursor;
+import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.ScanArgs;
+import io.lettuce.core.ScanCursor;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+// Looks into the keyspace without blocking Redis: SCAN steps that the caller continues with the
+// returned cursor, and key counts and memory per prefix extrapolated from RANDOMKEY samples
+// instead of walking every key. Both cost the same whatever the size of the keyspace.
+@Component
+@RequiredArgsConstructor
+public class RedisIntrospection {
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    // One SCAN step from the cursor, count is a hint of the keys it looks at
+    public KeyScanPage scan(String cursor, String match, int count) {
+        if (cursor.isEmpty() || !cursor.chars().allMatch(Character::isDigit)) {
+            throw new IllegalArgumentException("Invalid scan cursor: " + cursor);
+        }
+        KeyScanCursor<byte[]> step = stringRedisTemplate.execute((RedisCallback<KeyScanCursor<byte[]>>) connection ->
+                LettuceFutures.awaitOrCancel(nativeCommands(connection).scan(ScanCursor.of(cursor),
+                        ScanArgs.Builder.matches(match).limit(count)), TIMEOUT.toMillis(), TimeUnit.MILLISECONDS));
+        String next = step.getCursor();
+        List<String> keys = step.getKeys().stream().map(RedisIntrospection::string).toList();
+        return new KeyScanPage(keys, step.isFinished() ? null : next);
+    }
+
+    // Samples random keys, with replacement, and extrapolates their share of the keys and memory
+    public KeyspaceStats sample(int samples) {
+        long keys = Optional.ofNullable(stringRedisTemplate.execute(
+                (RedisCallback<Long>) connection -> connection.serverCommands().dbSize())).orElse(0L);
+        Long usedMemory = stringRedisTemplate.execute((RedisCallback<Long>) connection -> {
+            String used = connection.serverCommands().info("memory").getProperty("used_memory");
+            return used == null ? null : Long.parseLong(used);
+        });
+        if (keys == 0) {
+            return new KeyspaceStats(0, usedMemory, 0, Map.of());
+        }
+
+        List<String> sampled = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int i = 0; i < samples; i++) {
+                connection.keyCommands().randomKey();
+            }
+            return null;
+        }).stream().filter(Objects::nonNull).map(RedisIntrospection::string).toList();
+        Map<String, Long> memory = memoryUsage(new ArrayList<>(new LinkedHashSet<>(sampled)));
+
+        return new KeyspaceStats(keys, usedMemory, sampled.size(), extrapolate(keys, sampled, memory));
+    }
+
+    // Each prefix's share of the samples applied to the number of keys, and their average memory to that
+    static Map<String, KeyspaceStats.Prefix> extrapolate(long keys, List<String> sampled, Map<String, Long> memory) {
+        Map<String, List<String>> byPrefix = new TreeMap<>();
+        sampled.forEach(key -> byPrefix.computeIfAbsent(prefix(key), p -> new ArrayList<>()).add(key));
+        Map<String, KeyspaceStats.Prefix> prefixes = new LinkedHashMap<>();
+        byPrefix.forEach((prefix, prefixKeys) -> {
+            // A sampled prefix has at least one key
+            long estimatedKeys = Math.max(1, Math.round((double) keys * prefixKeys.size() / sampled.size()));
+            OptionalDouble average = prefixKeys.stream().map(memory::get).filter(Objects::nonNull)
+                    .mapToLong(Long::longValue).average();
+            Long averageBytes = average.isPresent() ? Math.round(average.getAsDouble()) : null;
+            prefixes.put(prefix, new KeyspaceStats.Prefix(prefixKeys.size(), estimatedKeys, averageBytes,
+                    averageBytes == null ? null : averageBytes * estimatedKeys));
+        });
+        return prefixes;
+    }
+
+    // MEMORY USAGE of each key, itself sampling the elements of large keys, sent together on the native
+    // connection. Missing where the server does not support it or the key expired meanwhile.
+    private Map<String, Long> memoryUsage(List<String> keys) {
+        return stringRedisTemplate.execute((RedisCallback<Map<String, Long>>) connection -> {
+            RedisClusterAsyncCommands<byte[], byte[]> commands = nativeCommands(connection);
+            Map<String, RedisFuture<Long>> futures = new LinkedHashMap<>();
+            keys.forEach(key -> futures.put(key, commands.memoryUsage(bytes(key))));
+            Map<String, Long> memory = new HashMap<>();
+            futures.forEach((key, future) -> {
+                try {
+                    Long bytes = LettuceFutures.awaitOrCancel(future, TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+                    if (bytes != null) {
+                        memory.put(key, bytes);
+                    }
+                } catch (RuntimeException e) {
+                    // Left out of the averages
+                }
+            });
+            return memory;
+        });
+    }
+
+    // Spring Data has neither a SCAN from a given cursor nor MEMORY USAGE, Lettuce has both
+    @SuppressWarnings("unchecked")
+    private static RedisClusterAsyncCommands<byte[], byte[]> nativeCommands(RedisConnection connection) {
+        return (RedisClusterAsyncCommands<byte[], byte[]>) connection.getNativeConnection();
+    }
+
+    static String prefix(String key) {
+        int colon = key.indexOf(':');
+        return colon < 0 ? key : key.substring(0, colon);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(Object value) {
+        return value instanceof byte[] raw ? new String(raw, StandardCharsets.UTF_8) : String.valueOf(value);
+    }
+}
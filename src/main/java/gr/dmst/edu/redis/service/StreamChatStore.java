@@ -0,0 +1,299 @@
+package gr.dmst.edu.redis.service;
+
+import gr.dmst.edu.redis.config.ChatProperties;
+import gr.dmst.edu.redis.model.ChatMessage;
+import gr.dmst.edu.redis.model.ChatPage;
+import gr.dmst.edu.redis.repository.RedisKeys;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Supplier;
+
+// Chat stored as a Redis stream under chat:{meetingId}, one entry per message with the message
+// encoded by ChatCodec in its "message" field. The server-assigned entry ids are the cursors, and since
+// they start with the append time in millis they also serve time-range reads.
+// Chats still stored as lists by ListChatStore are migrated on startup, or on first use, by one
+// instance at a time.
+@Component
+@ConditionalOnProperty(name = "meeting.chat.store", havingValue = "stream")
+@RequiredArgsConstructor
+@Slf4j
+public class StreamChatStore implements ChatStore {
+    private static final LogRateLimiter LOG_LIMITER = new LogRateLimiter(Duration.ofSeconds(10));
+
+    static final String MESSAGE_FIELD = "message";
+    private static final int MIGRATION_CHUNK = 1000;
+    private static final Duration MIGRATION_LOCK_TTL = Duration.ofMinutes(1);
+    private static final Duration MIGRATION_POLL_INTERVAL = Duration.ofMillis(50);
+    private static final RedisScript<Long> SWAP_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/migrate_chat.lua"), Long.class);
+    private static final RedisScript<Long> RELEASE_LOCK_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/release_lease.lua"), Long.class);
+
+    private final RedisTemplate<String, byte[]> chatRedisTemplate;
+    private final ChatCodec chatCodec;
+    private final ChatProperties properties;
+
+    @Override
+    public String append(String meetingId, ChatMessage message) throws Exception {
+        MapRecord<String, String, byte[]> record = StreamRecords.newRecord()
+                .in(RedisKeys.chat(meetingId))
+                .ofMap(Map.of(MESSAGE_FIELD, chatCodec.encode(message)));
+        RecordId id = withMigration(meetingId, () -> chatRedisTemplate.opsForStream().add(record,
+                RedisStreamCommands.XAddOptions.maxlen(properties.getMaxLength()).approximateTrimming(true)));
+        return id == null ? null : id.getValue();
+    }
+
+    @Override
+    public List<ChatMessage> readAll(String meetingId) {
+        return toMessages(range(meetingId, Range.unbounded(), Limit.unlimited()));
+    }
+
+    @Override
+    public ChatPage last(String meetingId, int limit) {
+        List<MapRecord<String, String, byte[]>> records = reverseRange(meetingId, Range.unbounded(), limit);
+        return page(records, "0-0", records.size() == limit);
+    }
+
+    @Override
+    public ChatPage after(String meetingId, String cursor, int limit) {
+        Range<String> range = Range.rightUnbounded(Range.Bound.inclusive(nextId(parseCursor(cursor))));
+        List<MapRecord<String, String, byte[]>> records = range(meetingId, range, Limit.limit().count(limit));
+        return page(records, cursor, true);
+    }
+
+    @Override
+    public ChatPage before(String meetingId, String cursor, int limit) {
+        String end = previousId(parseCursor(cursor));
+        if (end == null) {
+            return new ChatPage(Collections.emptyList(), cursor, null);
+        }
+        List<MapRecord<String, String, byte[]>> records = reverseRange(meetingId,
+                Range.leftUnbounded(Range.Bound.inclusive(end)), limit);
+        return page(records, cursor, records.size() == limit);
+    }
+
+    @Override
+    public ChatPage since(String meetingId, long timestamp, int limit) {
+        // Entry ids start with the append time, so this is a plain id range
+        Range<String> range = Range.rightUnbounded(Range.Bound.inclusive((timestamp + 1) + "-0"));
+        List<MapRecord<String, String, byte[]>> records = range(meetingId, range, Limit.limit().count(limit));
+        return page(records, timestamp + "-" + Long.MAX_VALUE, true);
+    }
+
+    // Converts every chat:{meetingId} list left by ListChatStore into a stream
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateLists() {
+        int migrated = 0;
+        ScanOptions options = ScanOptions.scanOptions().match(RedisKeys.CHAT_KEY_PREFIX + "*").count(MIGRATION_CHUNK).build();
+        try (Cursor<String> cursor = chatRedisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                if (migrate(cursor.next())) {
+                    migrated++;
+                }
+            }
+        }
+        if (migrated > 0) {
+            log.info("Migrated {} list chats to streams", migrated);
+        }
+    }
+
+    // Migrates a list chat, or waits for the instance already migrating it.
+    // Returns false when the chat was not a list, so the failed command is not retried.
+    boolean ensureMigrated(String chatKey) {
+        long deadline = System.nanoTime() + MIGRATION_LOCK_TTL.toNanos();
+        boolean wasList = false;
+        while (chatRedisTemplate.type(chatKey) == DataType.LIST) {
+            wasList = true;
+            if (migrate(chatKey)) {
+                break;
+            }
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Chat " + chatKey + " is still being migrated");
+            }
+            try {
+                Thread.sleep(MIGRATION_POLL_INTERVAL.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the migration of " + chatKey, e);
+            }
+        }
+        return wasList;
+    }
+
+    // Copies a list chat into a temporary stream in chunks and then swaps it in for the list.
+    // Entry ids are derived from the message timestamps so time-range reads keep working.
+    // Returns false when the chat is not a list or another instance holds its migration lock.
+    boolean migrate(String chatKey) {
+        if (chatRedisTemplate.type(chatKey) != DataType.LIST) {
+            return false;
+        }
+        String lockKey = RedisKeys.chatMigrationLock(chatKey);
+        byte[] token = UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8);
+        if (!Boolean.TRUE.equals(chatRedisTemplate.opsForValue().setIfAbsent(lockKey, token, MIGRATION_LOCK_TTL))) {
+            return false;
+        }
+        try {
+            // Migrated before the lock was taken
+            if (chatRedisTemplate.type(chatKey) != DataType.LIST) {
+                return false;
+            }
+            copyToStream(chatKey, chatKey + ":migrating:" + new String(token, StandardCharsets.UTF_8));
+            return true;
+        } finally {
+            chatRedisTemplate.execute(RELEASE_LOCK_SCRIPT, List.of(lockKey), (Object) token);
+        }
+    }
+
+    // The copy of each instance has its own key and expires with the lock, so an instance that
+    // outlives its lock cannot mix entries into another copy or leave a copy behind
+    private void copyToStream(String chatKey, String tempKey) {
+        long lastMillis = 0;
+        long sequence = 0;
+        long position = 0;
+        while (true) {
+            // Read by position, so a list trimmed by instances still appending to it is copied without gaps
+            ListChatStore.Slice chunk = ListChatStore.read(chatRedisTemplate, chatKey, position, Long.MAX_VALUE,
+                    MIGRATION_CHUNK);
+            if (!chunk.entries().isEmpty()) {
+                for (byte[] entry : chunk.entries()) {
+                    ChatMessage message = decode(entry);
+                    long millis = message == null || message.getTimestamp() == null ? lastMillis : message.getTimestamp();
+                    // Ids must grow strictly, out of order timestamps reuse the last millis
+                    if (millis > lastMillis) {
+                        lastMillis = millis;
+                        sequence = 0;
+                    } else {
+                        sequence++;
+                    }
+                    chatRedisTemplate.opsForStream().add(StreamRecords.newRecord()
+                            .in(tempKey)
+                            .withId(RecordId.of(lastMillis, sequence))
+                            .ofMap(Map.of(MESSAGE_FIELD, entry)));
+                }
+                chatRedisTemplate.expire(tempKey, MIGRATION_LOCK_TTL);
+                position = chunk.first() + chunk.entries().size();
+                if (chunk.entries().size() == MIGRATION_CHUNK) {
+                    continue;
+                }
+            }
+            // Messages appended by instances still writing lists are copied before the swap
+            if (Long.valueOf(1).equals(chatRedisTemplate.execute(SWAP_SCRIPT,
+                    List.of(chatKey, tempKey, RedisKeys.chatTrimmed(chatKey)), (Object) ListChatStore.bytes(position)))) {
+                return;
+            }
+        }
+    }
+
+    // Runs a stream command, migrating the chat first when it is still a list
+    private <T> T withMigration(String meetingId, Supplier<T> command) {
+        try {
+            return command.get();
+        } catch (RedisSystemException | InvalidDataAccessApiUsageException e) {
+            if (!ensureMigrated(RedisKeys.chat(meetingId))) {
+                throw e;
+            }
+            return command.get();
+        }
+    }
+
+    private List<MapRecord<String, String, byte[]>> range(String meetingId, Range<String> range, Limit limit) {
+        List<MapRecord<String, String, byte[]>> records = withMigration(meetingId,
+                () -> chatRedisTemplate.<String, byte[]>opsForStream().range(RedisKeys.chat(meetingId), range, limit));
+        return records == null ? Collections.emptyList() : records;
+    }
+
+    // Newest first from Redis, returned oldest first
+    private List<MapRecord<String, String, byte[]>> reverseRange(String meetingId, Range<String> range, int limit) {
+        List<MapRecord<String, String, byte[]>> records = withMigration(meetingId,
+                () -> chatRedisTemplate.<String, byte[]>opsForStream().reverseRange(RedisKeys.chat(meetingId), range,
+                        Limit.limit().count(limit)));
+        if (records == null) {
+            return Collections.emptyList();
+        }
+        List<MapRecord<String, String, byte[]>> ordered = new ArrayList<>(records);
+        Collections.reverse(ordered);
+        return ordered;
+    }
+
+    // The next cursor is the last id read (or emptyCursor), the previous cursor the first one
+    private ChatPage page(List<MapRecord<String, String, byte[]>> records, String emptyCursor, boolean mayHaveOlder) {
+        if (records.isEmpty()) {
+            return new ChatPage(Collections.emptyList(), emptyCursor, null);
+        }
+        String first = records.get(0).getId().getValue();
+        String last = records.get(records.size() - 1).getId().getValue();
+        return new ChatPage(toMessages(records), last, mayHaveOlder ? first : null);
+    }
+
+    private List<ChatMessage> toMessages(List<MapRecord<String, String, byte[]>> records) {
+        List<ChatMessage> messages = new ArrayList<>(records.size());
+        for (MapRecord<String, String, byte[]> record : records) {
+            byte[] entry = record.getValue().get(MESSAGE_FIELD);
+            ChatMessage message = entry == null ? null : decode(entry);
+            if (message != null) {
+                messages.add(message);
+            }
+        }
+        return messages;
+    }
+
+    private ChatMessage decode(byte[] entry) {
+        try {
+            return chatCodec.decode(entry);
+        } catch (Exception e) {
+            LOG_LIMITER.warn(log, "deserialize", "Error deserializing chat message: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    // Stream ids are <millis>-<sequence>
+    static long[] parseCursor(String cursor) {
+        try {
+            int dash = cursor.indexOf('-');
+            return new long[]{Long.parseLong(cursor.substring(0, dash)), Long.parseLong(cursor.substring(dash + 1))};
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid chat cursor: " + cursor);
+        }
+    }
+
+    // Smallest id greater than the given one
+    static String nextId(long[] id) {
+        if (id[1] == Long.MAX_VALUE) {
+            return (id[0] + 1) + "-0";
+        }
+        return id[0] + "-" + (id[1] + 1);
+    }
+
+    // Greatest id smaller than the given one, null before the first possible id
+    private static String previousId(long[] id) {
+        if (id[1] > 0) {
+            return id[0] + "-" + (id[1] - 1);
+        }
+        if (id[0] == 0) {
+            return null;
+        }
+        return (id[0] - 1) + "-" + Long.MAX_VALUE;
+    }
+}
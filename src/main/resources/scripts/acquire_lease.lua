@@ -0,0 +1,16 @@
+-- Acquires a lease, or renews it for the instance holding it
+-- KEYS[1] lease, holding the fencing token of its holder, KEYS[2] counter of the fencing tokens
+-- ARGV[1] fencing token the caller holds (0 for none), ARGV[2] time to live in millis
+-- Returns the caller's fencing token, a larger one when it just acquired the lease, or 0 when
+-- another instance holds it
+local holder = redis.call('GET', KEYS[1])
+if holder then
+    if holder ~= ARGV[1] then
+        return 0
+    end
+    redis.call('PEXPIRE', KEYS[1], ARGV[2])
+    return tonumber(holder)
+end
+local token = redis.call('INCR', KEYS[2])
+redis.call('SET', KEYS[1], token, 'PX', ARGV[2])
+return token
@@ -0,0 +1,13 @@
+-- Appends a message to a list chat and trims the oldest messages beyond the maximum length
+-- KEYS[1] chat list, KEYS[2] number of messages trimmed from the head of the list so far
+-- ARGV[1] encoded message, ARGV[2] maximum number of messages kept
+-- Returns the position of the message, counted from the first message ever appended
+local length = redis.call('RPUSH', KEYS[1], ARGV[1])
+local trimmed = tonumber(redis.call('GET', KEYS[2])) or 0
+local position = trimmed + length - 1
+local excess = length - tonumber(ARGV[2])
+if excess > 0 then
+    redis.call('LTRIM', KEYS[1], excess, -1)
+    redis.call('INCRBY', KEYS[2], excess)
+end
+return position
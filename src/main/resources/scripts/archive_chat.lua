@@ -0,0 +1,11 @@
+-- Moves the chat of an ended meeting to its archive key and queues it for ChatArchiver
+-- KEYS[1] chat, KEYS[2] archive key, KEYS[3] set of archive keys waiting for archival,
+-- KEYS[4] trimmed message count of a list chat, positions restart with the next activation
+-- Returns 1 when there was a chat to archive, 0 otherwise
+redis.call('DEL', KEYS[4])
+if redis.call('EXISTS', KEYS[1]) == 0 then
+    return 0
+end
+redis.call('RENAME', KEYS[1], KEYS[2])
+redis.call('SADD', KEYS[3], KEYS[2])
+return 1
@@ -0,0 +1,13 @@
+-- Atomically takes the members of a schedule whose time has come
+-- KEYS[1] schedule sorted set (score = epoch millis), KEYS[2] scheduler lease
+-- ARGV[1] now in epoch millis, ARGV[2] maximum number of members to take,
+-- ARGV[3] fencing token of the caller, which must still hold the lease
+-- Returns a flat list of member, score pairs, empty when the caller lost the lease
+if redis.call('GET', KEYS[2]) ~= ARGV[3] then
+    return {}
+end
+local due = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'WITHSCORES', 'LIMIT', 0, ARGV[2])
+for i = 1, #due, 2 do
+    redis.call('ZREM', KEYS[1], due[i])
+end
+return due
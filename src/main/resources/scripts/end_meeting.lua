@@ -0,0 +1,38 @@
+-- Deactivates an active meeting and removes it from every index in one atomic step
+-- KEYS[1] set of active meeting ids, KEYS[2] active meeting hash, KEYS[3] invited set,
+-- KEYS[4] joined set, KEYS[5] geo index, KEYS[6..] per-user invited sets of the invited
+-- participants followed by the per-user joined sets of the joined participants
+-- ARGV[1] meeting id, ARGV[2] number of invited participants, ARGV[3..] the invited participants
+-- followed by the joined participants, in the order of their keys
+-- Returns {1, joined participants...} when ended, {0} when the meeting was not active (already ended),
+-- {-1} when the participants are not the ones passed, e.g. after a join, to read them again and retry
+if redis.call('EXISTS', KEYS[2]) == 0 then
+    redis.call('SREM', KEYS[1], ARGV[1])
+    return {0}
+end
+local invitedCount = tonumber(ARGV[2])
+local function matches(set, first, last)
+    if redis.call('SCARD', set) ~= last - first + 1 then
+        return false
+    end
+    for i = first, last do
+        if redis.call('SISMEMBER', set, ARGV[i]) == 0 then
+            return false
+        end
+    end
+    return true
+end
+if not matches(KEYS[3], 3, 2 + invitedCount) or not matches(KEYS[4], 3 + invitedCount, #ARGV) then
+    return {-1}
+end
+for i = 6, #KEYS do
+    redis.call('SREM', KEYS[i], ARGV[1])
+end
+redis.call('ZREM', KEYS[5], ARGV[1])
+redis.call('DEL', KEYS[2], KEYS[3], KEYS[4])
+redis.call('SREM', KEYS[1], ARGV[1])
+local reply = {1}
+for i = 3 + invitedCount, #ARGV do
+    table.insert(reply, ARGV[i])
+end
+return reply
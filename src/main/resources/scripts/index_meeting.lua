@@ -0,0 +1,27 @@
+-- Adds an active meeting to the geo and per-user indexes in one atomic step, only while its hash
+-- exists, so a meeting ended meanwhile by end_meeting.lua cannot leave entries behind
+-- KEYS[1] active meeting hash, KEYS[2] invited set, KEYS[3] joined set, KEYS[4] geo index, KEYS[5..]
+-- per-user invited sets of the invited participants followed by the per-user joined sets of the joined ones
+-- ARGV[1] meeting id, ARGV[2] longitude and ARGV[3] latitude (both empty without a location),
+-- ARGV[4] number of invited participants, ARGV[5..] the invited participants followed by the joined
+-- participants, in the order of their keys
+-- Returns 1 when indexed, 0 when the meeting is not active
+if redis.call('EXISTS', KEYS[1]) == 0 then
+    return 0
+end
+if ARGV[2] ~= '' then
+    redis.call('GEOADD', KEYS[4], ARGV[2], ARGV[3], ARGV[1])
+end
+local invitedCount = tonumber(ARGV[4])
+for i = 5, 4 + invitedCount do
+    -- Restores the invited set too when rebuilding
+    redis.call('SADD', KEYS[2], ARGV[i])
+    redis.call('SADD', KEYS[i], ARGV[1])
+end
+for i = 5 + invitedCount, #KEYS do
+    -- Participants who left meanwhile stay out
+    if redis.call('SISMEMBER', KEYS[3], ARGV[i]) == 1 then
+        redis.call('SADD', KEYS[i], ARGV[1])
+    end
+end
+return 1
@@ -0,0 +1,13 @@
+-- Adds a user to the joined participants of an active meeting in one atomic step
+-- KEYS[1] active meeting hash, KEYS[2] invited set, KEYS[3] joined set, KEYS[4] user's joined meetings
+-- ARGV[1] email, ARGV[2] meeting id
+-- Returns 1 when joined, 0 when already joined, -1 when the meeting is not active, -2 when not invited
+if redis.call('EXISTS', KEYS[1]) == 0 then
+    return -1
+end
+if redis.call('SISMEMBER', KEYS[2], ARGV[1]) == 0 then
+    return -2
+end
+local added = redis.call('SADD', KEYS[3], ARGV[1])
+redis.call('SADD', KEYS[4], ARGV[2])
+return added
@@ -0,0 +1,12 @@
+-- Removes a user from the joined participants of an active meeting in one atomic step
+-- KEYS as in join_meeting.lua (the invited set is not used)
+-- ARGV[1] email, ARGV[2] meeting id
+-- Returns 1 when left, 0 when the user had not joined, -1 when the meeting is not active
+if redis.call('EXISTS', KEYS[1]) == 0 then
+    return -1
+end
+local removed = redis.call('SREM', KEYS[3], ARGV[1])
+if removed == 1 then
+    redis.call('SREM', KEYS[4], ARGV[2])
+end
+return removed
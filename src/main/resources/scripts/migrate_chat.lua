@@ -0,0 +1,18 @@
+-- Replaces a list chat by the stream copied from it, unless messages were appended meanwhile
+-- KEYS[1] list chat, KEYS[2] stream copy, KEYS[3] number of messages trimmed from the head of the list
+-- ARGV[1] position after the last message copied, counted from the first message ever appended
+-- Returns 1 when the migration is over, 0 when the list has messages that were not copied yet
+local length = redis.pcall('LLEN', KEYS[1])
+if type(length) ~= 'number' or length == 0 then
+    -- Migrated by another instance or archived meanwhile, the copy is not needed
+    redis.call('DEL', KEYS[2])
+    return 1
+end
+local trimmed = tonumber(redis.call('GET', KEYS[3])) or 0
+if trimmed + length > tonumber(ARGV[1]) then
+    return 0
+end
+redis.call('RENAME', KEYS[2], KEYS[1])
+redis.call('PERSIST', KEYS[1])
+redis.call('DEL', KEYS[3])
+return 1
@@ -0,0 +1,43 @@
+-- Replaces the active meetings near a user with the ones in range of the new position and
+-- returns the difference, in one atomic step
+-- KEYS[1] user's nearby meetings set, KEYS[2] user's last position
+-- ARGV[1] new position, ARGV[2] time to live of the state in millis, ARGV[3..] meeting ids now in range
+-- Returns the number of entered meetings, the meetings now in range that were not (entered) and
+-- the ones no longer in range (left)
+local previous = redis.call('SMEMBERS', KEYS[1])
+local current = {}
+for i = 3, #ARGV do
+    current[ARGV[i]] = true
+end
+local was = {}
+local left = {}
+for _, meetingId in ipairs(previous) do
+    was[meetingId] = true
+    if not current[meetingId] then
+        table.insert(left, meetingId)
+    end
+end
+local entered = {}
+for i = 3, #ARGV do
+    if not was[ARGV[i]] then
+        table.insert(entered, ARGV[i])
+    end
+end
+-- In chunks, unpack fails beyond the Lua C stack limit
+local CHUNK = 1000
+for first = 1, #left, CHUNK do
+    redis.call('SREM', KEYS[1], unpack(left, first, math.min(first + CHUNK - 1, #left)))
+end
+for first = 1, #entered, CHUNK do
+    redis.call('SADD', KEYS[1], unpack(entered, first, math.min(first + CHUNK - 1, #entered)))
+end
+redis.call('PEXPIRE', KEYS[1], ARGV[2])
+redis.call('SET', KEYS[2], ARGV[1], 'PX', ARGV[2])
+local reply = {#entered}
+for _, meetingId in ipairs(entered) do
+    table.insert(reply, meetingId)
+end
+for _, meetingId in ipairs(left) do
+    table.insert(reply, meetingId)
+end
+return reply
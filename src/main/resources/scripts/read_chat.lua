@@ -0,0 +1,23 @@
+-- Reads a range of a list chat by position, counted from the first message ever appended
+-- KEYS[1] chat list, KEYS[2] number of messages trimmed from the head of the list so far
+-- ARGV[1] first and ARGV[2] last position, both inclusive, ARGV[3] maximum number of messages.
+-- Trimmed positions are skipped. A negative ARGV[1] reads the last -ARGV[1] messages instead.
+-- Returns the number of trimmed messages, the list length and the messages read
+local trimmed = tonumber(redis.call('GET', KEYS[2])) or 0
+local length = redis.call('LLEN', KEYS[1])
+local first = tonumber(ARGV[1])
+local entries = {}
+if first < 0 then
+    entries = redis.call('LRANGE', KEYS[1], first, -1)
+else
+    first = math.max(first - trimmed, 0)
+    local last = math.min(tonumber(ARGV[2]) - trimmed, first + tonumber(ARGV[3]) - 1)
+    if last >= first then
+        entries = redis.call('LRANGE', KEYS[1], first, last)
+    end
+end
+local reply = {trimmed, length}
+for i = 1, #entries do
+    reply[#reply + 1] = entries[i]
+end
+return reply
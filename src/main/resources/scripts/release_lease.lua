@@ -0,0 +1,7 @@
+-- Gives up a lease if the caller still holds it
+-- KEYS[1] lease, ARGV[1] fencing token of the caller
+-- Returns 1 when the lease was released, 0 otherwise
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+    return redis.call('DEL', KEYS[1])
+end
+return 0
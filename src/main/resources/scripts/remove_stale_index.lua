@@ -0,0 +1,18 @@
+-- Removes from an index the meetings that are no longer active, or no longer have the user as a
+-- participant, each checked in the same atomic step so entries added by a join or an activation stay
+-- KEYS[1] index: a per-user invited or joined set, or the geo index. KEYS[2..] the active meeting hash
+-- of each candidate, followed for a per-user set by the meeting's invited or joined set
+-- ARGV[1] the user's email, empty for the geo index, ARGV[2..] the candidate meeting ids
+-- Returns the number of meetings removed
+local perUser = ARGV[1] ~= ''
+local step = perUser and 2 or 1
+local removed = 0
+for i = 2, #ARGV do
+    local k = 2 + (i - 2) * step
+    if redis.call('EXISTS', KEYS[k]) == 0 then
+        removed = removed + redis.call(perUser and 'SREM' or 'ZREM', KEYS[1], ARGV[i])
+    elseif perUser and redis.call('SISMEMBER', KEYS[k + 1], ARGV[1]) == 0 then
+        removed = removed + redis.call('SREM', KEYS[1], ARGV[i])
+    end
+end
+return removed
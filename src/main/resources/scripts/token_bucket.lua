@@ -0,0 +1,40 @@
+-- Takes one token from each of the buckets, or from none of them when any is empty
+-- KEYS[i] bucket, a hash of its tokens and the time they were counted at in millis
+-- ARGV[2i-1] capacity of bucket i, ARGV[2i] its refill rate in tokens per second
+-- Returns {0, 0} when the tokens were taken, otherwise the millis until every bucket has a token
+-- and the index of the bucket that waits longest
+-- The Redis clock is used so every instance sees the same time
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+local tokens = {}
+local wait = 0
+local limited = 0
+for i, key in ipairs(KEYS) do
+    local capacity = tonumber(ARGV[2 * i - 1])
+    local rate = tonumber(ARGV[2 * i]) / 1000
+    local state = redis.call('HMGET', key, 'tokens', 'ts')
+    local stored = tonumber(state[1])
+    local available = capacity
+    if stored then
+        available = math.min(capacity, stored + math.max(0, now - tonumber(state[2])) * rate)
+    end
+    tokens[i] = available
+    if available < 1 then
+        local needed = math.ceil((1 - available) / rate)
+        if needed > wait then
+            wait = needed
+            limited = i
+        end
+    end
+end
+if limited > 0 then
+    return {wait, limited}
+end
+for i, key in ipairs(KEYS) do
+    local capacity = tonumber(ARGV[2 * i - 1])
+    local rate = tonumber(ARGV[2 * i]) / 1000
+    redis.call('HSET', key, 'tokens', tostring(tokens[i] - 1), 'ts', now)
+    -- A bucket left alone long enough to be full again is the same as no bucket
+    redis.call('PEXPIRE', key, math.ceil(capacity / rate))
+end
+return {0, 0}
@@ -0,0 +1,91 @@
+package gr.dmst.edu.redis.service;
+
+import gr.dmst.edu.redis.config.NearCacheProperties;
+import gr.dmst.edu.redis.model.ActiveMeeting;
+import gr.dmst.edu.redis.repository.ActiveMeetingRepository;
+import gr.dmst.edu.redis.repository.RedisKeys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ActiveMeetingCacheTest {
+
+    @Mock
+    private ActiveMeetingRepository activeMeetingRepository;
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+    @Mock
+    private RedisMessageListenerContainer listenerContainer;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ActiveMeetingCache cache;
+
+    @BeforeEach
+    void setUp() {
+        NearCacheProperties properties = new NearCacheProperties();
+        properties.setMaxSize(100);
+        cache = new ActiveMeetingCache(activeMeetingRepository, stringRedisTemplate, listenerContainer,
+                properties, meterRegistry);
+    }
+
+    @Test
+    void repeatedReadsHitTheCache() {
+        ActiveMeeting meeting = meeting("m1");
+        when(activeMeetingRepository.findById("m1")).thenReturn(Optional.of(meeting));
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(cache.get("m1")).contains(meeting);
+        }
+
+        verify(activeMeetingRepository, times(1)).findById("m1");
+        assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(9);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void inactiveMeetingsAreNotCached() {
+        when(activeMeetingRepository.findById("m1")).thenReturn(Optional.empty());
+
+        assertThat(cache.get("m1")).isEmpty();
+        assertThat(cache.get("m1")).isEmpty();
+
+        verify(activeMeetingRepository, times(2)).findById("m1");
+    }
+
+    @Test
+    void invalidationIsPublishedAndAppliedFromOtherInstances() {
+        when(activeMeetingRepository.findById("m1")).thenReturn(Optional.of(meeting("m1")));
+        cache.get("m1");
+
+        cache.invalidate("m1");
+        verify(stringRedisTemplate).convertAndSend(RedisKeys.ACTIVE_MEETING_INVALIDATION_CHANNEL, "m1");
+        assertThat(cache.size()).isZero();
+
+        // Another instance ended the meeting
+        cache.get("m1");
+        when(activeMeetingRepository.findById("m1")).thenReturn(Optional.empty());
+        cache.onMessage(new DefaultMessage(RedisKeys.ACTIVE_MEETING_INVALIDATION_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                "m1".getBytes(StandardCharsets.UTF_8)), null);
+
+        assertThat(cache.get("m1")).isEmpty();
+    }
+
+    private static ActiveMeeting meeting(String id) {
+        ActiveMeeting meeting = new ActiveMeeting();
+        meeting.setMeetingId(id);
+        return meeting;
+    }
+}
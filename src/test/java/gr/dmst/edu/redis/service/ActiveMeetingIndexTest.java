@@ -0,0 +1,216 @@
+package gr.dmst.edu.redis.service;
+
+import gr.dmst.edu.redis.model.ActiveMeeting;
+import gr.dmst.edu.redis.model.LocationUpdate;
+import gr.dmst.edu.redis.repository.ActiveMeetingRepository;
+import gr.dmst.edu.redis.repository.RedisKeys;
+import gr.dmst.edu.redis.support.EmbeddedRedis;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.geo.Point;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Index updates and geo searches on a real redis-server, the searches compared with the full scan they replaced
+class ActiveMeetingIndexTest {
+    private static final double RADIUS_METERS = 100.0;
+    private static final double CENTER_LAT = 37.9838;
+    private static final double CENTER_LON = 23.7275;
+    private static final List<String> USERS = List.of("a@x.gr", "b@x.gr", "c@x.gr", "d@x.gr");
+    // Earth radius Redis uses for the GEO commands
+    private static final double EARTH_RADIUS_METERS = 6372797.560856;
+    // Redis stores positions as 52 bit geohashes, accurate to well under a meter
+    private static final double GEOHASH_ERROR_METERS = 1.0;
+
+    private static EmbeddedRedis redis;
+    private static StringRedisTemplate template;
+
+    private final List<ActiveMeeting> meetings = new ArrayList<>();
+    private final Random random = new Random(42);
+    private ActiveMeetingRepository activeMeetingRepository;
+    private ActiveMeetingIndex index;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = EmbeddedRedis.start();
+        template = redis.stringRedisTemplate();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        template.getConnectionFactory().getConnection().serverCommands().flushAll();
+        activeMeetingRepository = mock(ActiveMeetingRepository.class);
+        index = new ActiveMeetingIndex(activeMeetingRepository, new ParticipantStore(template), template);
+        for (int i = 0; i < 500; i++) {
+            ActiveMeeting meeting = new ActiveMeeting();
+            meeting.setMeetingId("meet-" + i);
+            // Spread meetings over roughly 600m around the center
+            meeting.setLatitude(CENTER_LAT + (random.nextDouble() - 0.5) * 0.01);
+            meeting.setLongitude(CENTER_LON + (random.nextDouble() - 0.5) * 0.01);
+            meeting.setParticipants(USERS.stream()
+                    .filter(u -> random.nextBoolean())
+                    .collect(Collectors.toSet()));
+            meetings.add(meeting);
+            // Only active meetings are indexed
+            template.opsForHash().put(RedisKeys.activeMeeting(meeting.getMeetingId()), "meetingId", meeting.getMeetingId());
+            index.add(meeting);
+        }
+    }
+
+    // The lookups of MeetingService.findNearbyMeetings
+    @Test
+    void nearbyInvitedMatchesFullScan() {
+        int hits = 0;
+        for (int probe = 0; probe < 200; probe++) {
+            LocationUpdate location = randomLocation();
+            Set<String> invited = index.invitedMeetings(location.getEmail());
+            List<String> found = index.nearby(location.getX(), location.getY(), RADIUS_METERS).stream()
+                    .filter(invited::contains)
+                    .toList();
+
+            hits += assertMatchesScan(location, found);
+        }
+        assertThat(hits).isPositive();
+    }
+
+    // The pipelined lookups of ProximityTracker
+    @Test
+    void pipelinedNearbyInvitedMatchesFullScan() {
+        List<LocationUpdate> locations = new ArrayList<>();
+        for (int probe = 0; probe < 200; probe++) {
+            locations.add(randomLocation());
+        }
+
+        List<List<String>> found = index.nearbyInvited(locations, RADIUS_METERS);
+
+        assertThat(found).hasSameSizeAs(locations);
+        int hits = 0;
+        for (int i = 0; i < locations.size(); i++) {
+            hits += assertMatchesScan(locations.get(i), found.get(i));
+        }
+        assertThat(hits).isPositive();
+    }
+
+    // A meeting ended between its save and its indexing, as end_meeting.lua leaves it
+    @Test
+    void endedMeetingIsNotIndexed() {
+        ActiveMeeting meeting = new ActiveMeeting();
+        meeting.setMeetingId("ended");
+        meeting.setLatitude(CENTER_LAT);
+        meeting.setLongitude(CENTER_LON);
+        meeting.setParticipants(Set.of("a@x.gr"));
+        meeting.setJoinedParticipants(Set.of("a@x.gr"));
+
+        assertThat(index.add(meeting)).isFalse();
+
+        assertThat(index.invitedMeetings("a@x.gr")).doesNotContain("ended");
+        assertThat(index.joinedMeetings("a@x.gr")).doesNotContain("ended");
+        assertThat(template.opsForGeo().position(RedisKeys.GEO_ACTIVE_MEETINGS, "ended")).containsOnlyNulls();
+    }
+
+    // Joined participants are indexed only while still in the meeting's joined set
+    @Test
+    void onlyStillJoinedParticipantsAreIndexed() {
+        ActiveMeeting meeting = meetings.get(0);
+        template.opsForSet().add(RedisKeys.meetingJoined(meeting.getMeetingId()), "a@x.gr");
+        meeting.setJoinedParticipants(Set.of("a@x.gr", "b@x.gr"));
+
+        assertThat(index.add(meeting)).isTrue();
+
+        assertThat(index.isJoined("a@x.gr", meeting.getMeetingId())).isTrue();
+        assertThat(index.isJoined("b@x.gr", meeting.getMeetingId())).isFalse();
+    }
+
+    // Entries missing from the rebuild's snapshot are removed only when Redis agrees they are stale
+    @Test
+    void rebuildKeepsEntriesWrittenSinceItsSnapshot() {
+        ActiveMeeting snapshotted = meetings.get(0);
+        ActiveMeeting endedMeanwhile = meetings.get(1);
+        ActiveMeeting joinedMeanwhile = meetings.get(2);
+        when(activeMeetingRepository.findAll()).thenReturn(List.of(snapshotted, endedMeanwhile));
+        // Ended before its per-user entries went, as if end_meeting.lua had been given stale participants
+        template.delete(List.of(RedisKeys.activeMeeting(endedMeanwhile.getMeetingId()),
+                RedisKeys.meetingInvited(endedMeanwhile.getMeetingId())));
+        // A join the snapshot missed
+        template.opsForSet().add(RedisKeys.meetingJoined(joinedMeanwhile.getMeetingId()), "d@x.gr");
+        template.opsForSet().add(RedisKeys.userJoined("d@x.gr"), joinedMeanwhile.getMeetingId(), "gone");
+        template.opsForSet().add(RedisKeys.userInvited("d@x.gr"), "gone");
+        template.opsForGeo().add(RedisKeys.GEO_ACTIVE_MEETINGS, new Point(CENTER_LON, CENTER_LAT), "gone");
+
+        index.rebuild();
+
+        assertThat(index.joinedMeetings("d@x.gr")).containsExactly(joinedMeanwhile.getMeetingId());
+        assertThat(index.invitedMeetings("d@x.gr")).doesNotContain("gone");
+        assertThat(template.opsForGeo().position(RedisKeys.GEO_ACTIVE_MEETINGS, "gone")).containsOnlyNulls();
+        // Meetings missing from the snapshot but still active keep their entries, the ended one is not brought back
+        assertThat(template.opsForGeo().position(RedisKeys.GEO_ACTIVE_MEETINGS, joinedMeanwhile.getMeetingId()))
+                .doesNotContainNull();
+        assertThat(template.opsForGeo().position(RedisKeys.GEO_ACTIVE_MEETINGS, snapshotted.getMeetingId()))
+                .doesNotContainNull();
+        endedMeanwhile.getParticipants().forEach(email ->
+                assertThat(index.invitedMeetings(email)).doesNotContain(endedMeanwhile.getMeetingId()));
+        assertThat(template.opsForGeo().position(RedisKeys.GEO_ACTIVE_MEETINGS, endedMeanwhile.getMeetingId()))
+                .containsOnlyNulls();
+        assertThat(template.hasKey(RedisKeys.meetingInvited(endedMeanwhile.getMeetingId()))).isFalse();
+    }
+
+    // Meetings clearly inside the radius must be found and the found ones must be inside it,
+    // up to the geohash precision, in order of distance. Returns the number found.
+    private int assertMatchesScan(LocationUpdate location, List<String> found) {
+        Set<String> inside = new HashSet<>();
+        Set<String> nearEdge = new HashSet<>();
+        for (ActiveMeeting meeting : meetings) {
+            if (!meeting.getParticipants().contains(location.getEmail())) {
+                continue;
+            }
+            double meters = distance(location, meeting);
+            if (meters <= RADIUS_METERS - GEOHASH_ERROR_METERS) {
+                inside.add(meeting.getMeetingId());
+            } else if (meters <= RADIUS_METERS + GEOHASH_ERROR_METERS) {
+                nearEdge.add(meeting.getMeetingId());
+            }
+        }
+        assertThat(found).containsAll(inside);
+        assertThat(found).allMatch(id -> inside.contains(id) || nearEdge.contains(id));
+        List<Double> distances = found.stream()
+                .map(id -> distance(location, meetings.get(Integer.parseInt(id.substring("meet-".length())))))
+                .toList();
+        for (int i = 1; i < distances.size(); i++) {
+            assertThat(distances.get(i)).isGreaterThan(distances.get(i - 1) - GEOHASH_ERROR_METERS);
+        }
+        return found.size();
+    }
+
+    private LocationUpdate randomLocation() {
+        return new LocationUpdate(USERS.get(random.nextInt(USERS.size())),
+                CENTER_LAT + (random.nextDouble() - 0.5) * 0.01,
+                CENTER_LON + (random.nextDouble() - 0.5) * 0.01);
+    }
+
+    // The pre-index behaviour: haversine distance in meters, the formula Redis uses
+    private static double distance(LocationUpdate location, ActiveMeeting meeting) {
+        double dLat = Math.toRadians(meeting.getLatitude() - location.getX());
+        double dLon = Math.toRadians(meeting.getLongitude() - location.getY());
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(location.getX())) * Math.cos(Math.toRadians(meeting.getLatitude()))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.sqrt(a));
+    }
+}
@@ -0,0 +1,160 @@
+package gr.dmst.edu.redis.service;
+
+import gr.dmst.edu.redis.config.BackgroundThreads;
+import gr.dmst.edu.redis.config.LogWriterProperties;
+import gr.dmst.edu.redis.model.Log;
+import gr.dmst.edu.redis.repository.MeetingAttendanceRepository;
+import gr.dmst.edu.redis.repository.MeetingRepository;
+import gr.dmst.edu.redis.repository.UserAttendanceRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class AttendanceRollupTest {
+    private static final LocalDateTime START = LocalDateTime.of(2026, 1, 1, 10, 0);
+
+    private JdbcTemplate jdbcTemplate;
+    private AttendanceRollup rollup;
+    private LogWriter logWriter;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource =
+                new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        // The tables Hibernate creates for Log, MeetingAttendance and UserAttendance
+        jdbcTemplate.execute("CREATE TABLE log (id BIGINT AUTO_INCREMENT PRIMARY KEY, email VARCHAR(255), "
+                + "meeting_id VARCHAR(255), timestamp TIMESTAMP, action INTEGER)");
+        jdbcTemplate.execute("CREATE TABLE meeting_attendance (meeting_id VARCHAR(255) PRIMARY KEY, "
+                + "current_attendees INTEGER NOT NULL, peak_attendees INTEGER NOT NULL, peak_at TIMESTAMP, "
+                + "distinct_attendees INTEGER NOT NULL, total_millis BIGINT NOT NULL, last_applied_at TIMESTAMP)");
+        jdbcTemplate.execute("CREATE TABLE user_attendance (meeting_id VARCHAR(255), email VARCHAR(255), "
+                + "total_millis BIGINT NOT NULL, joins INTEGER NOT NULL, first_joined_at TIMESTAMP, "
+                + "last_left_at TIMESTAMP, open_since TIMESTAMP, PRIMARY KEY (meeting_id, email))");
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        rollup = new AttendanceRollup(jdbcTemplate, transactionTemplate, mock(MeetingAttendanceRepository.class),
+                mock(UserAttendanceRepository.class), mock(MeetingRepository.class));
+        // Not started, so every log is written right away
+        logWriter = new LogWriter(jdbcTemplate, transactionTemplate, new LogWriterProperties(),
+                new BackgroundThreads(new MockEnvironment()), rollup, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void rollupsFollowTheLogsAsTheyAreWritten() {
+        logWriter.submitAll(List.of(
+                log("a@x.gr", "m1", 0, Log.JOIN_MEETING),
+                log("b@x.gr", "m1", 1, Log.JOIN_MEETING),
+                log("a@x.gr", "m1", 2, Log.JOIN_MEETING),   // already in the meeting
+                log("a@x.gr", "m1", 10, Log.LEAVE_MEETING)));
+        logWriter.submit(log("c@x.gr", "m1", 11, Log.JOIN_MEETING));
+        logWriter.submit(log("a@x.gr", "m1", 12, Log.JOIN_MEETING));
+        logWriter.submit(log("d@x.gr", "m1", 13, Log.LEAVE_MEETING)); // never joined
+        logWriter.submitAll(List.of(
+                log("a@x.gr", "m1", 20, Log.TIME_OUT),
+                log("b@x.gr", "m1", 20, Log.TIME_OUT),
+                log("c@x.gr", "m1", 20, Log.TIME_OUT),
+                log("a@x.gr", "m2", 30, Log.JOIN_MEETING)));
+
+        Map<String, Object> meeting = meetingRow("m1");
+        assertThat(meeting.get("CURRENT_ATTENDEES")).isEqualTo(0);
+        assertThat(meeting.get("PEAK_ATTENDEES")).isEqualTo(3);
+        assertThat(meeting.get("PEAK_AT")).isEqualTo(Timestamp.valueOf(at(12)));
+        assertThat(meeting.get("DISTINCT_ATTENDEES")).isEqualTo(3);
+        assertThat(meeting.get("TOTAL_MILLIS")).isEqualTo(minutes(10 + 8 + 19 + 9));
+
+        assertThat(userRow("m1", "a@x.gr"))
+                .containsEntry("TOTAL_MILLIS", minutes(18))
+                .containsEntry("JOINS", 2)
+                .containsEntry("OPEN_SINCE", null);
+        assertThat(userRow("m1", "b@x.gr")).containsEntry("TOTAL_MILLIS", minutes(19));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_attendance WHERE email = 'd@x.gr'",
+                Integer.class)).isZero();
+        assertThat(meetingRow("m2")).containsEntry("CURRENT_ATTENDEES", 1);
+        assertThat(userRow("m2", "a@x.gr").get("OPEN_SINCE")).isNotNull();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM log", Integer.class)).isEqualTo(11);
+    }
+
+    // A join buffered on another instance is written after the leave that ended its session
+    @Test
+    void logsArrivingOutOfOrderAreReplayedInTimeOrder() {
+        logWriter.submit(log("b@x.gr", "m1", 1, Log.JOIN_MEETING));
+        logWriter.submit(log("a@x.gr", "m1", 10, Log.LEAVE_MEETING));
+        logWriter.submitAll(List.of(
+                log("b@x.gr", "m1", 12, Log.LEAVE_MEETING),
+                log("a@x.gr", "m1", 0, Log.JOIN_MEETING)));
+
+        assertThat(userRow("m1", "a@x.gr"))
+                .containsEntry("TOTAL_MILLIS", minutes(10))
+                .containsEntry("OPEN_SINCE", null);
+        assertThat(meetingRow("m1"))
+                .containsEntry("CURRENT_ATTENDEES", 0)
+                .containsEntry("PEAK_ATTENDEES", 2)
+                .containsEntry("TOTAL_MILLIS", minutes(10 + 11))
+                .containsEntry("LAST_APPLIED_AT", Timestamp.valueOf(at(12)));
+    }
+
+    @Test
+    void rebuildMatchesTheIncrementalRollups() {
+        for (int i = 0; i < 50; i++) {
+            String email = "user" + (i % 7) + "@x.gr";
+            String meetingId = "m" + (i % 3);
+            logWriter.submit(log(email, meetingId, i, i % 4 == 3 ? Log.LEAVE_MEETING : Log.JOIN_MEETING));
+        }
+        List<Map<String, Object>> meetings = jdbcTemplate.queryForList("SELECT * FROM meeting_attendance ORDER BY meeting_id");
+        List<Map<String, Object>> users = jdbcTemplate.queryForList("SELECT * FROM user_attendance ORDER BY meeting_id, email");
+
+        jdbcTemplate.update("UPDATE meeting_attendance SET peak_attendees = 99");
+        jdbcTemplate.update("DELETE FROM user_attendance WHERE email = 'user1@x.gr'");
+        jdbcTemplate.update("INSERT INTO meeting_attendance VALUES ('purged', 1, 1, NULL, 1, 0, NULL)");
+
+        assertThat(rollup.rebuild()).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForList("SELECT * FROM meeting_attendance ORDER BY meeting_id")).isEqualTo(meetings);
+        assertThat(jdbcTemplate.queryForList("SELECT * FROM user_attendance ORDER BY meeting_id, email")).isEqualTo(users);
+    }
+
+    @Test
+    void backfillsOnlyWhenThereAreNoRollups() {
+        jdbcTemplate.update("INSERT INTO log (email, meeting_id, timestamp, action) VALUES ('a@x.gr', 'm1', ?, 1)", at(0));
+
+        rollup.backfill();
+        assertThat(meetingRow("m1")).containsEntry("CURRENT_ATTENDEES", 1);
+
+        jdbcTemplate.update("INSERT INTO log (email, meeting_id, timestamp, action) VALUES ('a@x.gr', 'm1', ?, 2)", at(5));
+        rollup.backfill();
+        assertThat(meetingRow("m1")).containsEntry("CURRENT_ATTENDEES", 1);
+    }
+
+    private Map<String, Object> meetingRow(String meetingId) {
+        return jdbcTemplate.queryForMap("SELECT * FROM meeting_attendance WHERE meeting_id = ?", meetingId);
+    }
+
+    private Map<String, Object> userRow(String meetingId, String email) {
+        return jdbcTemplate.queryForMap("SELECT * FROM user_attendance WHERE meeting_id = ? AND email = ?", meetingId, email);
+    }
+
+    private static Log log(String email, String meetingId, int minute, int action) {
+        return new Log(null, email, meetingId, at(minute), action);
+    }
+
+    private static LocalDateTime at(int minute) {
+        return START.plusMinutes(minute);
+    }
+
+    private static long minutes(int minutes) {
+        return minutes * 60_000L;
+    }
+}
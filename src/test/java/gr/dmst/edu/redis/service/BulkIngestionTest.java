@@ -0,0 +1,174 @@
+package gr.dmst.edu.redis.service;
+
+import gr.dmst.edu.redis.config.BulkProperties;
+import gr.dmst.edu.redis.config.RedisConfig;
+import gr.dmst.edu.redis.model.BulkJoin;
+import gr.dmst.edu.redis.model.BulkResult;
+import gr.dmst.edu.redis.support.MockRedis;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static gr.dmst.edu.redis.model.BulkResult.Status.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BulkIngestionTest {
+    private static MockRedis redis;
+    private static StringRedisTemplate template;
+    private JdbcTemplate jdbcTemplate;
+    private MeetingService meetingService;
+    private BulkIngestion bulkIngestion;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = MockRedis.start();
+        template = redis.stringRedisTemplate();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        template.getConnectionFactory().getConnection().serverCommands().flushAll();
+        DriverManagerDataSource dataSource =
+                new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        // The tables Hibernate creates for User and Meeting
+        jdbcTemplate.execute("CREATE TABLE users (email VARCHAR(255) PRIMARY KEY, name VARCHAR(255), age INTEGER, "
+                + "gender VARCHAR(255))");
+        jdbcTemplate.execute("CREATE TABLE meeting (meeting_id VARCHAR(255) PRIMARY KEY, title VARCHAR(255), "
+                + "description VARCHAR(255), start_time TIMESTAMP, end_time TIMESTAMP, latitude FLOAT, longitude FLOAT)");
+        jdbcTemplate.execute("CREATE TABLE meeting_participant (meeting_id VARCHAR(255) NOT NULL, "
+                + "email VARCHAR(255) NOT NULL, PRIMARY KEY (meeting_id, email))");
+        meetingService = mock(MeetingService.class);
+        BulkProperties properties = new BulkProperties();
+        properties.setBatchSize(3);
+        bulkIngestion = new BulkIngestion(jdbcTemplate, new TransactionTemplate(new DataSourceTransactionManager(dataSource)),
+                new RedisConfig().objectMapper(), new MeetingSchedule(template), meetingService, properties);
+    }
+
+    @Test
+    void writesUsersAcrossBatchesWithAResultPerItem() throws IOException {
+        jdbcTemplate.update("INSERT INTO users VALUES ('old@x.gr', 'Old', 70, 'F')");
+
+        BulkResult result = bulkIngestion.users(body("""
+                {"email": "a@x.gr", "name": "A", "age": 20}
+                {"email": "old@x.gr", "name": "Renamed"}
+                {"name": "No e-mail"}
+                {"email": "b@x.gr", "age": "twenty"}
+                {"email": "a@x.gr", "name": "A2", "gender": "M"}
+                {"email": "%s"}
+                {"email": "c@x.gr"}
+                """.formatted("x".repeat(300))));
+
+        assertThat(result.getItems()).extracting(BulkResult.Item::getStatus)
+                .containsExactly(CREATED, UPDATED, FAILED, FAILED, UPDATED, FAILED, CREATED);
+        assertThat(result.getItems()).extracting(BulkResult.Item::getIndex).containsExactly(0, 1, 2, 3, 4, 5, 6);
+        assertThat(result.getSucceeded()).isEqualTo(4);
+        assertThat(result.getFailed()).isEqualTo(3);
+        assertThat(result.getItems().get(2).getError()).isEqualTo("email is required");
+        // The value too long for the column fails alone, c@x.gr of the same batch is written
+        assertThat(jdbcTemplate.queryForList("SELECT email FROM users ORDER BY email", String.class))
+                .containsExactly("a@x.gr", "c@x.gr", "old@x.gr");
+        assertThat(jdbcTemplate.queryForMap("SELECT * FROM users WHERE email = 'a@x.gr'"))
+                .containsEntry("NAME", "A2").containsEntry("AGE", null).containsEntry("GENDER", "M");
+        assertThat(jdbcTemplate.queryForObject("SELECT name FROM users WHERE email = 'old@x.gr'", String.class))
+                .isEqualTo("Renamed");
+    }
+
+    @Test
+    void writesAndSchedulesMeetingsFromAnArray() throws IOException {
+        jdbcTemplate.update("INSERT INTO meeting VALUES ('m1', 'Old', NULL, ?, ?, NULL, NULL)",
+                LocalDateTime.of(2026, 1, 1, 9, 0), LocalDateTime.of(2026, 1, 1, 10, 0));
+        jdbcTemplate.update("INSERT INTO meeting_participant VALUES ('m1', 'old@x.gr')");
+
+        BulkResult result = bulkIngestion.meetings(body("""
+                [
+                  {"meetingId": "m1", "title": "Standup", "startTime": "2026-01-01T10:00:00",
+                   "endTime": "2026-01-01T10:15:00", "latitude": 37.9, "longitude": 23.7,
+                   "participants": ["a@x.gr", "b@x.gr"]},
+                  {"meetingId": "m2", "startTime": "2026-01-01T11:00:00", "endTime": "2026-01-01T12:00:00",
+                   "participants": "a@x.gr, c@x.gr"},
+                  {"meetingId": "m3", "startTime": "2026-01-01T11:00:00"},
+                  {"meetingId": "m4", "startTime": "2026-01-01T13:00:00", "endTime": "2026-01-01T14:00:00"}
+                ]
+                """));
+
+        assertThat(result.getItems()).extracting(BulkResult.Item::getStatus).containsExactly(UPDATED, CREATED, FAILED, CREATED);
+        assertThat(result.getItems()).extracting(BulkResult.Item::getId).containsExactly("m1", "m2", "m3", "m4");
+        assertThat(jdbcTemplate.queryForObject("SELECT title FROM meeting WHERE meeting_id = 'm1'", String.class))
+                .isEqualTo("Standup");
+        assertThat(jdbcTemplate.queryForList("SELECT email FROM meeting_participant WHERE meeting_id = 'm1' ORDER BY email",
+                String.class)).containsExactly("a@x.gr", "b@x.gr");
+        assertThat(jdbcTemplate.queryForList("SELECT email FROM meeting_participant WHERE meeting_id = 'm2' ORDER BY email",
+                String.class)).containsExactly("a@x.gr", "c@x.gr");
+        assertThat(template.opsForZSet().range("schedule:start", 0, -1)).containsExactly("m1", "m2", "m4");
+        assertThat(template.opsForZSet().score("schedule:end", "m1"))
+                .isEqualTo((double) MeetingSchedule.toMillis(LocalDateTime.of(2026, 1, 1, 10, 15)));
+    }
+
+    @Test
+    void stopsAtMalformedJson() throws IOException {
+        BulkResult result = bulkIngestion.users(body("""
+                {"email": "a@x.gr"}
+                {"email": "b@x.gr"
+                {"email": "c@x.gr"}
+                """));
+
+        assertThat(result.getItems()).extracting(BulkResult.Item::getStatus).containsExactly(CREATED, FAILED);
+        assertThat(result.getItems().get(1).getError()).startsWith("Malformed JSON");
+        assertThat(jdbcTemplate.queryForList("SELECT email FROM users", String.class)).containsExactly("a@x.gr");
+    }
+
+    @Test
+    void reportsTheResultOfEachJoin() throws IOException {
+        Map<BulkJoin, Long> outcomes = Map.of(new BulkJoin("m1", "a@x.gr"), ParticipantStore.JOINED,
+                new BulkJoin("m1", "b@x.gr"), ParticipantStore.UNCHANGED,
+                new BulkJoin("m1", "c@x.gr"), ParticipantStore.NOT_INVITED,
+                new BulkJoin("m2", "a@x.gr"), ParticipantStore.NOT_ACTIVE);
+        when(meetingService.joinMeetings(anyList())).thenAnswer(invocation ->
+                invocation.<List<BulkJoin>>getArgument(0).stream().map(outcomes::get).toList());
+
+        BulkResult result = bulkIngestion.joins(body("""
+                {"meetingId": "m1", "email": "a@x.gr"}
+                {"meetingId": "m1", "email": "b@x.gr"}
+                {"meetingId": "m1"}
+                {"meetingId": "m1", "email": "c@x.gr"}
+                {"meetingId": "m2", "email": "a@x.gr"}
+                """));
+
+        // One pipeline per batch of three items, without the invalid one
+        verify(meetingService).joinMeetings(List.of(new BulkJoin("m1", "a@x.gr"), new BulkJoin("m1", "b@x.gr")));
+        verify(meetingService).joinMeetings(List.of(new BulkJoin("m1", "c@x.gr"), new BulkJoin("m2", "a@x.gr")));
+        assertThat(result.getItems()).extracting(BulkResult.Item::getStatus)
+                .containsExactly(JOINED, ALREADY_JOINED, FAILED, FAILED, FAILED);
+        assertThat(result.getItems()).extracting(BulkResult.Item::getError)
+                .containsExactly(null, null, "meetingId and email are required", "User not invited", "Meeting not active");
+    }
+
+    private static InputStream body(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,166 @@
+package gr.dmst.edu.redis.service;
+
+import gr.dmst.edu.redis.config.ChatArchiveProperties;
+import gr.dmst.edu.redis.config.ChatProperties;
+import gr.dmst.edu.redis.config.RedisConfig;
+import gr.dmst.edu.redis.model.ChatMessage;
+import gr.dmst.edu.redis.repository.ChatArchiveRepository;
+import gr.dmst.edu.redis.support.MockRedis;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+
+class ChatArchiverTest {
+    private static MockRedis redis;
+    private static StringRedisTemplate template;
+    private static RedisTemplate<String, byte[]> chatTemplate;
+
+    private final ChatArchiveProperties properties = new ChatArchiveProperties();
+    private final ChatCodec chatCodec = new ChatCodec(new RedisConfig().objectMapper(), new ChatProperties());
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private ChatArchiver archiver;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = MockRedis.start();
+        template = redis.stringRedisTemplate();
+        chatTemplate = redis.chatRedisTemplate();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        template.getConnectionFactory().getConnection().serverCommands().flushAll();
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        // The table Hibernate creates for ArchivedChatMessage
+        jdbcTemplate.execute("CREATE TABLE chat_archive (id BIGINT AUTO_INCREMENT PRIMARY KEY, meeting_id VARCHAR(255), "
+                + "ended_at BIGINT, seq BIGINT, email VARCHAR(255), message TEXT, timestamp BIGINT, "
+                + "CONSTRAINT uk_chat_archive_position UNIQUE (meeting_id, ended_at, seq))");
+        properties.setBatchSize(10);
+        archiver = new ChatArchiver(template, chatTemplate, chatCodec, jdbcTemplate,
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)),
+                mock(ChatArchiveRepository.class), properties, new ChatProperties(), mock(LeaderLease.class),
+                new SimpleMeterRegistry());
+    }
+
+    @Test
+    void endedChatsAreMovedToTheArchiveTable() throws Exception {
+        ListChatStore listStore = new ListChatStore(chatTemplate, chatCodec, new ChatProperties());
+        for (int i = 0; i < 25; i++) {
+            listStore.append("m1", new ChatMessage("a@x.gr", "m" + i, 1_000L + i));
+        }
+        listStore.append("m2", new ChatMessage("b@x.gr", "only", 5_000L));
+
+        archiver.archive(List.of("m1", "m2", "no-chat"));
+
+        assertThat(template.hasKey("chat:m1")).isFalse();
+        assertThat(template.opsForSet().size("archive:pending")).isEqualTo(2);
+
+        archiver.archivePending();
+
+        assertThat(messages("m1")).hasSize(25).startsWith("m0", "m1").endsWith("m24");
+        assertThat(messages("m2")).containsExactly("only");
+        assertThat(jdbcTemplate.queryForList("SELECT seq FROM chat_archive WHERE meeting_id = 'm1' ORDER BY seq", Long.class))
+                .startsWith(0L, 1L).endsWith(24L);
+        assertThat(template.opsForSet().size("archive:pending")).isZero();
+        assertThat(template.keys("archive:*")).isEmpty();
+    }
+
+    @Test
+    void streamChatsResumeAfterTheLastCommittedPosition() throws Exception {
+        StreamChatStore streamStore = new StreamChatStore(chatTemplate, chatCodec, new ChatProperties());
+        for (int i = 0; i < 25; i++) {
+            streamStore.append("m1", new ChatMessage("a@x.gr", "m" + i, 1_000L + i));
+        }
+        archiver.archive(List.of("m1"));
+        String archiveKey = template.opsForSet().randomMember("archive:pending");
+        long endedAt = Long.parseLong(archiveKey.split(":")[2]);
+        // A run that stopped after committing the first 12 messages
+        for (int i = 0; i < 12; i++) {
+            jdbcTemplate.update("INSERT INTO chat_archive (meeting_id, ended_at, seq, email, message, timestamp) "
+                    + "VALUES ('m1', ?, ?, 'a@x.gr', ?, ?)", endedAt, i, "m" + i, 1_000L + i);
+        }
+
+        assertThat(archiver.archiveChat(archiveKey)).isEqualTo(13);
+
+        assertThat(messages("m1")).hasSize(25).startsWith("m0").endsWith("m24").doesNotHaveDuplicates();
+    }
+
+    @Test
+    void chatsLockedByAnotherInstanceAreLeftToIt() throws Exception {
+        new ListChatStore(chatTemplate, chatCodec, new ChatProperties()).append("m1", new ChatMessage("a@x.gr", "hi", 1_000L));
+        archiver.archive(List.of("m1"));
+        String archiveKey = template.opsForSet().randomMember("archive:pending");
+        template.opsForValue().set(archiveKey + ":lock", "1", Duration.ofMinutes(1));
+
+        archiver.archivePending();
+
+        assertThat(messages("m1")).isEmpty();
+        assertThat(template.opsForSet().isMember("archive:pending", archiveKey)).isTrue();
+    }
+
+    @Test
+    void malformedPendingKeysAreDroppedWithoutHoldingUpTheOthers() throws Exception {
+        new ListChatStore(chatTemplate, chatCodec, new ChatProperties()).append("m1", new ChatMessage("a@x.gr", "hi", 1_000L));
+        archiver.archive(List.of("m1"));
+        template.opsForSet().add("archive:pending", "archive:chat:m2", "archive:chat:not-a-time:m3", "unrelated");
+
+        archiver.archivePending();
+
+        assertThat(messages("m1")).containsExactly("hi");
+        assertThat(template.opsForSet().size("archive:pending")).isZero();
+    }
+
+    // The lock expired during the run and another instance took it
+    @Test
+    void runOutlivingItsLockLeavesTheNextHoldersLockAlone() throws Exception {
+        new ListChatStore(chatTemplate, chatCodec, new ChatProperties()).append("m1", new ChatMessage("a@x.gr", "hi", 1_000L));
+        archiver.archive(List.of("m1"));
+        String lock = template.opsForSet().randomMember("archive:pending") + ":lock";
+        JdbcTemplate slowJdbcTemplate = spy(jdbcTemplate);
+        doAnswer(invocation -> {
+            template.opsForValue().set(lock, "other-instance");
+            return invocation.callRealMethod();
+        }).when(slowJdbcTemplate).queryForObject(anyString(), eq(Long.class), any(Object[].class));
+        ChatArchiver slowArchiver = new ChatArchiver(template, chatTemplate, chatCodec, slowJdbcTemplate,
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)),
+                mock(ChatArchiveRepository.class), properties, new ChatProperties(), mock(LeaderLease.class),
+                new SimpleMeterRegistry());
+
+        slowArchiver.archivePending();
+
+        assertThat(messages("m1")).containsExactly("hi");
+        assertThat(template.opsForValue().get(lock)).isEqualTo("other-instance");
+    }
+
+    private List<String> messages(String meetingId) {
+        return jdbcTemplate.queryForList("SELECT message FROM chat_archive WHERE meeting_id = ? ORDER BY ended_at, seq",
+                String.class, meetingId);
+    }
+}
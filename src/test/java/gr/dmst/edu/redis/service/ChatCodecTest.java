@@ -0,0 +1,70 @@
+package gr.dmst.edu.redis.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.dmst.edu.redis.config.ChatProperties;
+import gr.dmst.edu.redis.config.RedisConfig;
+import gr.dmst.edu.redis.model.ChatMessage;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ChatCodecTest {
+    private final ObjectMapper objectMapper = new RedisConfig().objectMapper();
+    private final ChatCodec json = codec(ChatProperties.Codec.JSON);
+    private final ChatCodec binary = codec(ChatProperties.Codec.BINARY);
+
+    @Test
+    void binaryRoundTrips() throws IOException {
+        List<ChatMessage> messages = List.of(
+                new ChatMessage("a@x.gr", "hello", 1_700_000_000_123L),
+                new ChatMessage("γιώργος@x.gr", "καλημέρα 👋", 0L),
+                new ChatMessage("a@x.gr", "", -5L),
+                new ChatMessage("a@x.gr", "x".repeat(100_000), Long.MAX_VALUE),
+                new ChatMessage(null, null, null));
+
+        for (ChatMessage message : messages) {
+            assertThat(binary.decode(binary.encode(message))).isEqualTo(message);
+        }
+    }
+
+    @Test
+    void bothCodecsReadEachOthersEntries() throws IOException {
+        ChatMessage message = new ChatMessage("a@x.gr", "hello", 1_700_000_000_123L);
+
+        assertThat(binary.decode(json.encode(message))).isEqualTo(message);
+        assertThat(json.decode(binary.encode(message))).isEqualTo(message);
+        // Entries written before the codec existed
+        assertThat(binary.decode(objectMapper.writeValueAsString(message).getBytes(StandardCharsets.UTF_8)))
+                .isEqualTo(message);
+    }
+
+    @Test
+    void binaryIsSmallerThanJson() throws IOException {
+        ChatMessage message = new ChatMessage("a@x.gr", "hello", 1_700_000_000_123L);
+
+        // Version, flags, 6 byte timestamp, and length-prefixed email and message
+        assertThat(binary.encode(message)).hasSize(2 + 6 + 7 + 6);
+        assertThat(json.encode(message).length).isGreaterThan(50);
+    }
+
+    @Test
+    void rejectsUnknownVersionsAndTruncatedEntries() throws IOException {
+        byte[] encoded = binary.encode(new ChatMessage("a@x.gr", "hello", 1L));
+
+        assertThatThrownBy(() -> binary.decode(new byte[]{9, 0})).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> binary.decode(Arrays.copyOf(encoded, encoded.length - 1))).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> binary.decode(new byte[0])).isInstanceOf(IOException.class);
+    }
+
+    private ChatCodec codec(ChatProperties.Codec codec) {
+        ChatProperties properties = new ChatProperties();
+        properties.setCodec(codec);
+        return new ChatCodec(objectMapper, properties);
+    }
+}
@@ -0,0 +1,174 @@
+package gr.dmst.edu.redis.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.dmst.edu.redis.config.ChatProperties;
+import gr.dmst.edu.redis.config.RedisConfig;
+import gr.dmst.edu.redis.model.ChatMessage;
+import gr.dmst.edu.redis.model.ChatPage;
+import gr.dmst.edu.redis.support.MockRedis;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Behaviour every ChatStore and its ReactiveChatStore must have, run once per backend by the subclasses
+abstract class ChatStoreContractTest {
+    protected static final String MEETING_ID = "meet-chat";
+
+    protected static MockRedis redis;
+    protected static StringRedisTemplate template;
+    protected static RedisTemplate<String, byte[]> chatTemplate;
+    protected final ObjectMapper objectMapper = new RedisConfig().objectMapper();
+    protected final ChatProperties properties = new ChatProperties();
+    protected final ChatCodec jsonCodec = new ChatCodec(objectMapper, properties);
+    protected final ChatCodec chatCodec = new ChatCodec(objectMapper, binary());
+    protected ChatStore chatStore;
+
+    protected abstract ChatStore createStore(ChatCodec codec);
+
+    protected abstract ReactiveChatStore createReactiveStore();
+
+    @BeforeAll
+    static void startRedis() {
+        redis = MockRedis.start();
+        template = redis.stringRedisTemplate();
+        chatTemplate = redis.chatRedisTemplate();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        template.getConnectionFactory().getConnection().serverCommands().flushAll();
+        chatStore = createStore(chatCodec);
+    }
+
+    @Test
+    void readAllReturnsMessagesInOrder() throws Exception {
+        post(5);
+
+        assertThat(texts(chatStore.readAll(MEETING_ID))).containsExactly("m0", "m1", "m2", "m3", "m4");
+        assertThat(chatStore.readAll("no-such-meeting")).isEmpty();
+    }
+
+    @Test
+    void lastThenBeforePagesThroughTheWholeHistory() throws Exception {
+        post(23);
+
+        ChatPage page = chatStore.last(MEETING_ID, 10);
+        assertThat(texts(page.getMessages())).containsExactly("m13", "m14", "m15", "m16", "m17", "m18", "m19", "m20", "m21", "m22");
+
+        List<String> history = new ArrayList<>(texts(page.getMessages()));
+        while (page.getPreviousCursor() != null) {
+            page = chatStore.before(MEETING_ID, page.getPreviousCursor(), 10);
+            history.addAll(0, texts(page.getMessages()));
+        }
+        assertThat(history).hasSize(23).startsWith("m0", "m1").endsWith("m22");
+    }
+
+    @Test
+    void afterReturnsOnlyNewMessages() throws Exception {
+        post(3);
+        ChatPage page = chatStore.last(MEETING_ID, 10);
+        assertThat(page.getPreviousCursor()).isNull();
+
+        ChatPage empty = chatStore.after(MEETING_ID, page.getNextCursor(), 10);
+        assertThat(empty.getMessages()).isEmpty();
+        assertThat(empty.getNextCursor()).isEqualTo(page.getNextCursor());
+
+        chatStore.append(MEETING_ID, message("m3"));
+        chatStore.append(MEETING_ID, message("m4"));
+        ChatPage next = chatStore.after(MEETING_ID, page.getNextCursor(), 1);
+        assertThat(texts(next.getMessages())).containsExactly("m3");
+        assertThat(texts(chatStore.after(MEETING_ID, next.getNextCursor(), 10).getMessages())).containsExactly("m4");
+    }
+
+    @Test
+    void emptyChatPollsFromTheStart() throws Exception {
+        ChatPage page = chatStore.last(MEETING_ID, 10);
+        assertThat(page.getMessages()).isEmpty();
+
+        chatStore.append(MEETING_ID, message("m0"));
+        assertThat(texts(chatStore.after(MEETING_ID, page.getNextCursor(), 10).getMessages())).containsExactly("m0");
+    }
+
+    @Test
+    void sinceReturnsMessagesPostedAfterTimestamp() throws Exception {
+        appendAt(1_000, "m0");
+        appendAt(2_000, "m1");
+        appendAt(3_000, "late0");
+        appendAt(4_000, "late1");
+
+        ChatPage page = chatStore.since(MEETING_ID, 2_500, 10);
+        assertThat(texts(page.getMessages())).containsExactly("late0", "late1");
+        assertThat(chatStore.after(MEETING_ID, page.getNextCursor(), 10).getMessages()).isEmpty();
+        assertThat(chatStore.since(MEETING_ID, 4_000, 10).getMessages()).isEmpty();
+    }
+
+    @Test
+    void reactiveStoreSharesTheChatAcrossChunks() throws Exception {
+        int count = ReactiveListChatStore.CHUNK_SIZE * 2 + 7;
+        post(count);
+        ReactiveChatStore reactiveStore = createReactiveStore();
+
+        assertThat(reactiveStore.append(MEETING_ID, message("reactive")).block()).isNotNull();
+
+        List<String> read = texts(reactiveStore.readAll(MEETING_ID).collectList().block());
+        assertThat(read).hasSize(count + 1).startsWith("m0", "m1").endsWith("reactive");
+        assertThat(read).isEqualTo(texts(chatStore.readAll(MEETING_ID)));
+        assertThat(reactiveStore.readAll("no-such-meeting").collectList().block()).isEmpty();
+    }
+
+    @Test
+    void readsMessagesOfBothCodecs() throws Exception {
+        ChatStore jsonStore = createStore(jsonCodec);
+        jsonStore.append(MEETING_ID, message("json"));
+        chatStore.append(MEETING_ID, message("binary"));
+
+        assertThat(texts(chatStore.readAll(MEETING_ID))).containsExactly("json", "binary");
+        assertThat(texts(jsonStore.readAll(MEETING_ID))).containsExactly("json", "binary");
+    }
+
+    @Test
+    void invalidCursorIsRejected() {
+        assertThatThrownBy(() -> chatStore.after(MEETING_ID, "not-a-cursor", 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    protected void post(int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            chatStore.append(MEETING_ID, message("m" + i));
+        }
+    }
+
+    // Appends a message posted at the given time (epoch millis)
+    protected void appendAt(long timestamp, String text) throws Exception {
+        chatStore.append(MEETING_ID, new ChatMessage("a@x.gr", text, timestamp));
+    }
+
+    private static ChatProperties binary() {
+        ChatProperties properties = new ChatProperties();
+        properties.setCodec(ChatProperties.Codec.BINARY);
+        return properties;
+    }
+
+    protected static ChatMessage message(String text) {
+        return new ChatMessage("a@x.gr", text, System.currentTimeMillis());
+    }
+
+    protected static List<String> texts(List<ChatMessage> messages) {
+        return messages.stream().map(ChatMessage::getMessage).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,165 @@
+package gr.dmst.edu.redis.service;
+
+import gr.dmst.edu.redis.config.BackgroundThreads;
+import gr.dmst.edu.redis.config.SchedulerProperties;
+import gr.dmst.edu.redis.model.Meeting;
+import gr.dmst.edu.redis.support.MockRedis;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LeaderLeaseTest {
+    private static final LocalDateTime PAST = LocalDateTime.of(2026, 1, 1, 10, 0);
+
+    private static MockRedis redis;
+    private static StringRedisTemplate template;
+    private MeetingSchedule schedule;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = MockRedis.start();
+        template = redis.stringRedisTemplate();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        template.getConnectionFactory().getConnection().serverCommands().flushAll();
+        schedule = new MeetingSchedule(template);
+    }
+
+    @Test
+    void onlyOneInstanceLeads() {
+        List<LeaderLease> leases = List.of(lease(Duration.ofSeconds(15)), lease(Duration.ofSeconds(15)),
+                lease(Duration.ofSeconds(15)));
+        leases.forEach(LeaderLease::renew);
+        assertThat(leases.stream().filter(LeaderLease::isLeader)).hasSize(1);
+
+        LeaderLease leader = leases.stream().filter(LeaderLease::isLeader).findFirst().orElseThrow();
+        long token = leader.token();
+        leases.forEach(LeaderLease::renew);
+        assertThat(leader.token()).isEqualTo(token);
+        assertThat(leases.stream().filter(LeaderLease::isLeader)).hasSize(1);
+    }
+
+    @Test
+    void anotherInstanceTakesOverWhenTheLeaseExpires() throws InterruptedException {
+        LeaderLease first = lease(Duration.ofMillis(200));
+        LeaderLease second = lease(Duration.ofMillis(200));
+        first.renew();
+        second.renew();
+        long firstToken = first.token();
+        assertThat(firstToken).isPositive();
+        assertThat(second.isLeader()).isFalse();
+
+        // The first instance stops renewing, as if paused or partitioned away
+        Thread.sleep(300);
+        assertThat(first.isLeader()).isFalse();
+        second.renew();
+        assertThat(second.token()).isGreaterThan(firstToken);
+        // Checked in Redis, jobs that cannot fence a script see the lease is gone too
+        assertThat(first.holds(firstToken)).isFalse();
+        assertThat(second.holds(second.token())).isTrue();
+
+        // A claim with the stale token is fenced off, even if the old leader still tries it
+        schedule.schedule(meeting("m1"));
+        assertThat(schedule.claimDueStarts(MeetingSchedule.nowMillis(), 10, firstToken)).isEmpty();
+        assertThat(schedule.claimDueStarts(MeetingSchedule.nowMillis(), 10, second.token())).containsOnlyKeys("m1");
+
+        // Renewing does not take the lease back from the new leader
+        first.renew();
+        assertThat(first.isLeader()).isFalse();
+    }
+
+    @Test
+    void releasingHandsTheLeaseOverRightAway() {
+        LeaderLease first = lease(Duration.ofSeconds(15));
+        LeaderLease second = lease(Duration.ofSeconds(15));
+        first.renew();
+        first.release();
+        assertThat(first.isLeader()).isFalse();
+
+        second.renew();
+        assertThat(second.isLeader()).isTrue();
+        // Releasing a lease held by someone else leaves it alone
+        first.release();
+        assertThat(template.hasKey("lease:scheduler")).isTrue();
+    }
+
+    @Test
+    void instancesSharingTheScheduleClaimEachMeetingOnce() throws Exception {
+        int meetings = 2000;
+        for (int i = 0; i < meetings; i++) {
+            schedule.schedule(meeting("m" + i));
+        }
+        Map<String, AtomicInteger> claims = new ConcurrentHashMap<>();
+        List<LeaderLease> leases = new ArrayList<>();
+        ExecutorService instances = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            LeaderLease lease = lease(Duration.ofMillis(100));
+            leases.add(lease);
+            boolean crashes = i == 0;
+            futures.add(instances.submit(() -> {
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+                int rounds = 0;
+                while (claims.size() < meetings && System.nanoTime() < deadline) {
+                    lease.renew();
+                    long token = lease.token();
+                    if (token != 0) {
+                        schedule.claimDueStarts(MeetingSchedule.nowMillis(), 20, token).keySet()
+                                .forEach(id -> claims.computeIfAbsent(id, k -> new AtomicInteger()).incrementAndGet());
+                        // The first leader stops after a few rounds without giving the lease up
+                        if (crashes && ++rounds == 5) {
+                            return;
+                        }
+                    }
+                    Thread.onSpinWait();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        instances.shutdown();
+
+        assertThat(claims).hasSize(meetings);
+        assertThat(claims.values()).allMatch(count -> count.get() == 1);
+        assertThat(template.opsForZSet().size("schedule:start")).isZero();
+    }
+
+    private LeaderLease lease(Duration ttl) {
+        SchedulerProperties properties = new SchedulerProperties();
+        properties.setLeaseTtl(ttl);
+        return new LeaderLease(template, properties, new BackgroundThreads(new MockEnvironment()));
+    }
+
+    private static Meeting meeting(String id) {
+        Meeting meeting = new Meeting();
+        meeting.setMeetingId(id);
+        meeting.setStartTime(PAST);
+        meeting.setEndTime(PAST.plusHours(1));
+        return meeting;
+    }
+}
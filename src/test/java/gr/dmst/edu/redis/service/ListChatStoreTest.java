@@ -0,0 +1,58 @@
+package gr.dmst.edu.redis.service;
+
+import gr.dmst.edu.redis.model.ChatPage;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ListChatStoreTest extends ChatStoreContractTest {
+
+    @Override
+    protected ChatStore createStore(ChatCodec codec) {
+        return new ListChatStore(chatTemplate, codec, properties);
+    }
+
+    @Override
+    protected ReactiveChatStore createReactiveStore() {
+        return new ReactiveListChatStore(redis.reactiveChatRedisTemplate(), chatCodec, properties);
+    }
+
+    @Test
+    void appendCapsTheListAndKeepsCursorsValid() throws Exception {
+        properties.setMaxLength(10);
+        post(8);
+        ChatPage page = chatStore.last(MEETING_ID, 3);
+        for (int i = 0; i < 12; i++) {
+            chatStore.append(MEETING_ID, message("n" + i));
+        }
+
+        assertThat(template.opsForList().size("chat:" + MEETING_ID)).isEqualTo(10);
+        // The cursor taken before the trim continues with the oldest message kept, n0 and n1 are gone
+        ChatPage next = chatStore.after(MEETING_ID, page.getNextCursor(), 5);
+        assertThat(texts(next.getMessages())).containsExactly("n2", "n3", "n4", "n5", "n6");
+        assertThat(texts(chatStore.after(MEETING_ID, next.getNextCursor(), 10).getMessages()))
+                .containsExactly("n7", "n8", "n9", "n10", "n11");
+
+        // Paging back stops at the oldest message kept
+        ChatPage latest = chatStore.last(MEETING_ID, 4);
+        assertThat(texts(latest.getMessages())).containsExactly("n8", "n9", "n10", "n11");
+        ChatPage older = chatStore.before(MEETING_ID, latest.getPreviousCursor(), 10);
+        assertThat(texts(older.getMessages())).containsExactly("n2", "n3", "n4", "n5", "n6", "n7");
+        assertThat(older.getPreviousCursor()).isNull();
+    }
+
+    @Test
+    void reactiveAppendCapsTheListToo() {
+        properties.setMaxLength(10);
+        ReactiveChatStore reactiveStore = createReactiveStore();
+        String cursor = null;
+        for (int i = 0; i < 15; i++) {
+            cursor = reactiveStore.append(MEETING_ID, message("m" + i)).block();
+        }
+
+        assertThat(cursor).isEqualTo("14");
+        assertThat(texts(reactiveStore.readAll(MEETING_ID).collectList().block()))
+                .hasSize(10).startsWith("m5").endsWith("m14");
+        assertThat(texts(chatStore.since(MEETING_ID, 0, 3).getMessages())).containsExactly("m5", "m6", "m7");
+    }
+}
@@ -0,0 +1,141 @@
+package gr.dmst.edu.redis.service;
+
+import gr.dmst.edu.redis.config.BackgroundThreads;
+import gr.dmst.edu.redis.config.LogWriterProperties;
+import gr.dmst.edu.redis.model.Log;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class LogWriterTest {
+    private final AtomicInteger refusedConnections = new AtomicInteger();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private LogWriterProperties properties;
+    private LogWriter logWriter;
+
+    @BeforeEach
+    void setUp() {
+        // Refuses the next refusedConnections connections, as a database that is down
+        DriverManagerDataSource dataSource =
+                new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1") {
+                    @Override
+                    public Connection getConnection() throws SQLException {
+                        if (refusedConnections.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                            throw new SQLException("Connection refused", "08001");
+                        }
+                        return super.getConnection();
+                    }
+                };
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE log (id BIGINT AUTO_INCREMENT PRIMARY KEY, email VARCHAR(20), "
+                + "meeting_id VARCHAR(255), timestamp TIMESTAMP, action INTEGER)");
+        properties = new LogWriterProperties();
+        properties.setRetryBackoff(Duration.ofMillis(10));
+        properties.setMaxRetryBackoff(Duration.ofMillis(20));
+        // The rollups are covered by AttendanceRollupTest
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        logWriter = new LogWriter(jdbcTemplate, transactionTemplate, properties, new BackgroundThreads(new MockEnvironment()), mock(AttendanceRollup.class), meterRegistry);
+    }
+
+    @Test
+    void retriesWhileTheDatabaseCannotBeReached() {
+        refusedConnections.set(3);
+        logWriter.submitAll(List.of(log("a@x.gr"), log("b@x.gr")));
+
+        assertThat(emails()).containsExactly("a@x.gr", "b@x.gr");
+        assertThat(logWriter.getDropped()).isZero();
+    }
+
+    @Test
+    void dropsAndCountsTheLogsOnceTheRetriesAreSpent() {
+        refusedConnections.set(properties.getRetryAttempts());
+        logWriter.submit(log("a@x.gr"));
+        logWriter.submit(log("b@x.gr"));
+
+        assertThat(emails()).containsExactly("b@x.gr");
+        assertThat(meterRegistry.counter("meetings.logs.dropped", "cause", "error").count()).isEqualTo(1);
+    }
+
+    @Test
+    void losesOnlyTheBadLogsOfABatch() {
+        logWriter.start();
+        logWriter.submitAll(List.of(log("a@x.gr"), log("x".repeat(30) + "@x.gr"), log("b@x.gr")));
+        logWriter.stop();
+
+        assertThat(emails()).containsExactly("a@x.gr", "b@x.gr");
+        assertThat(meterRegistry.counter("meetings.logs.dropped", "cause", "error").count()).isEqualTo(1);
+    }
+
+    @Test
+    void writesTheLogsSubmittedWhileStopping() throws Exception {
+        // The worker is held in its first write, so the one log the queue holds stays there
+        AttendanceRollup rollup = mock(AttendanceRollup.class);
+        CountDownLatch writing = new CountDownLatch(1);
+        AtomicBoolean first = new AtomicBoolean(true);
+        doAnswer(invocation -> {
+            if (first.getAndSet(false)) {
+                writing.countDown();
+                try {
+                    Thread.sleep(60_000);
+                } catch (InterruptedException e) {
+                    // stop() interrupts the worker
+                }
+            }
+            return null;
+        }).when(rollup).apply(anyList());
+        properties.setCapacity(1);
+        properties.setOfferTimeout(Duration.ofSeconds(30));
+        logWriter = new LogWriter(jdbcTemplate, transactionTemplate, properties,
+                new BackgroundThreads(new MockEnvironment()), rollup, meterRegistry);
+        logWriter.start();
+        logWriter.submit(log("a@x.gr"));
+        writing.await();
+        logWriter.submit(log("b@x.gr"));
+
+        // Waits for space in the queue, which stop() makes by draining it
+        Thread submitter = new Thread(() -> logWriter.submit(log("c@x.gr")));
+        submitter.start();
+        while (submitter.getState() != Thread.State.TIMED_WAITING) {
+            Thread.onSpinWait();
+        }
+        logWriter.stop();
+        submitter.join();
+
+        assertThat(emails()).containsExactlyInAnyOrder("a@x.gr", "b@x.gr", "c@x.gr");
+    }
+
+    private List<String> emails() {
+        return jdbcTemplate.queryForList("SELECT email FROM log ORDER BY id", String.class);
+    }
+
+    private static Log log(String email) {
+        Log entry = new Log();
+        entry.setEmail(email);
+        entry.setMeetingId("m1");
+        entry.setTimestamp(LocalDateTime.of(2026, 1, 1, 10, 0));
+        entry.setAction(Log.JOIN_MEETING);
+        return entry;
+    }
+}
@@ -0,0 +1,131 @@
+package gr.dmst.edu.redis.service;
+
+import gr.dmst.edu.redis.support.MockRedis;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MeetingDeactivatorTest {
+    private static MockRedis redis;
+    private static StringRedisTemplate template;
+    private MeetingDeactivator deactivator;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = MockRedis.start();
+        template = redis.stringRedisTemplate();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        template.getConnectionFactory().getConnection().serverCommands().flushAll();
+        deactivator = new MeetingDeactivator(template);
+    }
+
+    @Test
+    void removesMeetingsFromEveryIndex() {
+        activate("m1", List.of("a@x.gr", "b@x.gr"), List.of("a@x.gr"));
+        activate("m2", List.of("a@x.gr"), List.of());
+        activate("m3", List.of("b@x.gr"), List.of("b@x.gr"));
+
+        Map<String, Set<String>> ended = deactivator.deactivate(List.of("m1", "m2", "missing", "m1"));
+
+        assertThat(ended).containsOnlyKeys("m1", "m2");
+        assertThat(ended.get("m1")).containsExactly("a@x.gr");
+        assertThat(ended.get("m2")).isEmpty();
+        for (String id : List.of("m1", "m2")) {
+            assertThat(template.hasKey("active_meeting:" + id)).isFalse();
+            assertThat(template.hasKey("meeting:" + id + ":invited")).isFalse();
+            assertThat(template.hasKey("meeting:" + id + ":joined")).isFalse();
+        }
+        assertThat(template.opsForSet().members("active_meeting")).containsExactly("m3");
+        assertThat(template.opsForZSet().range("geo:active_meetings", 0, -1)).containsExactly("m3");
+        assertThat(template.opsForSet().members("user:a@x.gr:invited")).isEmpty();
+        assertThat(template.opsForSet().members("user:a@x.gr:joined")).isEmpty();
+        assertThat(template.opsForSet().members("user:b@x.gr:invited")).containsExactly("m3");
+        assertThat(template.opsForSet().members("user:b@x.gr:joined")).containsExactly("m3");
+    }
+
+    @Test
+    void endsEachMeetingOnlyOnce() {
+        activate("m1", List.of("a@x.gr"), List.of("a@x.gr"));
+
+        assertThat(deactivator.deactivate(List.of("m1"))).containsOnlyKeys("m1");
+        assertThat(deactivator.deactivate(List.of("m1"))).isEmpty();
+    }
+
+    @Test
+    void refusesToEndWithParticipantsThatChangedSinceRead() {
+        activate("m1", List.of("a@x.gr", "b@x.gr"), List.of("a@x.gr"));
+
+        // b@x.gr joined after the participants were read, so their joined set is not among the keys
+        template.opsForSet().add("meeting:m1:joined", "b@x.gr");
+        template.opsForSet().add("user:b@x.gr:joined", "m1");
+        List<?> reply = template.execute(MeetingDeactivator.END_SCRIPT,
+                List.of("active_meeting", "active_meeting:m1", "meeting:m1:invited", "meeting:m1:joined",
+                        "geo:active_meetings", "user:a@x.gr:invited", "user:b@x.gr:invited", "user:a@x.gr:joined"),
+                "m1", "2", "a@x.gr", "b@x.gr", "a@x.gr");
+
+        assertThat(reply).isEqualTo(List.of(-1L));
+        assertThat(template.hasKey("active_meeting:m1")).isTrue();
+        assertThat(template.opsForSet().members("user:a@x.gr:invited")).containsExactly("m1");
+
+        // Read again, the meeting ends with both participants
+        assertThat(deactivator.deactivate(List.of("m1")).get("m1")).containsExactlyInAnyOrder("a@x.gr", "b@x.gr");
+        assertThat(template.opsForSet().members("user:b@x.gr:joined")).isEmpty();
+    }
+
+    @Test
+    void endsLargeBatches() {
+        List<String> ids = IntStream.range(0, 2000).mapToObj(i -> "bulk-" + i).collect(Collectors.toList());
+        ids.forEach(id -> activate(id, List.of("a@x.gr", "b@x.gr"), List.of("b@x.gr")));
+
+        Map<String, Set<String>> ended = deactivator.deactivate(ids);
+
+        assertThat(ended).hasSize(ids.size());
+        assertThat(ended.values()).allMatch(joined -> joined.equals(Set.of("b@x.gr")));
+        assertThat(template.opsForSet().size("active_meeting")).isZero();
+        assertThat(template.opsForSet().size("user:a@x.gr:invited")).isZero();
+        assertThat(template.opsForZSet().size("geo:active_meetings")).isZero();
+    }
+
+    @Test
+    void reloadsTheScriptAfterAFlush() {
+        activate("m1", List.of("a@x.gr"), List.of());
+        deactivator.deactivate(List.of("m1"));
+        template.getConnectionFactory().getConnection().scriptingCommands().scriptFlush();
+        activate("m2", List.of("a@x.gr"), List.of());
+
+        assertThat(deactivator.deactivate(List.of("m2"))).containsOnlyKeys("m2");
+    }
+
+    // The keys MeetingService.activateMeeting and joins leave behind, the geo index as its sorted set
+    private void activate(String meetingId, List<String> invited, List<String> joined) {
+        template.opsForSet().add("active_meeting", meetingId);
+        template.opsForHash().put("active_meeting:" + meetingId, "meetingId", meetingId);
+        template.opsForZSet().add("geo:active_meetings", meetingId, 1);
+        invited.forEach(email -> {
+            template.opsForSet().add("meeting:" + meetingId + ":invited", email);
+            template.opsForSet().add("user:" + email + ":invited", meetingId);
+        });
+        joined.forEach(email -> {
+            template.opsForSet().add("meeting:" + meetingId + ":joined", email);
+            template.opsForSet().add("user:" + email + ":joined", meetingId);
+        });
+    }
+}
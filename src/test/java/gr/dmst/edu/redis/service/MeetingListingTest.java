@@ -0,0 +1,118 @@
+package gr.dmst.edu.redis.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.dmst.edu.redis.config.RedisConfig;
+import gr.dmst.edu.redis.model.Meeting;
+import gr.dmst.edu.redis.model.MeetingPage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MeetingListingTest {
+    private static final LocalDateTime START = LocalDateTime.of(2026, 1, 1, 10, 0);
+
+    private final ObjectMapper objectMapper = new RedisConfig().objectMapper();
+    private JdbcTemplate jdbcTemplate;
+    private MeetingListing listing;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource =
+                new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        // The tables Hibernate creates for Meeting
+        jdbcTemplate.execute("CREATE TABLE meeting (meeting_id VARCHAR(255) PRIMARY KEY, title VARCHAR(255), "
+                + "description VARCHAR(255), start_time TIMESTAMP, end_time TIMESTAMP, latitude FLOAT, longitude FLOAT)");
+        jdbcTemplate.execute("CREATE TABLE meeting_participant (meeting_id VARCHAR(255) NOT NULL, "
+                + "email VARCHAR(255) NOT NULL, PRIMARY KEY (meeting_id, email))");
+        listing = new MeetingListing(jdbcTemplate, new TransactionTemplate(new DataSourceTransactionManager(dataSource)),
+                objectMapper);
+
+        // m00..m11, two meetings per hour, a@x.gr invited to the even ones and b@x.gr to all but m11
+        for (int i = 0; i < 12; i++) {
+            String id = String.format("m%02d", 11 - i);
+            jdbcTemplate.update("INSERT INTO meeting VALUES (?, ?, NULL, ?, ?, 37.9, 23.7)", id, "Meeting " + id,
+                    START.plusHours((11 - i) / 2), START.plusHours((11 - i) / 2 + 1));
+            if ((11 - i) % 2 == 0) {
+                jdbcTemplate.update("INSERT INTO meeting_participant VALUES (?, 'a@x.gr')", id);
+            }
+            if (i != 0) {
+                jdbcTemplate.update("INSERT INTO meeting_participant VALUES (?, 'b@x.gr')", id);
+            }
+        }
+        jdbcTemplate.update("INSERT INTO meeting (meeting_id, title) VALUES ('unscheduled', 'No time')");
+    }
+
+    @Test
+    void pagesFollowTheStartTimeOrder() {
+        List<String> ids = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            MeetingPage page = listing.page(null, null, null, cursor, 5);
+            page.getMeetings().forEach(meeting -> ids.add(meeting.getMeetingId()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(ids).containsExactly("m00", "m01", "m02", "m03", "m04", "m05",
+                "m06", "m07", "m08", "m09", "m10", "m11");
+        Meeting first = listing.page(null, null, null, null, 1).getMeetings().get(0);
+        assertThat(first.getParticipants()).containsExactlyInAnyOrder("a@x.gr", "b@x.gr");
+        assertThat(first.getStartTime()).isEqualTo(START);
+        assertThat(first.getLatitude()).isEqualTo(37.9);
+    }
+
+    @Test
+    void pagesAreFiltered() {
+        MeetingPage page = listing.page(START.plusHours(1), START.plusHours(4), "a@x.gr", null, 2);
+        assertThat(page.getMeetings()).extracting(Meeting::getMeetingId).containsExactly("m02", "m04");
+
+        page = listing.page(START.plusHours(1), START.plusHours(4), "a@x.gr", page.getNextCursor(), 2);
+        assertThat(page.getMeetings()).extracting(Meeting::getMeetingId).containsExactly("m06");
+        assertThat(page.getNextCursor()).isNull();
+
+        assertThatThrownBy(() -> listing.page(null, null, null, "m02", 2)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void exportsEveryMeetingWithItsParticipants() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        listing.export(null, null, null, false, out);
+
+        Meeting[] meetings = objectMapper.readValue(out.toByteArray(), Meeting[].class);
+        assertThat(meetings).hasSize(13);
+        assertThat(meetings[0].getMeetingId()).isEqualTo("m00");
+        assertThat(meetings[0].getParticipants()).containsExactlyInAnyOrder("a@x.gr", "b@x.gr");
+        assertThat(meetings[11].getParticipants()).isEmpty();
+        assertThat(meetings[12].getMeetingId()).isEqualTo("unscheduled");
+        assertThat(meetings[12].getParticipants()).isEmpty();
+    }
+
+    @Test
+    void exportsFilteredMeetingsOnePerLine() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        listing.export(START.plusHours(5), null, "b@x.gr", true, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(1);
+        Meeting meeting = objectMapper.readValue(lines[0], Meeting.class);
+        assertThat(meeting.getMeetingId()).isEqualTo("m10");
+        assertThat(Arrays.asList(lines)).allMatch(line -> line.startsWith("{"));
+    }
+}
@@ -0,0 +1,114 @@
+package gr.dmst.edu.redis.service;
+
+import gr.dmst.edu.redis.config.SchedulerProperties;
+import gr.dmst.edu.redis.model.Meeting;
+import gr.dmst.edu.redis.repository.MeetingRepository;
+import gr.dmst.edu.redis.support.MockRedis;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MeetingSchedulerTest {
+    private static MockRedis redis;
+    private static StringRedisTemplate template;
+
+    private MeetingService meetingService;
+    private MeetingRepository meetingRepository;
+    private MeetingSchedule schedule;
+    private MeetingScheduler scheduler;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = MockRedis.start();
+        template = redis.stringRedisTemplate();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        template.getConnectionFactory().getConnection().serverCommands().flushAll();
+        template.opsForValue().set("lease:scheduler", "1");
+        LeaderLease leaderLease = mock(LeaderLease.class);
+        when(leaderLease.token()).thenReturn(1L);
+        meetingService = mock(MeetingService.class);
+        meetingRepository = mock(MeetingRepository.class);
+        schedule = new MeetingSchedule(template);
+        scheduler = new MeetingScheduler(meetingService, schedule, meetingRepository, new SchedulerProperties(),
+                leaderLease, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void startsLeftUnprocessedByAFailureAreRetried() {
+        LocalDateTime start = LocalDateTime.now().minusMinutes(1);
+        Meeting first = meeting("m1", start, start.plusHours(1));
+        Meeting second = meeting("m2", start, start.plusHours(1));
+        schedule.schedule(first);
+        schedule.schedule(second);
+        when(meetingRepository.findAllWithParticipants(anyCollection())).thenAnswer(invocation -> {
+            Collection<?> ids = invocation.getArgument(0);
+            return Stream.of(first, second).filter(meeting -> ids.contains(meeting.getMeetingId())).toList();
+        });
+        when(meetingService.activateMeeting(second)).thenThrow(new QueryTimeoutException("Redis timed out")).thenReturn(null);
+
+        scheduler.tick();
+
+        // Only the meeting that failed goes back, with its original start time
+        assertThat(template.opsForZSet().range("schedule:start", 0, -1)).containsExactly("m2");
+        assertThat(template.opsForZSet().score("schedule:start", "m2"))
+                .isEqualTo((double) MeetingSchedule.toMillis(start));
+
+        scheduler.tick();
+        assertThat(template.opsForZSet().size("schedule:start")).isZero();
+    }
+
+    @Test
+    void endsAreRetriedWhenEndingTheBatchFails() {
+        LocalDateTime start = LocalDateTime.now().minusHours(2);
+        schedule.scheduleEnd("m1", MeetingSchedule.toMillis(start.plusHours(1)));
+        schedule.scheduleEnd("m2", MeetingSchedule.toMillis(start.plusHours(1)));
+        when(meetingService.endMeetings(any())).thenThrow(new QueryTimeoutException("Redis timed out"));
+
+        scheduler.tick();
+
+        assertThat(template.opsForZSet().range("schedule:end", 0, -1)).containsExactlyInAnyOrder("m1", "m2");
+    }
+
+    @Test
+    void requeueKeepsTheTimeOfARescheduledMeeting() {
+        schedule.scheduleEnd("m1", 1000);
+        Map<String, Long> claimed = schedule.claimDueEnds(2000, 10, 1);
+        // The meeting is extended while its old end is being processed
+        schedule.scheduleEnd("m1", 5000);
+
+        schedule.requeueEnds(claimed);
+
+        assertThat(template.opsForZSet().score("schedule:end", "m1")).isEqualTo(5000.0);
+    }
+
+    private static Meeting meeting(String id, LocalDateTime start, LocalDateTime end) {
+        Meeting meeting = new Meeting();
+        meeting.setMeetingId(id);
+        meeting.setStartTime(start);
+        meeting.setEndTime(end);
+        return meeting;
+    }
+}
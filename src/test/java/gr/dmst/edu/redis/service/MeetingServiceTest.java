@@ -0,0 +1,135 @@
+package gr.dmst.edu.redis.service;
+
+import gr.dmst.edu.redis.model.ActiveMeeting;
+import gr.dmst.edu.redis.model.Meeting;
+import gr.dmst.edu.redis.repository.ActiveMeetingRepository;
+import gr.dmst.edu.redis.repository.MeetingRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MeetingServiceTest {
+    private static final double CENTER_LAT = 37.9838;
+    private static final double CENTER_LON = 23.7275;
+
+    @Mock
+    private MeetingRepository meetingRepository;
+    @Mock
+    private LogWriter logWriter;
+    @Mock
+    private ActiveMeetingRepository activeMeetingRepository;
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+    @Mock
+    private ActiveMeetingIndex activeMeetingIndex;
+    @Mock
+    private ParticipantStore participantStore;
+    @Mock
+    private MeetingSchedule meetingSchedule;
+    @Mock
+    private ChatStore chatStore;
+    @Mock
+    private ChatArchiver chatArchiver;
+    @Mock
+    private MeetingEventHub meetingEventHub;
+    @Mock
+    private ActiveMeetingCache activeMeetingCache;
+    @Mock
+    private MeetingDeactivator meetingDeactivator;
+    @Mock
+    private MeterRegistry meterRegistry;
+    @InjectMocks
+    private MeetingService meetingService;
+
+    @Test
+    void nearbyKeepsTheInvitedMeetingsClosestFirst() {
+        when(activeMeetingIndex.invitedMeetings("a@x.gr")).thenReturn(Set.of("meet-1", "meet-3"));
+        when(activeMeetingIndex.nearby(CENTER_LAT, CENTER_LON, 100.0)).thenReturn(List.of("meet-3", "meet-2", "meet-1"));
+
+        assertThat(meetingService.findNearbyMeetings("a@x.gr", CENTER_LAT, CENTER_LON)).containsExactly("meet-3", "meet-1");
+        // Users without invitations skip the geo search
+        assertThat(meetingService.findNearbyMeetings("b@x.gr", CENTER_LAT, CENTER_LON)).isEmpty();
+        verify(activeMeetingIndex).nearby(CENTER_LAT, CENTER_LON, 100.0);
+    }
+
+    @Test
+    void activationAndEndMaintainTheIndexes() {
+        Meeting meeting = new Meeting("meet-1", "Standup", "Daily", LocalDateTime.now().minusMinutes(5),
+                LocalDateTime.now().plusMinutes(30), CENTER_LAT, CENTER_LON, new LinkedHashSet<>(List.of("a@x.gr", "b@x.gr")));
+
+        ActiveMeeting activeMeeting = meetingService.activateMeeting(meeting);
+        assertThat(activeMeeting.getParticipants()).containsExactlyInAnyOrder("a@x.gr", "b@x.gr");
+        // The invited are registered before the hash makes the meeting joinable
+        InOrder activation = inOrder(participantStore, activeMeetingRepository, activeMeetingCache, activeMeetingIndex);
+        activation.verify(participantStore).register(activeMeeting);
+        activation.verify(activeMeetingRepository).save(activeMeeting);
+        activation.verify(activeMeetingCache).invalidate("meet-1");
+        activation.verify(activeMeetingIndex).add(activeMeeting);
+        verify(meetingSchedule).scheduleEnd("meet-1", activeMeeting.getEndTime());
+
+        // end_meeting.lua removes it from the indexes, see MeetingDeactivatorTest
+        when(meetingDeactivator.deactivate(List.of("meet-1"))).thenReturn(Map.of("meet-1", Set.of()));
+        assertThat(meetingService.endMeeting("meet-1")).isTrue();
+        verify(chatArchiver).archive(Set.of("meet-1"));
+    }
+
+    @Test
+    void postsAreConfirmedAgainstRedis() {
+        // Cached as active, while another instance has already ended it
+        when(activeMeetingCache.get("meet-1")).thenReturn(Optional.of(new ActiveMeeting()));
+        when(participantStore.isJoined("a@x.gr", "meet-1")).thenReturn(false);
+
+        assertThat(meetingService.postMessageToMeeting("meet-1", "a@x.gr", "late")).isFalse();
+        verifyNoInteractions(chatStore);
+    }
+
+    @Test
+    void endingDropsTheMeetingLocallyBeforePublishing() {
+        when(meetingDeactivator.deactivate(List.of("meet-1"))).thenReturn(Map.of("meet-1", Set.of("a@x.gr")));
+
+        assertThat(meetingService.endMeeting("meet-1")).isTrue();
+
+        InOrder end = inOrder(activeMeetingCache, logWriter, meetingEventHub);
+        end.verify(activeMeetingCache).invalidate(Set.of("meet-1"));
+        end.verify(logWriter).submitAll(anyList());
+        end.verify(meetingEventHub).publishAll(anyList());
+    }
+
+    // A former leader paused past its lease stops writing once the check fails
+    @Test
+    void reconciliationStopsOnceTheLeaseIsLost() {
+        Meeting first = new Meeting("meet-1", "Standup", "Daily", LocalDateTime.now().minusMinutes(5),
+                LocalDateTime.now().plusMinutes(30), CENTER_LAT, CENTER_LON, new LinkedHashSet<>());
+        Meeting second = new Meeting("meet-2", "Review", "Weekly", LocalDateTime.now().minusMinutes(5),
+                LocalDateTime.now().plusMinutes(30), CENTER_LAT, CENTER_LON, new LinkedHashSet<>());
+        when(meetingRepository.findActiveMeetings(any())).thenReturn(List.of(first, second));
+        Iterator<Boolean> leading = List.of(true, false).iterator();
+
+        meetingService.updateActiveMeetings(leading::next);
+
+        verify(activeMeetingRepository).save(any(ActiveMeeting.class));
+        verifyNoInteractions(meetingDeactivator);
+    }
+}
@@ -0,0 +1,77 @@
+package gr.dmst.edu.redis.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ParticipantMigrationTest {
+    private JdbcTemplate jdbcTemplate;
+    private ParticipantMigration migration;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource =
+                new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        migration = new ParticipantMigration(jdbcTemplate,
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+        // The meeting table as the previous version left it, next to the table Hibernate adds
+        jdbcTemplate.execute("CREATE TABLE meeting (meeting_id VARCHAR(255) PRIMARY KEY, participants VARCHAR(255))");
+        jdbcTemplate.execute("CREATE TABLE meeting_participant (meeting_id VARCHAR(255) NOT NULL, "
+                + "email VARCHAR(255) NOT NULL, PRIMARY KEY (meeting_id, email))");
+    }
+
+    @Test
+    void movesTheParticipantsColumnIntoTheTable() {
+        jdbcTemplate.update("INSERT INTO meeting VALUES ('m1', 'a@x.gr, b@x.gr,,a@x.gr ')");
+        jdbcTemplate.update("INSERT INTO meeting VALUES ('m2', '')");
+        jdbcTemplate.update("INSERT INTO meeting VALUES ('m3', NULL)");
+        // Rows written by this version before an old instance rewrote the column
+        jdbcTemplate.update("INSERT INTO meeting_participant VALUES ('m1', 'stale@x.gr')");
+        jdbcTemplate.update("INSERT INTO meeting_participant VALUES ('m3', 'c@x.gr')");
+
+        assertThat(migration.migrate()).isEqualTo(2);
+
+        assertThat(participants("m1")).containsExactly("a@x.gr", "b@x.gr");
+        assertThat(participants("m2")).isEmpty();
+        assertThat(participants("m3")).containsExactly("c@x.gr");
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM meeting WHERE participants IS NOT NULL", Integer.class)).isZero();
+        assertThat(migration.migrate()).isZero();
+    }
+
+    @Test
+    void migratesInChunks() {
+        int meetings = ParticipantMigration.CHUNK_SIZE * 2 + 1;
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < meetings; i++) {
+            rows.add(new Object[]{"m" + i, "a@x.gr,b@x.gr"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO meeting VALUES (?, ?)", rows);
+
+        assertThat(migration.migrate()).isEqualTo(meetings);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM meeting_participant", Integer.class))
+                .isEqualTo(meetings * 2);
+    }
+
+    @Test
+    void skipsDatabasesWithoutTheColumn() {
+        jdbcTemplate.execute("ALTER TABLE meeting DROP COLUMN participants");
+
+        assertThat(migration.migrate()).isZero();
+    }
+
+    private List<String> participants(String meetingId) {
+        return jdbcTemplate.queryForList(
+                "SELECT email FROM meeting_participant WHERE meeting_id = ? ORDER BY email", String.class, meetingId);
+    }
+}
@@ -0,0 +1,131 @@
+package gr.dmst.edu.redis.service;
+
+import gr.dmst.edu.redis.model.ActiveMeeting;
+import gr.dmst.edu.redis.model.BulkJoin;
+import gr.dmst.edu.redis.support.MockRedis;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ParticipantStoreConcurrencyTest {
+    private static final int THREADS = 1000;
+    private static final String MEETING_ID = "meet-storm";
+
+    private static MockRedis redis;
+    private static StringRedisTemplate template;
+    private ParticipantStore participantStore;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = MockRedis.start();
+        template = redis.stringRedisTemplate();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        template.getConnectionFactory().getConnection().serverCommands().flushAll();
+        participantStore = new ParticipantStore(template);
+    }
+
+    @Test
+    void concurrentJoinsAreNotLost() throws Exception {
+        List<String> emails = IntStream.range(0, THREADS).mapToObj(i -> "user" + i + "@x.gr").collect(Collectors.toList());
+        activate(emails);
+
+        List<Long> results = runConcurrently(emails, email -> participantStore.join(email, MEETING_ID));
+
+        assertThat(results).containsOnly(ParticipantStore.JOINED);
+        assertThat(participantStore.joined(MEETING_ID)).containsExactlyInAnyOrderElementsOf(emails);
+        assertThat(template.opsForSet().isMember("user:user0@x.gr:joined", MEETING_ID)).isTrue();
+    }
+
+    @Test
+    void concurrentJoinsAndLeavesKeepOnlyRemainingUsers() throws Exception {
+        List<String> emails = IntStream.range(0, THREADS).mapToObj(i -> "user" + i + "@x.gr").collect(Collectors.toList());
+        activate(emails);
+        emails.forEach(email -> participantStore.join(email, MEETING_ID));
+
+        // Even users leave while odd users join again
+        runConcurrently(emails, email -> email.hashCode() % 2 == 0
+                ? participantStore.leave(email, MEETING_ID)
+                : participantStore.join(email, MEETING_ID));
+
+        Set<String> remaining = emails.stream().filter(e -> e.hashCode() % 2 != 0).collect(Collectors.toSet());
+        assertThat(participantStore.joined(MEETING_ID)).isEqualTo(remaining);
+    }
+
+    @Test
+    void joinChecksActivationAndInvitation() {
+        assertThat(participantStore.join("a@x.gr", MEETING_ID)).isEqualTo(ParticipantStore.NOT_ACTIVE);
+
+        activate(List.of("a@x.gr"));
+        assertThat(participantStore.join("b@x.gr", MEETING_ID)).isEqualTo(ParticipantStore.NOT_INVITED);
+        assertThat(participantStore.join("a@x.gr", MEETING_ID)).isEqualTo(ParticipantStore.JOINED);
+        assertThat(participantStore.join("a@x.gr", MEETING_ID)).isEqualTo(ParticipantStore.UNCHANGED);
+        assertThat(participantStore.leave("a@x.gr", MEETING_ID)).isEqualTo(ParticipantStore.LEFT);
+        assertThat(participantStore.leave("a@x.gr", MEETING_ID)).isEqualTo(ParticipantStore.UNCHANGED);
+        assertThat(template.opsForSet().isMember("user:a@x.gr:joined", MEETING_ID)).isFalse();
+    }
+
+    @Test
+    void pipelinedJoinsMatchSingleJoins() {
+        activate(List.of("a@x.gr", "b@x.gr"));
+        List<BulkJoin> joins = List.of(new BulkJoin(MEETING_ID, "a@x.gr"), new BulkJoin("missing", "a@x.gr"),
+                new BulkJoin(MEETING_ID, "c@x.gr"), new BulkJoin(MEETING_ID, "a@x.gr"), new BulkJoin(MEETING_ID, "b@x.gr"));
+
+        // Flushing the script cache in between must not break the EVALSHAs
+        template.getConnectionFactory().getConnection().scriptingCommands().scriptFlush();
+        assertThat(participantStore.joinAll(joins)).containsExactly(ParticipantStore.JOINED, ParticipantStore.NOT_ACTIVE,
+                ParticipantStore.NOT_INVITED, ParticipantStore.UNCHANGED, ParticipantStore.JOINED);
+        assertThat(participantStore.joined(MEETING_ID)).containsExactlyInAnyOrder("a@x.gr", "b@x.gr");
+        assertThat(template.opsForSet().isMember("user:b@x.gr:joined", MEETING_ID)).isTrue();
+    }
+
+    private void activate(List<String> emails) {
+        // Stand-in for the hash ActiveMeetingRepository writes
+        template.opsForHash().put("active_meeting:" + MEETING_ID, "meetingId", MEETING_ID);
+        ActiveMeeting meeting = new ActiveMeeting();
+        meeting.setMeetingId(MEETING_ID);
+        meeting.setParticipants(Set.copyOf(emails));
+        participantStore.register(meeting);
+    }
+
+    private static List<Long> runConcurrently(List<String> emails, java.util.function.Function<String, Long> action)
+            throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (String email : emails) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return action.apply(email);
+                }));
+            }
+            start.countDown();
+            List<Long> results = new ArrayList<>();
+            for (Future<Long> future : futures) {
+                results.add(future.get(60, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
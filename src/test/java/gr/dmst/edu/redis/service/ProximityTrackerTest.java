@@ -0,0 +1,111 @@
+package gr.dmst.edu.redis.service;
+
+import gr.dmst.edu.redis.model.LocationUpdate;
+import gr.dmst.edu.redis.model.ProximityChange;
+import gr.dmst.edu.redis.support.EmbeddedRedis;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+// On a real redis-server, whose Lua limits how many values unpack returns. The geo search is
+// mocked, ActiveMeetingIndexTest covers it.
+class ProximityTrackerTest {
+    private static EmbeddedRedis redis;
+    private static StringRedisTemplate template;
+    private ActiveMeetingIndex activeMeetingIndex;
+    private ProximityTracker tracker;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = EmbeddedRedis.start();
+        template = redis.stringRedisTemplate();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        template.getConnectionFactory().getConnection().serverCommands().flushAll();
+        activeMeetingIndex = mock(ActiveMeetingIndex.class);
+        tracker = new ProximityTracker(template, activeMeetingIndex);
+    }
+
+    @Test
+    void returnsOnlyTheMeetingsEnteredAndLeft() {
+        List<LocationUpdate> first = List.of(new LocationUpdate("a@x.gr", 37.98, 23.72),
+                new LocationUpdate("b@x.gr", 37.99, 23.73), new LocationUpdate("c@x.gr", 38.0, 23.74));
+        when(activeMeetingIndex.nearbyInvited(anyList(), anyDouble()))
+                .thenReturn(List.of(List.of("m1", "m2"), List.of(), List.of("m3")));
+
+        assertThat(tracker.update(first)).containsExactly(
+                new ProximityChange("a@x.gr", List.of("m1", "m2"), List.of()),
+                new ProximityChange("c@x.gr", List.of("m3"), List.of()));
+
+        List<LocationUpdate> second = List.of(new LocationUpdate("a@x.gr", 37.981, 23.721),
+                new LocationUpdate("b@x.gr", 37.99, 23.73), new LocationUpdate("c@x.gr", 38.0, 23.74));
+        when(activeMeetingIndex.nearbyInvited(anyList(), anyDouble()))
+                .thenReturn(List.of(List.of("m2", "m4"), List.of(), List.of("m3")));
+
+        // c@x.gr stayed near m3 and b@x.gr near nothing, so only a@x.gr changed
+        assertThat(tracker.update(second)).containsExactly(
+                new ProximityChange("a@x.gr", List.of("m4"), List.of("m1")));
+        assertThat(tracker.nearby("a@x.gr")).containsExactlyInAnyOrder("m2", "m4");
+        assertThat(template.opsForValue().get("user:a@x.gr:position")).isEqualTo("37.981,23.721");
+    }
+
+    @Test
+    void leavesEverythingWhenNoMeetingIsInRange() {
+        when(activeMeetingIndex.nearbyInvited(anyList(), anyDouble())).thenReturn(List.of(List.of("m1")));
+        tracker.update(List.of(new LocationUpdate("a@x.gr", 37.98, 23.72)));
+
+        when(activeMeetingIndex.nearbyInvited(anyList(), anyDouble())).thenReturn(List.of(List.of()));
+        assertThat(tracker.update(List.of(new LocationUpdate("a@x.gr", 40.0, 20.0))))
+                .containsExactly(new ProximityChange("a@x.gr", List.of(), List.of("m1")));
+        assertThat(tracker.nearby("a@x.gr")).isEmpty();
+        assertThat(tracker.nearby("unknown@x.gr")).isEmpty();
+        // The position is kept even with nothing in range, and expires with the state
+        assertThat(template.getExpire("user:a@x.gr:position")).isPositive();
+    }
+
+    @Test
+    void rejectsPositionsRedisCannotSearchAround() {
+        List<LocationUpdate> updates = List.of(new LocationUpdate("a@x.gr", 37.98, 23.72),
+                new LocationUpdate("b@x.gr", 86.0, 23.72));
+
+        assertThatThrownBy(() -> tracker.update(updates))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("Update 1:");
+        assertThatThrownBy(() -> tracker.update(List.of(new LocationUpdate("a@x.gr", Double.NaN, 181.0))))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(activeMeetingIndex);
+    }
+
+    // Deltas are applied in chunks, Lua cannot unpack this many values at once
+    @Test
+    void appliesLargeDeltas() {
+        List<String> meetingIds = IntStream.range(0, 20_000).mapToObj(i -> "m" + i).toList();
+        when(activeMeetingIndex.nearbyInvited(anyList(), anyDouble())).thenReturn(List.of(meetingIds));
+        tracker.update(List.of(new LocationUpdate("a@x.gr", 37.98, 23.72)));
+        assertThat(tracker.nearby("a@x.gr")).hasSize(20_000);
+
+        when(activeMeetingIndex.nearbyInvited(anyList(), anyDouble())).thenReturn(List.of(List.of()));
+        assertThat(tracker.update(List.of(new LocationUpdate("a@x.gr", 37.98, 23.72))).get(0).getLeft()).hasSize(20_000);
+        assertThat(tracker.nearby("a@x.gr")).isEmpty();
+    }
+}
@@ -0,0 +1,141 @@
+package gr.dmst.edu.redis.service;
+
+import gr.dmst.edu.redis.config.RateLimitProperties;
+import gr.dmst.edu.redis.support.MockRedis;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimiterTest {
+    private static MockRedis redis;
+    private static StringRedisTemplate template;
+    private SimpleMeterRegistry meterRegistry;
+    private RateLimitProperties properties;
+    private RateLimiter rateLimiter;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = MockRedis.start();
+        template = redis.stringRedisTemplate();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        template.getConnectionFactory().getConnection().serverCommands().flushAll();
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new RateLimitProperties();
+        properties.setChatPerUser(new RateLimitProperties.Bucket(3, 4));
+        properties.setChatPerMeeting(new RateLimitProperties.Bucket(5, 1));
+        properties.setJoinPerUser(new RateLimitProperties.Bucket(2, 1));
+        rateLimiter = new RateLimiter(template, redis.reactiveStringRedisTemplate(), properties, meterRegistry);
+    }
+
+    @Test
+    void throttlesAUserAfterTheBurstUntilTheBucketRefills() throws InterruptedException {
+        // Warms the script up, so the burst below is not slower than the refill
+        rateLimiter.acquireChat("warm-up@x.gr", "warm-up");
+        for (int i = 0; i < 3; i++) {
+            assertThat(rateLimiter.acquireChat("a@x.gr", "m1")).isZero();
+        }
+        Duration wait = rateLimiter.acquireChat("a@x.gr", "m1");
+        // 4 tokens per second, one every 250ms
+        assertThat(wait).isPositive().isLessThanOrEqualTo(Duration.ofMillis(250));
+        assertThat(RateLimiter.retryAfterSeconds(wait)).isEqualTo(1);
+
+        Thread.sleep(wait.toMillis() + 10);
+        assertThat(rateLimiter.acquireChat("a@x.gr", "m1")).isZero();
+        assertThat(meterRegistry.counter("meetings.requests.throttled", "limit", "chat-per-user").count()).isEqualTo(1);
+    }
+
+    @Test
+    void theMeetingBucketIsSharedByItsParticipants() {
+        for (int i = 0; i < 5; i++) {
+            assertThat(rateLimiter.acquireChat("user" + i + "@x.gr", "m1")).isZero();
+        }
+        Duration wait = rateLimiter.acquireChat("other@x.gr", "m1");
+        assertThat(wait).isGreaterThan(Duration.ofMillis(900)).isLessThanOrEqualTo(Duration.ofSeconds(1));
+        assertThat(meterRegistry.counter("meetings.requests.throttled", "limit", "chat-per-meeting").count()).isEqualTo(1);
+
+        // The throttled message took no token of its user, who can still post elsewhere
+        assertThat(rateLimiter.acquireChat("other@x.gr", "m2")).isZero();
+        assertThat(rateLimiter.acquireChat("other@x.gr", "m2")).isZero();
+        assertThat(rateLimiter.acquireChat("other@x.gr", "m2")).isZero();
+        assertThat(rateLimiter.acquireChat("other@x.gr", "m2")).isPositive();
+    }
+
+    @Test
+    void reactiveCallsShareTheBuckets() {
+        assertThat(rateLimiter.acquireJoin("a@x.gr")).isZero();
+        assertThat(rateLimiter.acquireJoinReactive("a@x.gr").block()).isZero();
+        assertThat(rateLimiter.acquireJoinReactive("a@x.gr").block()).isPositive();
+        assertThat(rateLimiter.acquireJoin("a@x.gr")).isPositive();
+        assertThat(rateLimiter.acquireJoinReactive("b@x.gr").block()).isZero();
+        assertThat(meterRegistry.counter("meetings.requests.throttled", "limit", "join-per-user").count()).isEqualTo(2);
+        // Idle buckets expire once they would be full again
+        assertThat(template.getExpire("ratelimit:join:user:a@x.gr")).isPositive().isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void concurrentRequestsNeverTakeMoreThanTheBucketHolds() throws Exception {
+        properties.setJoinPerUser(new RateLimitProperties.Bucket(50, 0.001));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Duration>> results = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            results.add(executor.submit(() -> rateLimiter.acquireJoin("a@x.gr")));
+        }
+        int allowed = 0;
+        for (Future<Duration> result : results) {
+            if (result.get().isZero()) {
+                allowed++;
+            }
+        }
+        executor.shutdown();
+        assertThat(allowed).isEqualTo(50);
+    }
+
+    @Test
+    void disabledLimitsLetEverythingThrough() {
+        properties.setEnabled(false);
+        for (int i = 0; i < 10; i++) {
+            assertThat(rateLimiter.acquireJoin("a@x.gr")).isZero();
+        }
+        assertThat(template.hasKey("ratelimit:join:user:a@x.gr")).isFalse();
+    }
+
+    // token_bucket.lua cannot work with these, and the limiter would only log its failures
+    @Test
+    void refusesToStartWithUnusableBuckets() {
+        ApplicationContextRunner runner = new ApplicationContextRunner().withUserConfiguration(PropertiesConfiguration.class);
+
+        runner.run(context -> assertThat(context).hasNotFailed());
+        runner.withPropertyValues("meeting.rate-limit.chat-per-user.refill-per-second=0")
+                .run(context -> assertThat(context).hasFailed());
+        runner.withPropertyValues("meeting.rate-limit.join-per-user.refill-per-second=-1")
+                .run(context -> assertThat(context).hasFailed());
+        runner.withPropertyValues("meeting.rate-limit.chat-per-meeting.capacity=0")
+                .run(context -> assertThat(context).hasFailed());
+    }
+
+    @EnableConfigurationProperties(RateLimitProperties.class)
+    static class PropertiesConfiguration {
+    }
+}
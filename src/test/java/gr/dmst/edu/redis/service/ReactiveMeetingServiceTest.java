@@ -0,0 +1,112 @@
+package gr.dmst.edu.redis.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.dmst.edu.redis.config.ChatProperties;
+import gr.dmst.edu.redis.config.RedisConfig;
+import gr.dmst.edu.redis.model.ChatMessage;
+import gr.dmst.edu.redis.model.Log;
+import gr.dmst.edu.redis.support.MockRedis;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class ReactiveMeetingServiceTest {
+    private static MockRedis redis;
+    private static StringRedisTemplate template;
+    private final ObjectMapper objectMapper = new RedisConfig().objectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private LogWriter logWriter;
+    private ReactiveMeetingService service;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = MockRedis.start();
+        template = redis.stringRedisTemplate();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        template.getConnectionFactory().getConnection().serverCommands().flushAll();
+        logWriter = mock(LogWriter.class);
+        service = new ReactiveMeetingService(redis.reactiveStringRedisTemplate(),
+                new ReactiveListChatStore(redis.reactiveChatRedisTemplate(),
+                        new ChatCodec(objectMapper, new ChatProperties()), new ChatProperties()),
+                logWriter, objectMapper, meterRegistry);
+    }
+
+    @Test
+    void joinAndLeaveFollowTheParticipantScripts() {
+        activate("m1", "a@x.gr", "b@x.gr");
+
+        assertThat(service.joinMeeting("a@x.gr", "m1").block()).isTrue();
+        assertThat(service.joinMeeting("a@x.gr", "m1").block()).isTrue();
+        assertThat(service.joinMeeting("z@x.gr", "m1").block()).isFalse();
+        assertThat(service.joinMeeting("a@x.gr", "ended").block()).isFalse();
+        assertThat(service.getJoinedParticipants("m1").collectList().block()).containsExactly("a@x.gr");
+        assertThat(template.opsForSet().members("user:a@x.gr:joined")).containsExactly("m1");
+
+        assertThat(service.leaveMeeting("a@x.gr", "m1").block()).isTrue();
+        assertThat(service.leaveMeeting("a@x.gr", "m1").block()).isFalse();
+        assertThat(service.isJoined("a@x.gr", "m1").block()).isFalse();
+
+        // Only the actual join and leave are logged
+        ArgumentCaptor<Log> entries = ArgumentCaptor.forClass(Log.class);
+        verify(logWriter, times(2)).submit(entries.capture());
+        assertThat(entries.getAllValues()).extracting(Log::getAction)
+                .containsExactly(Log.JOIN_MEETING, Log.LEAVE_MEETING);
+    }
+
+    @Test
+    void postsOnlyToActiveMeetings() {
+        activate("m1", "a@x.gr");
+
+        assertThat(service.postMessageToMeeting("m1", "a@x.gr", "hello").block()).isTrue();
+        assertThat(service.postMessageToMeeting("ended", "a@x.gr", "lost").block()).isFalse();
+
+        assertThat(service.getMeetingChatMessages("m1").map(ChatMessage::getMessage).collectList().block())
+                .containsExactly("hello");
+        assertThat(meterRegistry.counter("meetings.chat.messages").count()).isEqualTo(1);
+    }
+
+    @Test
+    void userMessagesComeFromTheJoinedMeetingsOnly() {
+        activate("m1", "a@x.gr", "b@x.gr");
+        activate("m2", "a@x.gr", "b@x.gr");
+        activate("m3", "a@x.gr", "b@x.gr");
+        for (String meetingId : List.of("m1", "m2", "m3")) {
+            service.joinMeeting("a@x.gr", meetingId).block();
+            service.joinMeeting("b@x.gr", meetingId).block();
+            service.postMessageToMeeting(meetingId, "a@x.gr", "a in " + meetingId).block();
+            service.postMessageToMeeting(meetingId, "b@x.gr", "b in " + meetingId).block();
+        }
+        service.leaveMeeting("a@x.gr", "m2").block();
+
+        List<String> texts = service.getUserMessages("a@x.gr").collectList().block().stream()
+                .map(ChatMessage::getMessage)
+                .collect(Collectors.toList());
+        assertThat(texts).containsExactlyInAnyOrder("a in m1", "a in m3");
+        assertThat(service.getUserMessages("nobody@x.gr").collectList().block()).isEmpty();
+    }
+
+    // The keys MeetingService.activateMeeting leaves behind for the scripts and the chat
+    private void activate(String meetingId, String... invited) {
+        template.opsForSet().add("active_meeting", meetingId);
+        template.opsForHash().put("active_meeting:" + meetingId, "meetingId", meetingId);
+        template.opsForSet().add("meeting:" + meetingId + ":invited", invited);
+    }
+}
@@ -0,0 +1,89 @@
+package gr.dmst.edu.redis.service;
+
+import gr.dmst.edu.redis.model.KeyScanPage;
+import gr.dmst.edu.redis.model.KeyspaceStats;
+import gr.dmst.edu.redis.support.MockRedis;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RedisIntrospectionTest {
+    private static MockRedis redis;
+    private static StringRedisTemplate template;
+    private RedisIntrospection introspection;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = MockRedis.start();
+        template = redis.stringRedisTemplate();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        template.getConnectionFactory().getConnection().serverCommands().flushAll();
+        introspection = new RedisIntrospection(template);
+        for (int i = 0; i < 300; i++) {
+            template.opsForList().rightPush("chat:m" + i, "hello");
+        }
+        for (int i = 0; i < 100; i++) {
+            template.opsForSet().add("meeting:m" + i + ":invited", "a@x.gr");
+        }
+        template.opsForSet().add("active_meeting", "m1");
+    }
+
+    @Test
+    void scansEveryMatchingKeyAcrossPages() {
+        Set<String> keys = new HashSet<>();
+        String cursor = "0";
+        int pages = 0;
+        do {
+            KeyScanPage page = introspection.scan(cursor, "meeting:*", 20);
+            keys.addAll(page.getKeys());
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertThat(keys).hasSize(100).allMatch(key -> key.startsWith("meeting:"));
+        assertThat(pages).isGreaterThan(1);
+        assertThatThrownBy(() -> introspection.scan("abc", "*", 10)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // RANDOMKEY is not available on the mock server, the sampled keys are given
+    @Test
+    void extrapolatesTheSamplesToTheKeyspace() {
+        List<String> sampled = List.of("chat:m1", "chat:m2", "chat:m1", "meeting:m1:invited",
+                "active_meeting", "active_meeting:m1", "active_meeting:m2", "active_meeting:m1");
+        Map<String, Long> memory = Map.of("chat:m1", 100L, "chat:m2", 400L, "meeting:m1:invited", 50L,
+                "active_meeting:m1", 200L, "active_meeting:m2", 300L);
+
+        Map<String, KeyspaceStats.Prefix> prefixes = RedisIntrospection.extrapolate(8000, sampled, memory);
+
+        assertThat(prefixes).containsOnlyKeys("active_meeting", "chat", "meeting");
+        assertThat(prefixes.get("chat")).isEqualTo(new KeyspaceStats.Prefix(3, 3000, 200L, 600_000L));
+        assertThat(prefixes.get("meeting")).isEqualTo(new KeyspaceStats.Prefix(1, 1000, 50L, 50_000L));
+        // The MEMORY USAGE of the active_meeting set is missing, the other samples make the average
+        assertThat(prefixes.get("active_meeting")).isEqualTo(new KeyspaceStats.Prefix(4, 4000, 233L, 932_000L));
+    }
+
+    @Test
+    void prefixesWithoutMemoryUsageHaveNoMemoryEstimate() {
+        Map<String, KeyspaceStats.Prefix> prefixes = RedisIntrospection.extrapolate(10, List.of("geo:x"), Map.of());
+
+        assertThat(prefixes.get("geo")).isEqualTo(new KeyspaceStats.Prefix(1, 10, null, null));
+    }
+}
@@ -0,0 +1,146 @@
+package gr.dmst.edu.redis.service;
+
+import gr.dmst.edu.redis.model.ChatMessage;
+import gr.dmst.edu.redis.model.ChatPage;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StreamChatStoreTest extends ChatStoreContractTest {
+    @Override
+    protected ChatStore createStore(ChatCodec codec) {
+        return new StreamChatStore(chatTemplate, codec, properties);
+    }
+
+    @Override
+    protected ReactiveChatStore createReactiveStore() {
+        return new ReactiveStreamChatStore(redis.reactiveChatRedisTemplate(),
+                (StreamChatStore) chatStore, chatCodec, properties);
+    }
+
+    // jedis-mock assigns stream ids from a counter rather than its clock, so the
+    // append time is set explicitly the way Redis would derive it
+    @Override
+    protected void appendAt(long timestamp, String text) throws Exception {
+        chatTemplate.opsForStream().add(StreamRecords.newRecord()
+                .in("chat:" + MEETING_ID)
+                .withId(RecordId.of(timestamp, 0))
+                .ofMap(Map.of(StreamChatStore.MESSAGE_FIELD,
+                        chatCodec.encode(new ChatMessage("a@x.gr", text, timestamp)))));
+    }
+
+    @Test
+    void listChatsAreMigratedOnStartup() throws Exception {
+        ListChatStore listStore = new ListChatStore(chatTemplate, chatCodec, properties);
+        for (int i = 0; i < 5; i++) {
+            listStore.append(MEETING_ID, message("m" + i));
+        }
+
+        ((StreamChatStore) chatStore).migrateLists();
+
+        assertThat(template.type("chat:" + MEETING_ID)).isEqualTo(DataType.STREAM);
+        assertThat(texts(chatStore.readAll(MEETING_ID))).containsExactly("m0", "m1", "m2", "m3", "m4");
+        ChatPage page = chatStore.last(MEETING_ID, 2);
+        assertThat(texts(chatStore.before(MEETING_ID, page.getPreviousCursor(), 10).getMessages()))
+                .containsExactly("m0", "m1", "m2");
+    }
+
+    @Test
+    void listChatIsMigratedOnFirstAppend() throws Exception {
+        new ListChatStore(chatTemplate, jsonCodec, properties).append(MEETING_ID, message("old"));
+
+        chatStore.append(MEETING_ID, message("new"));
+
+        assertThat(texts(chatStore.readAll(MEETING_ID))).containsExactly("old", "new");
+    }
+
+    @Test
+    void listChatIsMigratedOnFirstReactiveRead() throws Exception {
+        new ListChatStore(chatTemplate, jsonCodec, properties).append(MEETING_ID, message("old"));
+
+        assertThat(texts(createReactiveStore().readAll(MEETING_ID).collectList().block())).containsExactly("old");
+        assertThat(template.type("chat:" + MEETING_ID)).isEqualTo(DataType.STREAM);
+    }
+
+    @Test
+    void messagesAppendedToTheListDuringMigrationAreCopied() throws Exception {
+        ListChatStore listStore = new ListChatStore(chatTemplate, jsonCodec, properties);
+        listStore.append(MEETING_ID, message("m0"));
+        AtomicBoolean appended = new AtomicBoolean();
+        // An instance still writing lists appends while the copy is made
+        ChatCodec codec = new ChatCodec(objectMapper, properties) {
+            @Override
+            public ChatMessage decode(byte[] data) throws IOException {
+                if (appended.compareAndSet(false, true)) {
+                    try {
+                        listStore.append(MEETING_ID, message("m1"));
+                    } catch (Exception e) {
+                        throw new IOException(e);
+                    }
+                }
+                return super.decode(data);
+            }
+        };
+        StreamChatStore store = new StreamChatStore(chatTemplate, codec, properties);
+
+        assertThat(store.migrate("chat:" + MEETING_ID)).isTrue();
+
+        assertThat(texts(store.readAll(MEETING_ID))).containsExactly("m0", "m1");
+        // The copy and the lock are gone
+        assertThat(template.keys("chat:*")).containsExactly("chat:" + MEETING_ID);
+    }
+
+    @Test
+    void trimmedListChatIsMigrated() throws Exception {
+        properties.setMaxLength(3);
+        ListChatStore listStore = new ListChatStore(chatTemplate, jsonCodec, properties);
+        for (int i = 0; i < 5; i++) {
+            listStore.append(MEETING_ID, message("m" + i));
+        }
+
+        assertThat(((StreamChatStore) chatStore).migrate("chat:" + MEETING_ID)).isTrue();
+
+        assertThat(texts(chatStore.readAll(MEETING_ID))).containsExactly("m2", "m3", "m4");
+        assertThat(template.hasKey("chat:" + MEETING_ID + ":trimmed")).isFalse();
+    }
+
+    @Test
+    void chatIsMigratedByOneInstanceAtATime() throws Exception {
+        new ListChatStore(chatTemplate, jsonCodec, properties).append(MEETING_ID, message("old"));
+        template.opsForValue().set("chat:" + MEETING_ID + ":migrating:lock", "other");
+        StreamChatStore store = (StreamChatStore) chatStore;
+
+        assertThat(store.migrate("chat:" + MEETING_ID)).isFalse();
+        assertThat(template.type("chat:" + MEETING_ID)).isEqualTo(DataType.LIST);
+
+        // A command on the chat waits for the other instance instead of failing
+        CompletableFuture.runAsync(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            template.delete("chat:" + MEETING_ID + ":migrating:lock");
+        });
+        chatStore.append(MEETING_ID, message("new"));
+
+        assertThat(texts(chatStore.readAll(MEETING_ID))).containsExactly("old", "new");
+    }
+
+    @Test
+    void appendCapsTheStreamLength() throws Exception {
+        properties.setMaxLength(10);
+        post(50);
+
+        // Approximate trimming may keep a few more entries than the cap
+        assertThat(template.opsForStream().size("chat:" + MEETING_ID)).isLessThan(50);
+    }
+}
@@ -0,0 +1,56 @@
+package gr.dmst.edu.redis.support;
+
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+
+// A real redis-server for the tests of commands jedis-mock lacks, such as GEOSEARCH
+public class EmbeddedRedis implements AutoCloseable {
+    private final RedisServer server;
+    private final LettuceConnectionFactory connectionFactory;
+
+    private EmbeddedRedis(RedisServer server, int port) {
+        this.server = server;
+        this.connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("127.0.0.1", port));
+        this.connectionFactory.afterPropertiesSet();
+        this.connectionFactory.start();
+    }
+
+    public static EmbeddedRedis start() {
+        try {
+            int port;
+            try (ServerSocket socket = new ServerSocket(0)) {
+                port = socket.getLocalPort();
+            }
+            RedisServer server = RedisServer.newRedisServer()
+                    .port(port)
+                    .bind("127.0.0.1")
+                    .setting("save \"\"")
+                    .setting("appendonly no")
+                    .build();
+            server.start();
+            return new EmbeddedRedis(server, port);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public StringRedisTemplate stringRedisTemplate() {
+        return new StringRedisTemplate(connectionFactory);
+    }
+
+    @Override
+    public void close() {
+        connectionFactory.destroy();
+        try {
+            server.stop();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package gr.dmst.edu.redis.support;
+
+import com.github.fppt.jedismock.RedisServer;
+import gr.dmst.edu.redis.config.RedisConfig;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.protocol.ProtocolVersion;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+// In-process Redis stand-in (jedis-mock) for tests that need real Redis semantics
+public class MockRedis implements AutoCloseable {
+    private final RedisServer server;
+    private final LettuceConnectionFactory connectionFactory;
+
+    private MockRedis(RedisServer server) {
+        this.server = server;
+        // jedis-mock speaks RESP2 only
+        LettuceClientConfiguration clientConfiguration = LettuceClientConfiguration.builder()
+                .clientOptions(ClientOptions.builder().protocolVersion(ProtocolVersion.RESP2).build())
+                .build();
+        this.connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(server.getHost(), server.getBindPort()), clientConfiguration);
+        this.connectionFactory.afterPropertiesSet();
+        this.connectionFactory.start();
+    }
+
+    public static MockRedis start() {
+        try {
+            RedisServer server = RedisServer.newRedisServer();
+            server.start();
+            return new MockRedis(server);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public String host() {
+        return server.getHost();
+    }
+
+    public int port() {
+        return server.getBindPort();
+    }
+
+    public LettuceConnectionFactory connectionFactory() {
+        return connectionFactory;
+    }
+
+    public StringRedisTemplate stringRedisTemplate() {
+        return new StringRedisTemplate(connectionFactory);
+    }
+
+    public ReactiveStringRedisTemplate reactiveStringRedisTemplate() {
+        return new ReactiveStringRedisTemplate(connectionFactory);
+    }
+
+    public RedisTemplate<String, byte[]> chatRedisTemplate() {
+        return new RedisConfig().chatRedisTemplate(connectionFactory);
+    }
+
+    public ReactiveRedisTemplate<String, byte[]> reactiveChatRedisTemplate() {
+        return new RedisConfig().reactiveChatRedisTemplate(connectionFactory);
+    }
+
+    @Override
+    public void close() {
+        connectionFactory.destroy();
+        try {
+            server.stop();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}